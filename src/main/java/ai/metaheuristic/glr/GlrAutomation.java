@@ -9,83 +9,133 @@ package ai.metaheuristic.glr;
 
 import ai.metaheuristic.glr.token.GlrToken;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
+ * Automation is immutable, grammar, tables and labels are compiled once in constructor. Methods of parsing can be called
+ * from many threads at once, see {@link #parseAll(Collection, Executor)}
+ *
  * @author Sergio Lissner
  * Date: 9/10/2022
  * Time: 2:19 PM
  */
 public class GlrAutomation {
 
+    // texts of batch are split to this number of tasks per processor, so slow texts are balanced between threads
+    public static final int TASKS_PER_PROCESSOR = 4;
+
     public final GlrParser parser;
     private final GlrGrammar grammar;
+    private final GlrLabelProgram labels;
 
     public GlrAutomation( String grammarText, String start) {
         this(grammarText, start, 0);
     }
 
     public GlrAutomation( String grammarText, String start, int log_level) {
+        this(grammarText, start, log_level, GlrEnums.LrMode.SLR);
+    }
+
+    public GlrAutomation( String grammarText, String start, int log_level, GlrEnums.LrMode lrMode) {
+        this(grammarText, start, new GlrBuildOptions(log_level, lrMode, null));
+    }
+
+    public GlrAutomation( String grammarText, String start, GlrBuildOptions options) {
         this.grammar = GlrGrammarParser.parse(grammarText, start);
-        this.parser = new GlrParser(grammar, log_level);
+        this.parser = new GlrParser(grammar, options);
+        this.labels = GlrLabelProgram.compile(grammar);
     }
 
-    private static void collectChildren(LinkedHashSet<GlrToken> list, GlrStack.SyntaxTree syntaxTree) {
-        if (syntaxTree.token()!=null) {
-            list.add(syntaxTree.token());
-        }
-        if (syntaxTree.children()!=null && !syntaxTree.children().isEmpty()) {
-            for (GlrStack.SyntaxTree child : syntaxTree.children()) {
-                collectChildren(list, child);
-            }
-        }
+    /**
+     * automation from process-wide cache {@link GlrAutomationCache#DEFAULT}, grammar is parsed only once for the same text and options
+     */
+    public static GlrAutomation cached(String grammarText, String start) {
+        return GlrAutomationCache.DEFAULT.get(grammarText, start);
     }
 
-    private static boolean validator(GlrGrammar grammar, GlrStack.SyntaxTree syntaxTree) {
-        if (syntaxTree.ruleIndex() == null) {
-            return true;
-        }
-        GlrGrammar.Rule rule = grammar.rules.get(syntaxTree.ruleIndex());
-        LinkedHashSet<GlrToken> set = new LinkedHashSet<>();
-        for (GlrStack.SyntaxTree child : syntaxTree.children()) {
-            collectChildren(set, child);
-        }
-        syntaxTree.children().stream()
-                .map(GlrStack.SyntaxTree::token)
-                .collect(Collectors.toCollection(()->set));
+    public static GlrAutomation cached(String grammarText, String start, int log_level, GlrEnums.LrMode lrMode) {
+        return GlrAutomationCache.DEFAULT.get(grammarText, start, log_level, lrMode);
+    }
 
-        List<GlrToken> tokens = new ArrayList<>(set);
+    public static GlrAutomation cached(String grammarText, String start, GlrBuildOptions options) {
+        return GlrAutomationCache.DEFAULT.get(grammarText, start, options);
+    }
 
-        for (int i = 0; i < tokens.size(); i++) {
-            GlrToken token = tokens.get(i);
-            if (rule.params()==null || rule.params().size()<=i) {
-                continue;
-            }
-            Map<String, List<Object>> params = rule.params().get(i);
-            for (Map.Entry<String, List<Object>> entry : params.entrySet()) {
-                String labelKey = entry.getKey();
-                List<Object> labelValues = entry.getValue();
-                for (Object labelValue : labelValues) {
-                    if (!(labelValue instanceof String labelValueStr)) {
-                        throw new IllegalStateException("(!(labelValue instanceof String))");
-                    }
-                    if (token==null) {
-                        return false;
-                    }
-                    GlrLabels.LabelCheck labelCheck = new GlrLabels.LabelCheck(labelValueStr, tokens, i);
-                    boolean ok = GlrLabels.LABELS_CHECK.getOrDefault(labelKey, (v)->false).apply(labelCheck);
-                    if (!ok) {
-                        // #print 'Label failed: %s=%s for #%s in %s' % (labelKey, labelValue, i, tokens)
-                        return false;
-                    }
-                }
-            }
+    private GlrAutomation(GlrGrammarStorage.CompiledGrammar compiled, GlrBuildOptions options) {
+        this.grammar = compiled.grammar();
+        this.parser = new GlrParser(grammar, compiled.table(), options.withLrMode(compiled.lrMode()));
+        this.labels = GlrLabelProgram.compile(grammar);
+    }
+
+    /**
+     * automation over already created parser, i.e. parser of class which was generated by {@link GlrCodeGenerator}
+     */
+    public GlrAutomation(GlrParser parser) {
+        this.grammar = parser.grammar;
+        this.parser = parser;
+        this.labels = GlrLabelProgram.compile(grammar);
+    }
+
+    /**
+     * new automation with rules of grammarText added to the end of grammar, state graph is rebuilt incrementally, see {@link GlrParser#addRules(List)}
+     */
+    public GlrAutomation addRules(String grammarText) {
+        return new GlrAutomation(parser.addRules(GlrGrammarParser.parseRules(grammarText, grammar.rules.size())));
+    }
+
+    public GlrAutomation removeRule(int ruleIndex) {
+        return new GlrAutomation(parser.removeRule(ruleIndex));
+    }
+
+    /**
+     * load automation which was stored with {@link #save(Path)}. The grammar isn't parsed and tables aren't generated again.
+     * LR mode is loaded with table, LR mode of options isn't used
+     */
+    public static GlrAutomation load(Path path) throws IOException {
+        return load(path, 0);
+    }
+
+    public static GlrAutomation load(Path path, int log_level) throws IOException {
+        return load(path, GlrBuildOptions.DEFAULT.withLogLevel(log_level));
+    }
+
+    /**
+     * load automation, risk of loaded grammar is checked by options, see {@link GlrBuildOptions#maxHeads()}
+     */
+    public static GlrAutomation load(Path path, GlrBuildOptions options) throws IOException {
+        return new GlrAutomation(GlrGrammarStorage.load(path), options);
+    }
+
+    public void save(Path path) throws IOException {
+        GlrGrammarStorage.save(path, grammar, parser.table, parser.lrMode);
+    }
+
+    /**
+     * labels of rule are checked with program which was compiled for grammar, tokens are addressed by span of tree
+     *
+     * @param input tokens which were parsed
+     */
+    private Function<GlrStack.SyntaxTree, Boolean> validator(List<GlrToken> input) {
+        return (syntaxTree) -> validator(syntaxTree, input);
+    }
+
+    private boolean validator(GlrStack.SyntaxTree syntaxTree, List<GlrToken> input) {
+        if (syntaxTree.ruleIndex() == null) {
+            return true;
         }
-        return true;
+        GlrLabelProgram.Check[] checks = labels.checks(syntaxTree.ruleIndex());
+        return checks.length==0 || GlrLabelProgram.test(checks, syntaxTree, input);
     }
 
     public List<GlrStack.SyntaxTree> parse(List<GlrToken> tokens) {
@@ -93,8 +143,84 @@ public class GlrAutomation {
     }
 
     private List<GlrStack.SyntaxTree> parse(List<GlrToken> tokens, boolean fullMath) {
-        return parser.parse(tokens, fullMath, (syntaxTree) -> validator(grammar, syntaxTree));
+        return parser.parse(tokens, fullMath, validator(tokens));
+    }
+
+    /**
+     * the same as {@link #parse(List)}, cost of parse is added to metrics
+     */
+    public List<GlrStack.SyntaxTree> parse(List<GlrToken> tokens, GlrParseMetrics metrics) {
+        return parse(tokens, GlrParseOptions.DEFAULT.withMetrics(metrics));
     }
-}
 
+    /**
+     * the same as {@link #parse(List)} with options of parse, i.e. with budget
+     */
+    public List<GlrStack.SyntaxTree> parse(List<GlrToken> tokens, GlrParseOptions options) {
+        return parser.parse(tokens, false, validator(tokens), options);
+    }
+
+    /**
+     * the same trees as {@link #parse(List)} returns, as forest. Trees are built only when they are enumerated
+     */
+    public GlrForest parseForest(List<GlrToken> tokens) {
+        return parser.parseForest(tokens, false, validator(tokens));
+    }
 
+    /**
+     * the best tree by weights of rules for each span which {@link #parse(List)} returns trees for
+     */
+    public List<GlrStack.SyntaxTree> parseBest(List<GlrToken> tokens) {
+        return parser.parseBest(tokens, false, validator(tokens));
+    }
+
+    /**
+     * the same trees as {@link #parse(List)} returns, tokens are pushed to session one by one and trees are passed to listener.
+     * Session doesn't keep tokens, so tokens of labels are found by spans of children of tree
+     */
+    public GlrParseSession open(Consumer<GlrStack.SyntaxTree> listener) {
+        return parser.open(listener, false, (syntaxTree) -> validator(syntaxTree, syntaxTree.inputView()), GlrEnums.ReduceMode.PATHS);
+    }
+
+    /**
+     * parse each list of tokens in executor, the same as {@link #parse(List)}. Texts are split to batches, one task for each batch,
+     * state of parsing is local to each task. Exception of parsing is thrown after all tasks are finished
+     *
+     * @return trees in order of texts
+     */
+    public List<List<GlrStack.SyntaxTree>> parseAll(Collection<List<GlrToken>> texts, Executor executor) {
+        List<List<GlrToken>> list = List.copyOf(texts);
+        int batchSize = Math.max(1, list.size() / (Runtime.getRuntime().availableProcessors() * TASKS_PER_PROCESSOR));
+        List<List<GlrStack.SyntaxTree>> results = new ArrayList<>(Collections.nCopies(list.size(), null));
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += batchSize) {
+            final int start = from;
+            final int end = Math.min(list.size(), from + batchSize);
+            tasks.add(CompletableFuture.runAsync(()->{
+                for (int i = start; i < end; i++) {
+                    results.set(i, parse(list.get(i)));
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * {@link #parseAll(Collection, Executor)} in common pool
+     */
+    public List<List<GlrStack.SyntaxTree>> parallelParse(Collection<List<GlrToken>> texts) {
+        return parseAll(texts, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bounded LRU cache of {@link GlrAutomation} keyed by content of grammar and options of build.
+ * {@link GlrAutomation} is immutable, so the same instance is shared between callers.
+ *
+ * Automation is built outside of lock, concurrent requests of the same key wait for the first build
+ * instead of building it again. Failed build isn't cached
+ */
+public class GlrAutomationCache {
+
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    /**
+     * process-wide cache which is used by {@link GlrAutomation#cached(String, String)}
+     */
+    public static final GlrAutomationCache DEFAULT = new GlrAutomationCache(DEFAULT_MAX_SIZE);
+
+    public record Key(String grammarText, String start, int logLevel, GlrEnums.LrMode lrMode, int maxHeads) {}
+
+    public record Stats(long hits, long misses, long evictions, int size) {}
+
+    public final int maxSize;
+
+    private final LinkedHashMap<Key, CompletableFuture<GlrAutomation>> cache;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public GlrAutomationCache(int maxSize) {
+        if (maxSize<1) {
+            throw new IllegalStateException("(maxSize<1)");
+        }
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<GlrAutomation>> eldest) {
+                if (size() > GlrAutomationCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public GlrAutomation get(String grammarText, String start) {
+        return get(grammarText, start, 0, GlrEnums.LrMode.SLR);
+    }
+
+    public GlrAutomation get(String grammarText, String start, int logLevel, GlrEnums.LrMode lrMode) {
+        return get(grammarText, start, new GlrBuildOptions(logLevel, lrMode, null));
+    }
+
+    /**
+     * pool and risk listener of options aren't parts of key, automation which was built in any pool is the same.
+     * Risk listener is called only when automation is built, not for automation from cache
+     */
+    public GlrAutomation get(String grammarText, String start, GlrBuildOptions options) {
+        Key key = new Key(grammarText, start, options.logLevel(), options.lrMode(), options.maxHeads());
+        CompletableFuture<GlrAutomation> future;
+        boolean build = false;
+        synchronized (cache) {
+            future = cache.get(key);
+            if (future==null) {
+                future = new CompletableFuture<>();
+                cache.put(key, future);
+                build = true;
+                misses++;
+            }
+            else {
+                hits++;
+            }
+        }
+        if (build) {
+            try {
+                future.complete(new GlrAutomation(grammarText, start, options));
+            }
+            catch (RuntimeException | Error e) {
+                synchronized (cache) {
+                    cache.remove(key, future);
+                }
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return future.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    public Stats stats() {
+        synchronized (cache) {
+            return new Stats(hits, misses, evictions, cache.size());
+        }
+    }
+
+    /**
+     * removes all automations, counters aren't reset
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
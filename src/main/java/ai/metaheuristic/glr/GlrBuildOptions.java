@@ -0,0 +1,70 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.exceptions.GlrRiskyGrammarException;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Options of building of parser tables, see {@link GlrParser#GlrParser(GlrGrammar, GlrBuildOptions)}
+ *
+ * @param logLevel 1 and above - parser traces parses with {@link GlrTraceListener}
+ * @param lrMode kind of LR table
+ * @param pool if not null, state graph is built in parallel in this pool, result is the same as without pool
+ * @param maxHeads grammar whose table can have more stack heads after token is risky, see {@link GlrConflictReport#isRisky(int)}.
+ *                 0 - grammar isn't checked
+ * @param riskListener receives report of risky grammar when table is built or loaded, if null risky grammar is rejected
+ *                     with {@link GlrRiskyGrammarException}
+ */
+public record GlrBuildOptions(
+        int logLevel, GlrEnums.LrMode lrMode, @Nullable ForkJoinPool pool, int maxHeads, @Nullable Consumer<GlrConflictReport> riskListener) {
+
+    public static final GlrBuildOptions DEFAULT = new GlrBuildOptions(0, GlrEnums.LrMode.SLR, null, 0, null);
+
+    public GlrBuildOptions {
+        if (maxHeads<0) {
+            throw new IllegalStateException("(maxHeads<0), maxHeads: " + maxHeads);
+        }
+    }
+
+    public GlrBuildOptions(int logLevel, GlrEnums.LrMode lrMode, @Nullable ForkJoinPool pool) {
+        this(logLevel, lrMode, pool, 0, null);
+    }
+
+    public GlrBuildOptions withLogLevel(int logLevel) {
+        return new GlrBuildOptions(logLevel, lrMode, pool, maxHeads, riskListener);
+    }
+
+    public GlrBuildOptions withLrMode(GlrEnums.LrMode lrMode) {
+        return new GlrBuildOptions(logLevel, lrMode, pool, maxHeads, riskListener);
+    }
+
+    public GlrBuildOptions withPool(@Nullable ForkJoinPool pool) {
+        return new GlrBuildOptions(logLevel, lrMode, pool, maxHeads, riskListener);
+    }
+
+    public GlrBuildOptions withRiskCheck(int maxHeads, @Nullable Consumer<GlrConflictReport> riskListener) {
+        return new GlrBuildOptions(logLevel, lrMode, pool, maxHeads, riskListener);
+    }
+
+    /**
+     * pass report of risky grammar to listener or reject grammar
+     */
+    void checkRisk(GlrConflictReport report) {
+        if (maxHeads==0 || !report.isRisky(maxHeads)) {
+            return;
+        }
+        if (riskListener==null) {
+            throw new GlrRiskyGrammarException(report, maxHeads);
+        }
+        riskListener.accept(report);
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Ahead-of-time generator of Java class with compiled grammar. The generated class holds arrays of {@link GlrTable}
+ * as static final fields and rules of {@link GlrGrammar}, so parser is created without {@link GlrLr} and without parsing of grammar text:
+ * <pre>
+ *     GlrParser parser = MyGrammar.parser(0);
+ *     GlrAutomation automation = new GlrAutomation(MyGrammar.parser(0));
+ * </pre>
+ *
+ * Arrays are stored as string constants and are decoded in static initializer, because array initializers
+ * of big tables don't fit into 64K limit of method size. Rules are created in methods of {@link #RULES_PER_METHOD} rules
+ * for the same reason.
+ * Lookup of cell stays in comb-packed arrays of {@link GlrTable} instead of switch by state, switch over hundreds of states
+ * produces methods which are bigger than the limit of JIT compiler for huge methods.
+ * Only tables and rules are generated. Predicates of terminals and checks of labels aren't generated as code,
+ * parser() compiles them from rules with {@link GlrTerminalClasses#compile(GlrGrammar)} and {@link GlrAutomation}
+ * compiles labels, including regexes, when it is created. Cost of this is linear in size of grammar, LR tables aren't built.
+ *
+ * Usage from command line: GlrCodeGenerator &lt;grammar file&gt; &lt;start symbol&gt; &lt;class name with package&gt; &lt;output dir&gt; [SLR|LALR|LR1]
+ */
+public class GlrCodeGenerator {
+
+    static final int RULES_PER_METHOD = 200;
+    // max length of string constant is 65535 bytes in UTF-8, all chars of encoded arrays are ASCII
+    static final int MAX_CHUNK = 60_000;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: GlrCodeGenerator <grammar file> <start symbol> <class name with package> <output dir> [SLR|LALR|LR1]");
+            return;
+        }
+        String grammarText = Files.readString(Path.of(args[0]), StandardCharsets.UTF_8);
+        GlrEnums.LrMode mode = args.length > 4 ? GlrEnums.LrMode.valueOf(args[4]) : GlrEnums.LrMode.SLR;
+        Path file = generate(GlrGrammarParser.parse(grammarText, args[1]), mode, args[2], Path.of(args[3]));
+        System.out.println("Generated " + file);
+    }
+
+    /**
+     * writes source file into outputDir according to package of class
+     *
+     * @return path of generated file
+     */
+    public static Path generate(GlrGrammar grammar, GlrEnums.LrMode mode, String fullClassName, Path outputDir) throws IOException {
+        GlrParser parser = new GlrParser(grammar, 0, mode);
+        int idx = fullClassName.lastIndexOf('.');
+        String packageName = idx==-1 ? null : fullClassName.substring(0, idx);
+        String className = fullClassName.substring(idx + 1);
+        Path dir = packageName==null ? outputDir : outputDir.resolve(packageName.replace('.', '/'));
+        Files.createDirectories(dir);
+        Path file = dir.resolve(className + ".java");
+        Files.writeString(file, generate(grammar, parser.table, mode, packageName, className), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * @param mode mode which table was built in, parser() is rebuilt in this mode by {@link GlrParser#addRules(List)}
+     */
+    public static String generate(GlrGrammar grammar, GlrTable table, GlrEnums.LrMode mode, @Nullable String packageName, String className) {
+        StringBuilder sb = new StringBuilder();
+        if (packageName!=null) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("""
+            import ai.metaheuristic.glr.GlrBuildOptions;
+            import ai.metaheuristic.glr.GlrCodeGenerator;
+            import ai.metaheuristic.glr.GlrEnums;
+            import ai.metaheuristic.glr.GlrGrammar;
+            import ai.metaheuristic.glr.GlrParser;
+            import ai.metaheuristic.glr.GlrTable;
+
+            import java.util.*;
+
+            /**
+             * Generated by ai.metaheuristic.glr.GlrCodeGenerator, don't edit
+             */
+            """);
+        sb.append("public final class ").append(className).append(" {\n\n");
+        sb.append("    private ").append(className).append("() {}\n\n");
+
+        sb.append("    private static final String[] SYMBOLS = GlrCodeGenerator.decodeStrings(").append(chunks(encodeStrings(table.symbols))).append(");\n");
+        appendInts(sb, "RULE_LEFT", table.ruleLeft);
+        appendInts(sb, "RULE_LENGTH", table.ruleLength);
+        appendInts(sb, "BASE", table.base);
+        appendInts(sb, "CHECK", table.check);
+        appendInts(sb, "SLOT_CELL", table.slotCell);
+        appendInts(sb, "ROW_CELL_START", table.rowCellStart);
+        appendInts(sb, "CELL_SYMBOL", table.cellSymbol);
+        appendInts(sb, "CELL_ACTION_START", table.cellActionStart);
+        int[] actionKind = new int[table.actionKind.length];
+        for (int i = 0; i < actionKind.length; i++) {
+            actionKind[i] = table.actionKind[i];
+        }
+        sb.append("    private static final byte[] ACTION_KIND = GlrCodeGenerator.decodeBytes(").append(chunks(encodeInts(actionKind))).append(");\n");
+        appendInts(sb, "ACTION_VALUE", table.actionValue);
+        sb.append("""
+
+                public static final GlrTable TABLE = new GlrTable(
+                        SYMBOLS, RULE_LEFT, RULE_LENGTH, BASE, CHECK, SLOT_CELL,
+                        ROW_CELL_START, CELL_SYMBOL, CELL_ACTION_START, ACTION_KIND, ACTION_VALUE);
+
+                public static final GlrGrammar GRAMMAR = new GlrGrammar(rules());
+
+                public static GlrParser parser(int logLevel) {
+            """);
+        sb.append("        return new GlrParser(GRAMMAR, TABLE, GlrBuildOptions.DEFAULT.withLogLevel(logLevel).withLrMode(GlrEnums.LrMode.")
+                .append(mode.name()).append("));\n");
+        sb.append("""
+                }
+
+                private static List<GlrGrammar.Rule> rules() {
+                    List<GlrGrammar.Rule> rules = new ArrayList<>();
+            """);
+        int methods = (grammar.rules.size() + RULES_PER_METHOD - 1) / RULES_PER_METHOD;
+        for (int m = 0; m < methods; m++) {
+            sb.append("        rules").append(m).append("(rules);\n");
+        }
+        sb.append("        return rules;\n    }\n");
+
+        for (int m = 0; m < methods; m++) {
+            sb.append("\n    private static void rules").append(m).append("(List<GlrGrammar.Rule> rules) {\n");
+            for (int i = m * RULES_PER_METHOD; i < Math.min(grammar.rules.size(), (m + 1) * RULES_PER_METHOD); i++) {
+                appendRule(sb, grammar.rules.get(i));
+            }
+            sb.append("    }\n");
+        }
+
+        sb.append("""
+
+                @SuppressWarnings("unchecked")
+                private static Map<String, List<Object>> labels(Object ... keyAndValues) {
+                    LinkedHashMap<String, List<Object>> map = new LinkedHashMap<>();
+                    for (int i = 0; i < keyAndValues.length; i += 2) {
+                        map.put((String) keyAndValues[i], (List<Object>) keyAndValues[i + 1]);
+                    }
+                    return map;
+                }
+            }
+            """);
+        return sb.toString();
+    }
+
+    private static void appendInts(StringBuilder sb, String name, int[] array) {
+        sb.append("    private static final int[] ").append(name).append(" = GlrCodeGenerator.decodeInts(").append(chunks(encodeInts(array))).append(");\n");
+    }
+
+    private static void appendRule(StringBuilder sb, GlrGrammar.Rule rule) {
+        sb.append("        rules.add(new GlrGrammar.Rule(").append(rule.index()).append(", ").append(quote(rule.leftSymbol())).append(", List.of(");
+        for (int i = 0; i < rule.rightSymbols().size(); i++) {
+            sb.append(i==0 ? "" : ", ").append(quote(rule.rightSymbols().get(i)));
+        }
+        sb.append("), ").append(rule.commit()).append(", ");
+        if (rule.params()==null) {
+            sb.append("null");
+        }
+        else {
+            sb.append("List.of(");
+            for (int i = 0; i < rule.params().size(); i++) {
+                sb.append(i==0 ? "" : ", ").append("labels(");
+                boolean first = true;
+                for (Map.Entry<String, List<Object>> entry : rule.params().get(i).entrySet()) {
+                    sb.append(first ? "" : ", ").append(quote(entry.getKey())).append(", List.of(");
+                    first = false;
+                    for (int j = 0; j < entry.getValue().size(); j++) {
+                        Object o = entry.getValue().get(j);
+                        sb.append(j==0 ? "" : ", ");
+                        if (o instanceof String s) {
+                            sb.append(quote(s));
+                        }
+                        else if (o instanceof Boolean b) {
+                            sb.append(b);
+                        }
+                        else {
+                            throw new IllegalStateException("(!(o instanceof String) && !(o instanceof Boolean)), o: " + o);
+                        }
+                    }
+                    sb.append(")");
+                }
+                sb.append(")");
+            }
+            sb.append(")");
+        }
+        sb.append(", ").append(doubleLiteral(rule.weight())).append("));\n");
+    }
+
+    private static String doubleLiteral(double d) {
+        if (Double.isNaN(d)) {
+            return "Double.NaN";
+        }
+        if (Double.isInfinite(d)) {
+            return d > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+        return Double.toString(d);
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String chunks(List<String> chunks) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < chunks.size(); i++) {
+            sb.append(i==0 ? "" : ",\n            ").append(quote(chunks.get(i)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * comma-separated decimal numbers which are split into chunks of at most {@link #MAX_CHUNK} chars
+     */
+    static List<String> encodeInts(int[] array) {
+        List<String> result = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int value : array) {
+            String s = Integer.toString(value);
+            if (sb.length() + s.length() + 1 > MAX_CHUNK) {
+                result.add(sb.toString());
+                sb.setLength(0);
+            }
+            if (!sb.isEmpty()) {
+                sb.append(',');
+            }
+            sb.append(s);
+        }
+        result.add(sb.toString());
+        return result;
+    }
+
+    // symbols are encoded as chars of string, so they are split by length only
+    private static List<String> encodeStrings(String[] array) {
+        List<String> result = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (String s : array) {
+            if (!sb.isEmpty() && sb.length() + s.length() > MAX_CHUNK / 6) {
+                result.add(sb.toString());
+                sb.setLength(0);
+            }
+            sb.append(s.length()).append(':').append(s);
+        }
+        result.add(sb.toString());
+        return result;
+    }
+
+    public static int[] decodeInts(String ... chunks) {
+        int count = 0;
+        for (String chunk : chunks) {
+            if (!chunk.isEmpty()) {
+                count++;
+                for (int i = 0; i < chunk.length(); i++) {
+                    if (chunk.charAt(i)==',') {
+                        count++;
+                    }
+                }
+            }
+        }
+        int[] result = new int[count];
+        int idx = 0;
+        for (String chunk : chunks) {
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            int value = 0;
+            boolean negative = false;
+            for (int i = 0; i <= chunk.length(); i++) {
+                char c = i < chunk.length() ? chunk.charAt(i) : ',';
+                if (c==',') {
+                    result[idx++] = negative ? -value : value;
+                    value = 0;
+                    negative = false;
+                }
+                else if (c=='-') {
+                    negative = true;
+                }
+                else {
+                    value = value * 10 + (c - '0');
+                }
+            }
+        }
+        return result;
+    }
+
+    public static byte[] decodeBytes(String ... chunks) {
+        int[] ints = decodeInts(chunks);
+        byte[] result = new byte[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            result[i] = (byte) ints[i];
+        }
+        return result;
+    }
+
+    public static String[] decodeStrings(String ... chunks) {
+        List<String> result = new ArrayList<>();
+        for (String chunk : chunks) {
+            int i = 0;
+            while (i < chunk.length()) {
+                int colon = chunk.indexOf(':', i);
+                int length = Integer.parseInt(chunk.substring(i, colon));
+                result.add(chunk.substring(colon + 1, colon + 1 + length));
+                i = colon + 1 + length;
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+}
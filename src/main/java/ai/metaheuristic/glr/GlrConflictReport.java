@@ -0,0 +1,136 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Analysis of action/goto table, see {@link GlrLr#generateActionGotoTable(GlrGrammar)}.
+ *
+ * Conflicts are counted per cell (state, terminal), column of END_OF_TOKEN_LIST isn't counted because it has reduce
+ * for every completed rule in all modes. Fan-out of state is the max number of shift and reduce actions in one cell
+ * including END_OF_TOKEN_LIST, i.e. how many stacks one stack can be split into at one step.
+ *
+ * Stacks with the same state after shift of token are merged, so the number of stack heads after token
+ * is bounded by the number of distinct states which this token is shifted to. The max of this bound over terminals is
+ * {@link #maxHeads}, grammar with {@link #maxHeads} more than {@link #RISKY_HEADS} is reported as risky
+ */
+public class GlrConflictReport {
+
+    public static final int RISKY_HEADS = 100;
+
+    /**
+     * cell with more than one shift/reduce action
+     */
+    public record CellConflict(int state, String symbol, int shifts, int reduces) {
+        public int shiftReduce() {
+            return shifts * reduces;
+        }
+
+        public int reduceReduce() {
+            return reduces * (reduces - 1) / 2;
+        }
+    }
+
+    public final List<CellConflict> conflicts;
+    // by index of state
+    public final int[] fanOut;
+    public final int maxFanOut;
+    public final int maxHeads;
+    // terminal with max number of target states of shift, null if there isn't any shift
+    @Nullable
+    public final String maxHeadsSymbol;
+
+    private GlrConflictReport(List<CellConflict> conflicts, int[] fanOut, int maxFanOut, int maxHeads, @Nullable String maxHeadsSymbol) {
+        this.conflicts = conflicts;
+        this.fanOut = fanOut;
+        this.maxFanOut = maxFanOut;
+        this.maxHeads = maxHeads;
+        this.maxHeadsSymbol = maxHeadsSymbol;
+    }
+
+    public static GlrConflictReport analyze(List<LinkedHashMap<String, List<GlrLr.Action>>> actionGotoTable) {
+        List<CellConflict> conflicts = new ArrayList<>();
+        int[] fanOut = new int[actionGotoTable.size()];
+        int maxFanOut = 0;
+        LinkedHashMap<String, Set<Integer>> shiftTargets = new LinkedHashMap<>();
+        for (int state = 0; state < actionGotoTable.size(); state++) {
+            for (Map.Entry<String, List<GlrLr.Action>> entry : actionGotoTable.get(state).entrySet()) {
+                int shifts = 0;
+                int reduces = 0;
+                for (GlrLr.Action action : entry.getValue()) {
+                    if (GlrEnums.ActionType.SHIFT.type.equals(action.type())) {
+                        shifts++;
+                        shiftTargets.computeIfAbsent(entry.getKey(), o->new HashSet<>()).add(action.state());
+                    }
+                    else if (GlrEnums.ActionType.REDUCE.type.equals(action.type())) {
+                        reduces++;
+                    }
+                }
+                fanOut[state] = Math.max(fanOut[state], shifts + reduces);
+                if (!GlrConsts.END_OF_TOKEN_LIST.equals(entry.getKey()) && shifts + reduces > 1 && reduces > 0) {
+                    conflicts.add(new CellConflict(state, entry.getKey(), shifts, reduces));
+                }
+            }
+            maxFanOut = Math.max(maxFanOut, fanOut[state]);
+        }
+        int maxHeads = 0;
+        String maxHeadsSymbol = null;
+        for (Map.Entry<String, Set<Integer>> entry : shiftTargets.entrySet()) {
+            if (entry.getValue().size() > maxHeads) {
+                maxHeads = entry.getValue().size();
+                maxHeadsSymbol = entry.getKey();
+            }
+        }
+        return new GlrConflictReport(conflicts, fanOut, maxFanOut, maxHeads, maxHeadsSymbol);
+    }
+
+    /**
+     * number of cells with shift/reduce and reduce/reduce conflicts
+     */
+    public GlrLr.Conflicts totals() {
+        int shiftReduce = 0;
+        int reduceReduce = 0;
+        for (CellConflict conflict : conflicts) {
+            if (conflict.shiftReduce() > 0) {
+                shiftReduce++;
+            }
+            if (conflict.reduceReduce() > 0) {
+                reduceReduce++;
+            }
+        }
+        return new GlrLr.Conflicts(shiftReduce, reduceReduce);
+    }
+
+    public boolean isRisky() {
+        return isRisky(RISKY_HEADS);
+    }
+
+    public boolean isRisky(int maxAllowedHeads) {
+        return maxHeads > maxAllowedHeads;
+    }
+
+    /**
+     * states sorted by fan-out in descending order, the first limit of them
+     */
+    public List<Integer> worstStates(int limit) {
+        return IntStream.range(0, fanOut.length).boxed()
+                .sorted(Comparator.comparingInt((Integer o)->fanOut[o]).reversed().thenComparingInt(o->o))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public String toString() {
+        GlrLr.Conflicts totals = totals();
+        return "shift/reduce: " + totals.shiftReduce() + ", reduce/reduce: " + totals.reduceReduce() +
+               ", max fan-out: " + maxFanOut + ", max heads: " + maxHeads + (maxHeadsSymbol==null ? "" : " on '" + maxHeadsSymbol + "'");
+    }
+}
@@ -55,4 +55,88 @@ public class GlrEnums {
             return null;
         }
     }
+
+    public enum ActionType {
+        SHIFT("S"), REDUCE("R"), ACCEPT("A"), GOTO("G");
+
+        public final String type;
+        public final byte code;
+
+        ActionType(String type) {
+            this.type = type;
+            this.code = (byte) ordinal();
+        }
+
+        public static ActionType fromCode(byte code) {
+            return values()[code];
+        }
+
+        public static ActionType fromType(String type) {
+            for (ActionType t : values()) {
+                if (t.type.equals(type)) {
+                    return t;
+                }
+            }
+            throw new IllegalStateException("(t==null), type: " + type);
+        }
+    }
+
+    /**
+     * How lookaheads of reduce actions are computed.
+     * SLR uses followers of left symbol of rule,
+     * LALR uses lookaheads of LR(0) states computed with DeRemer-Pennello relations,
+     * LR1 builds canonical LR(1) states, the number of states is bigger than for SLR and LALR.
+     * In all modes reduce by END_OF_TOKEN_LIST is added for every completed rule
+     */
+    public enum LrMode {
+        SLR, LALR, LR1
+    }
+
+    /**
+     * How paths of reduction are found in graph-structured stack.
+     * PATHS enumerates all paths with length of rule, the number of paths can grow as n^k for rule with k symbols.
+     * BINARISED goes back one symbol at a time and merges paths which reach the same stack node into intermediate node
+     * of forest (BRNGLR), the cost doesn't depend on length of rule. Trees are the same in both modes
+     */
+    public enum ReduceMode {
+        PATHS, BINARISED
+    }
+
+    /**
+     * Which accepted spans are returned in substring mode.
+     * ALL returns every accepted span, nested and overlapping spans included.
+     * LEFTMOST_LONGEST returns spans which don't overlap: the span with the leftmost start, the longest of them,
+     * then the same for spans which start after its end
+     */
+    public enum MatchPolicy {
+        ALL, LEFTMOST_LONGEST
+    }
+
+    /**
+     * Counters of {@link GlrParseMetrics}.
+     * REJECTED_REDUCTIONS is the number of nodes of trees which were rejected by validator,
+     * INVALID_EDGES is the number of stack edges which were dropped because their nonterminal doesn't have tree accepted by validator,
+     * PEAK_LIVE_HEADS is max number of stack heads after token, PARSE_NANOS is time of building of forest,
+     * TREE_NANOS is time of building of trees from forest, BUDGET_EXCEEDED is the number of parses which were stopped by
+     * {@link GlrParseOptions.Budget} with PARTIAL policy
+     */
+    public enum ParseMetric {
+        TOKENS, SHIFTS, REDUCTIONS, REJECTED_REDUCTIONS, INVALID_EDGES, MERGES, PEAK_LIVE_HEADS, ACCEPTED_TREES, PARSE_NANOS, TREE_NANOS, BUDGET_EXCEEDED
+    }
+
+    /**
+     * limits of {@link GlrParseOptions.Budget}
+     */
+    public enum ParseLimit {
+        LIVE_HEADS, STACK_NODES, TREES, DEADLINE, INTERRUPTED
+    }
+
+    /**
+     * What parser does when limit of budget is reached.
+     * FAIL throws {@link ai.metaheuristic.glr.exceptions.GlrParseBudgetException}, PARTIAL stops parsing and returns
+     * trees of spans which were accepted before the limit was reached
+     */
+    public enum BudgetPolicy {
+        FAIL, PARTIAL
+    }
 }
@@ -0,0 +1,342 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import java.util.*;
+
+/**
+ * FIRST and FOLLOW sets over int ids of symbols, see {@link GlrGrammar#symbolId(String)}.
+ *
+ * Both are computed with worklist: when set of symbol is changed, only symbols which depend on it are processed again.
+ * FOLLOW of start rule '@' is END_OF_TOKEN_LIST.
+ *
+ * {@link #starters()} and {@link #followers()} are views with terminal names in the order of depth-first traversal
+ * of rules, this order is used for keys of rows in action/goto table.
+ * The symbols which can't be reached by this traversal, i.e. the second occurrence of symbol in rule
+ * or recursive chains of rules, go after in the order of ids
+ */
+public class GlrFirstFollow {
+
+    public final GlrGrammar grammar;
+
+    private final boolean[] nonterminals;
+    private final boolean[] nullable;
+    private final BitSet[] first;
+    private final BitSet[] follow;
+
+    // for each symbol, rules where symbol is used in right part and index of its first occurrence
+    private final List<List<int[]>> occurrences;
+
+    private final LinkedHashMap<String, LinkedHashSet<String>> starters = new LinkedHashMap<>();
+    private final LinkedHashMap<String, LinkedHashSet<String>> followers = new LinkedHashMap<>();
+
+    public GlrFirstFollow(GlrGrammar grammar) {
+        this.grammar = grammar;
+        int symbolCount = grammar.symbolCount();
+        int ruleCount = grammar.rules.size();
+        this.nonterminals = new boolean[symbolCount];
+        for (int r = 0; r < ruleCount; r++) {
+            nonterminals[grammar.ruleLeftId(r)] = true;
+        }
+        this.occurrences = new ArrayList<>(symbolCount);
+        for (int i = 0; i < symbolCount; i++) {
+            occurrences.add(new ArrayList<>());
+        }
+        for (int r = 0; r < ruleCount; r++) {
+            int[] rights = grammar.ruleRightIds(r);
+            BitSet seen = new BitSet(symbolCount);
+            for (int i = 0; i < rights.length; i++) {
+                if (!seen.get(rights[i])) {
+                    seen.set(rights[i]);
+                    occurrences.get(rights[i]).add(new int[]{r, i});
+                }
+            }
+        }
+
+        this.nullable = new boolean[symbolCount];
+        this.first = new BitSet[symbolCount];
+        this.follow = new BitSet[symbolCount];
+        computeFirst();
+        computeFollow();
+
+        HashMap<Integer, LinkedHashSet<String>> startersMemo = new HashMap<>();
+        for (int s = 0; s < symbolCount; s++) {
+            if (nonterminals[s]) {
+                starters.put(grammar.symbolName(s), orderedStarters(s, startersMemo, new BitSet()));
+            }
+        }
+        starters.forEach((k, v)->complete(v, first[grammar.symbolId(k)]));
+
+        HashMap<Integer, LinkedHashSet<String>> followersMemo = new HashMap<>();
+        for (int s = 0; s < symbolCount; s++) {
+            if (nonterminals[s]) {
+                followers.put(grammar.symbolName(s), orderedFollowers(s, followersMemo, new BitSet()));
+            }
+        }
+        followers.forEach((k, v)->complete(v, follow[grammar.symbolId(k)]));
+    }
+
+    private void computeFirst() {
+        int symbolCount = grammar.symbolCount();
+        // rules which must be processed again when FIRST or nullable of symbol is changed
+        List<List<Integer>> dependents = new ArrayList<>(symbolCount);
+        for (int s = 0; s < symbolCount; s++) {
+            first[s] = new BitSet(symbolCount);
+            if (!nonterminals[s]) {
+                first[s].set(s);
+            }
+            dependents.add(new ArrayList<>());
+        }
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        boolean[] queued = new boolean[grammar.rules.size()];
+        for (int r = 0; r < grammar.rules.size(); r++) {
+            for (int symbol : grammar.ruleRightIds(r)) {
+                if (nonterminals[symbol]) {
+                    dependents.get(symbol).add(r);
+                }
+            }
+            queue.add(r);
+            queued[r] = true;
+        }
+        while (!queue.isEmpty()) {
+            int r = queue.poll();
+            queued[r] = false;
+            int left = grammar.ruleLeftId(r);
+            BitSet set = first[left];
+            int before = set.cardinality();
+            boolean allNullable = true;
+            for (int symbol : grammar.ruleRightIds(r)) {
+                set.or(first[symbol]);
+                if (!nullable[symbol]) {
+                    allNullable = false;
+                    break;
+                }
+            }
+            boolean changed = before!=set.cardinality();
+            if (allNullable && !nullable[left]) {
+                nullable[left] = true;
+                changed = true;
+            }
+            if (changed) {
+                for (Integer dependent : dependents.get(left)) {
+                    if (!queued[dependent]) {
+                        queued[dependent] = true;
+                        queue.add(dependent);
+                    }
+                }
+            }
+        }
+    }
+
+    private void computeFollow() {
+        int symbolCount = grammar.symbolCount();
+        // FOLLOW(left) is included into FOLLOW(symbol) for symbols at the nullable end of rule
+        List<BitSet> includedInto = new ArrayList<>(symbolCount);
+        for (int s = 0; s < symbolCount; s++) {
+            follow[s] = new BitSet(symbolCount);
+            includedInto.add(new BitSet(symbolCount));
+        }
+        int startRuleLeft = grammar.ruleLeftId(0);
+        follow[startRuleLeft].set(grammar.symbolId(GlrConsts.END_OF_TOKEN_LIST));
+
+        for (int r = 0; r < grammar.rules.size(); r++) {
+            int left = grammar.ruleLeftId(r);
+            int[] rights = grammar.ruleRightIds(r);
+            BitSet firstOfRest = new BitSet(symbolCount);
+            boolean restNullable = true;
+            for (int i = rights.length - 1; i >= 0; i--) {
+                int symbol = rights[i];
+                if (nonterminals[symbol]) {
+                    follow[symbol].or(firstOfRest);
+                    if (restNullable && symbol!=left) {
+                        includedInto.get(left).set(symbol);
+                    }
+                }
+                if (nullable[symbol]) {
+                    firstOfRest.or(first[symbol]);
+                }
+                else {
+                    firstOfRest = (BitSet) first[symbol].clone();
+                    restNullable = false;
+                }
+            }
+        }
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        boolean[] queued = new boolean[symbolCount];
+        for (int s = 0; s < symbolCount; s++) {
+            if (nonterminals[s]) {
+                queue.add(s);
+                queued[s] = true;
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            queued[s] = false;
+            BitSet targets = includedInto.get(s);
+            for (int t = targets.nextSetBit(0); t >= 0; t = targets.nextSetBit(t + 1)) {
+                int before = follow[t].cardinality();
+                follow[t].or(follow[s]);
+                if (before!=follow[t].cardinality() && !queued[t]) {
+                    queued[t] = true;
+                    queue.add(t);
+                }
+            }
+        }
+    }
+
+    // frame of depth-first traversal, chains of rules can be deeper than stack of thread
+    private static final class Frame {
+        final int symbol;
+        final LinkedHashSet<String> result = new LinkedHashSet<>();
+        int position = 0;
+
+        Frame(int symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    private LinkedHashSet<String> orderedStarters(int symbol, HashMap<Integer, LinkedHashSet<String>> memo, BitSet inProgress) {
+        LinkedHashSet<String> memoized = memo.get(symbol);
+        if (memoized!=null) {
+            return memoized;
+        }
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(symbol));
+        inProgress.set(symbol);
+        while (true) {
+            Frame frame = stack.peek();
+            List<Integer> rules = grammar.rulesForSymbol.get(grammar.symbolName(frame.symbol));
+            if (frame.position==rules.size()) {
+                stack.pop();
+                inProgress.clear(frame.symbol);
+                memo.put(frame.symbol, frame.result);
+                if (stack.isEmpty()) {
+                    return frame.result;
+                }
+                stack.peek().result.addAll(frame.result);
+                continue;
+            }
+            int[] rights = grammar.ruleRightIds(rules.get(frame.position++));
+            if (rights.length==0) {
+                continue;
+            }
+            int rightSymbol = rights[0];
+            if (nonterminals[rightSymbol]) {
+                if (!inProgress.get(rightSymbol)) {
+                    memoized = memo.get(rightSymbol);
+                    if (memoized!=null) {
+                        frame.result.addAll(memoized);
+                    }
+                    else {
+                        stack.push(new Frame(rightSymbol));
+                        inProgress.set(rightSymbol);
+                    }
+                }
+            }
+            else {
+                frame.result.add(grammar.symbolName(rightSymbol));
+            }
+        }
+    }
+
+    private LinkedHashSet<String> orderedFollowers(int symbol, HashMap<Integer, LinkedHashSet<String>> memo, BitSet inProgress) {
+        LinkedHashSet<String> memoized = memo.get(symbol);
+        if (memoized!=null) {
+            return memoized;
+        }
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(symbol));
+        inProgress.set(symbol);
+        while (true) {
+            Frame frame = stack.peek();
+            List<int[]> symbolOccurrences = occurrences.get(frame.symbol);
+            if (frame.position==symbolOccurrences.size()) {
+                stack.pop();
+                inProgress.clear(frame.symbol);
+                memo.put(frame.symbol, frame.result);
+                if (stack.isEmpty()) {
+                    return frame.result;
+                }
+                stack.peek().result.addAll(frame.result);
+                continue;
+            }
+            int[] occurrence = symbolOccurrences.get(frame.position++);
+            int ruleIndex = occurrence[0];
+            int index = occurrence[1];
+            int[] rights = grammar.ruleRightIds(ruleIndex);
+            if (index + 1 == rights.length) {
+                int left = grammar.ruleLeftId(ruleIndex);
+                if (left!=frame.symbol && !inProgress.get(left)) {
+                    memoized = memo.get(left);
+                    if (memoized!=null) {
+                        frame.result.addAll(memoized);
+                    }
+                    else {
+                        stack.push(new Frame(left));
+                        inProgress.set(left);
+                    }
+                }
+            }
+            else {
+                int next = rights[index + 1];
+                if (nonterminals[next]) {
+                    frame.result.addAll(starters.get(grammar.symbolName(next)));
+                }
+                else {
+                    frame.result.add(grammar.symbolName(next));
+                }
+            }
+        }
+    }
+
+    private void complete(LinkedHashSet<String> ordered, BitSet set) {
+        for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+            String name = grammar.symbolName(s);
+            if (!GlrConsts.END_OF_TOKEN_LIST.equals(name)) {
+                ordered.add(name);
+            }
+        }
+    }
+
+    public boolean isNonterminal(int symbolId) {
+        return nonterminals[symbolId];
+    }
+
+    public boolean nullable(int symbolId) {
+        return nullable[symbolId];
+    }
+
+    /**
+     * FIRST set of symbol as ids of terminals, for terminal it's the terminal itself. The returned set is shared and must not be modified
+     */
+    public BitSet first(int symbolId) {
+        return first[symbolId];
+    }
+
+    /**
+     * FOLLOW set of nonterminal as ids of terminals. The returned set is shared and must not be modified
+     */
+    public BitSet follow(int symbolId) {
+        return follow[symbolId];
+    }
+
+    /**
+     * terminals which can start nonterminal, without END_OF_TOKEN_LIST
+     */
+    public LinkedHashMap<String, LinkedHashSet<String>> starters() {
+        return starters;
+    }
+
+    /**
+     * terminals which can follow nonterminal, without END_OF_TOKEN_LIST
+     */
+    public LinkedHashMap<String, LinkedHashSet<String>> followers() {
+        return followers;
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import javax.annotation.Nullable;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static ai.metaheuristic.glr.GlrStack.*;
+
+/**
+ * Result of parsing as shared packed parse forest. Symbol nodes are {@link ForestNode} with unique (symbol, start, end),
+ * packed nodes are {@link Alternative}, subtrees which are the same in different derivations are stored only once.
+ *
+ * Trees are enumerated lazily by {@link #iterator()}, only the current tree and iterators over its children are kept in memory.
+ * {@link #toList()} builds all trees at once, equal subtrees are shared between them.
+ * Each nonterminal node of enumerated tree is checked with validator, trees with failed nodes are skipped
+ */
+public class GlrForest implements Iterable<SyntaxTree> {
+
+    public final List<ForestNode> roots;
+    @Nullable
+    private final Function<SyntaxTree, Boolean> validator;
+    // logarithm of weight by index of rule, null if all rules have weight 1.0
+    @Nullable
+    private final double[] ruleScores;
+    // limit of budget which stopped parsing, forest has only spans which were accepted before it. null if parsing wasn't stopped
+    @Nullable
+    public final GlrEnums.ParseLimit exceeded;
+
+    public GlrForest(List<ForestNode> roots, @Nullable Function<SyntaxTree, Boolean> validator) {
+        this(roots, validator, null);
+    }
+
+    public GlrForest(List<ForestNode> roots, @Nullable Function<SyntaxTree, Boolean> validator, @Nullable double[] ruleScores) {
+        this(roots, validator, ruleScores, null);
+    }
+
+    public GlrForest(
+            List<ForestNode> roots, @Nullable Function<SyntaxTree, Boolean> validator, @Nullable double[] ruleScores,
+            @Nullable GlrEnums.ParseLimit exceeded) {
+        this.roots = roots;
+        this.validator = validator;
+        this.ruleScores = ruleScores;
+        this.exceeded = exceeded;
+    }
+
+    public boolean isEmpty() {
+        return roots.isEmpty();
+    }
+
+    @Override
+    public Iterator<SyntaxTree> iterator() {
+        return iterator(null);
+    }
+
+    /**
+     * trees which are enumerated lazily and are built by factory, so equal subtrees of enumerated trees are shared
+     * and validator is applied once to each of them. Factory keeps all trees which were built
+     */
+    public Iterator<SyntaxTree> iterator(@Nullable SyntaxTreeFactory factory) {
+        return new Iterator<>() {
+            private int rootIndex = 0;
+            private Iterator<SyntaxTree> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && rootIndex < roots.size()) {
+                    current = trees(roots.get(rootIndex++), validator, factory, null);
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public SyntaxTree next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    public Stream<SyntaxTree> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * all trees, the same as enumerated by {@link #iterator()} if there isn't any cyclic derivation, i.e. A = B, B = A
+     */
+    public List<SyntaxTree> toList() {
+        List<SyntaxTree> result = new ArrayList<>();
+        IdentityHashMap<ForestNode, List<SyntaxTree>> memo = new IdentityHashMap<>();
+        for (ForestNode root : roots) {
+            result.addAll(syntaxTrees(root, validator, memo));
+        }
+        return result;
+    }
+
+    /**
+     * the best tree of each root, trees of roots without valid tree are skipped. Score of tree is the sum of logarithms of weights
+     * of its rules, the best subtree is chosen once for each node of forest, so other trees aren't built.
+     * If the best derivation of node isn't valid, the next one by score is checked. With equal scores the first found derivation wins
+     */
+    public List<SyntaxTree> bestTrees() {
+        List<SyntaxTree> result = new ArrayList<>();
+        IdentityHashMap<ForestNode, Best> memo = new IdentityHashMap<>();
+        for (ForestNode root : roots) {
+            Best best = best(root, memo);
+            if (best!=NONE) {
+                result.add(best.trees.get(0));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * score and trees of the best derivation, the only tree for symbol node or sequence of trees for intermediate node
+     */
+    private record Best(double score, List<SyntaxTree> trees) {}
+
+    private static final Best NONE = new Best(Double.NEGATIVE_INFINITY, List.of());
+
+    private Best best(ForestNode node, IdentityHashMap<ForestNode, Best> memo) {
+        Best best = memo.get(node);
+        if (best!=null) {
+            return best;
+        }
+        if (node.token!=null) {
+            best = new Best(0, List.of(new SyntaxTree(node.token.symbol, node.token, null, List.of(), node.start, node.end)));
+            memo.put(node, best);
+            return best;
+        }
+        // cyclic derivations don't produce trees
+        memo.put(node, NONE);
+        List<Alternative> alternatives = new ArrayList<>(node.alternatives.size());
+        List<Best> sequences = new ArrayList<>(node.alternatives.size());
+        for (Alternative alternative : node.alternatives) {
+            Best sequence = bestSequence(alternative, memo);
+            if (sequence!=NONE) {
+                alternatives.add(alternative);
+                sequences.add(node.intermediate || ruleScores==null ? sequence : new Best(sequence.score + ruleScores[alternative.ruleIndex()], sequence.trees));
+            }
+        }
+        best = NONE;
+        if (node.intermediate) {
+            for (Best sequence : sequences) {
+                if (sequence.score > best.score || best==NONE) {
+                    best = sequence;
+                }
+            }
+        }
+        else {
+            // stable order, so the first found of derivations with equal scores is checked first
+            Integer[] order = new Integer[sequences.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble((Integer i)->sequences.get(i).score).reversed());
+            for (int i : order) {
+                SyntaxTree syntaxTree = new SyntaxTree(node.symbol, null, alternatives.get(i).ruleIndex(), sequences.get(i).trees, node.start, node.end);
+                if (validator==null || validator.apply(syntaxTree)) {
+                    best = new Best(sequences.get(i).score, List.of(syntaxTree));
+                    break;
+                }
+            }
+        }
+        memo.put(node, best);
+        return best;
+    }
+
+    // the best trees of children, sequences of intermediate children are inlined
+    private Best bestSequence(Alternative alternative, IdentityHashMap<ForestNode, Best> memo) {
+        double score = 0;
+        List<SyntaxTree> trees = new ArrayList<>();
+        for (ForestNode child : alternative.children()) {
+            Best best = best(child, memo);
+            if (best==NONE) {
+                return NONE;
+            }
+            score += best.score;
+            trees.addAll(best.trees);
+        }
+        return new Best(score, List.copyOf(trees));
+    }
+
+    /**
+     * number of distinct nodes of forest, leaf nodes included
+     */
+    public int nodeCount() {
+        Set<ForestNode> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<ForestNode> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty()) {
+            ForestNode node = queue.poll();
+            if (!visited.add(node)) {
+                continue;
+            }
+            for (Alternative alternative : node.alternatives) {
+                queue.addAll(alternative.children());
+            }
+        }
+        return visited.size();
+    }
+
+    /**
+     * number of trees in forest without validation, trees aren't built
+     */
+    public BigInteger treeCount() {
+        IdentityHashMap<ForestNode, BigInteger> memo = new IdentityHashMap<>();
+        BigInteger count = BigInteger.ZERO;
+        for (ForestNode root : roots) {
+            count = count.add(treeCount(root, memo));
+        }
+        return count;
+    }
+
+    private static BigInteger treeCount(ForestNode node, IdentityHashMap<ForestNode, BigInteger> memo) {
+        BigInteger count = memo.get(node);
+        if (count!=null) {
+            return count;
+        }
+        if (node.isLeaf()) {
+            return BigInteger.ONE;
+        }
+        // cyclic derivations don't produce trees, the same as in syntaxTrees()
+        memo.put(node, BigInteger.ZERO);
+        count = BigInteger.ZERO;
+        for (Alternative alternative : node.alternatives) {
+            BigInteger product = BigInteger.ONE;
+            for (ForestNode child : alternative.children()) {
+                product = product.multiply(treeCount(child, memo));
+            }
+            count = count.add(product);
+        }
+        memo.put(node, count);
+        return count;
+    }
+
+    // nodes from root to the current node, node which is already on path is a cycle
+    private record Path(ForestNode node, @Nullable Path parent) {
+        boolean contains(ForestNode n) {
+            for (Path p = this; p!=null; p = p.parent) {
+                if (p.node==n) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * true if node has at least one tree which is accepted by validator, trees are enumerated until the first valid one
+     */
+    static boolean hasTree(ForestNode node, @Nullable Function<SyntaxTree, Boolean> validator) {
+        return firstTree(node, validator)!=null;
+    }
+
+    /**
+     * the first tree of node which is accepted by validator, null if node doesn't have such tree
+     */
+    @Nullable
+    static SyntaxTree firstTree(ForestNode node, @Nullable Function<SyntaxTree, Boolean> validator) {
+        Iterator<SyntaxTree> trees = trees(node, validator, null, null);
+        return trees.hasNext() ? trees.next() : null;
+    }
+
+    private static Iterator<SyntaxTree> trees(
+            ForestNode node, @Nullable Function<SyntaxTree, Boolean> validator, @Nullable SyntaxTreeFactory factory, @Nullable Path path) {
+        if (node.token!=null) {
+            return List.of(factory!=null
+                    ? factory.leaf(node.token, node.start, node.end)
+                    : new SyntaxTree(node.token.symbol, node.token, null, List.of(), node.start, node.end)).iterator();
+        }
+        if (path!=null && path.contains(node)) {
+            return Collections.emptyIterator();
+        }
+        // node was already checked by session with the same validator
+        if (validator!=null && Boolean.FALSE.equals(node.valid)) {
+            return Collections.emptyIterator();
+        }
+        return new NodeTreesIterator(node, validator, factory, new Path(node, path));
+    }
+
+    /**
+     * trees of child as sequences of one tree, or sequences of trees which are derived by intermediate child
+     */
+    private static Iterator<List<SyntaxTree>> childSequences(
+            ForestNode child, @Nullable Function<SyntaxTree, Boolean> validator, @Nullable SyntaxTreeFactory factory, Path path) {
+        if (child.intermediate) {
+            return new SequencesIterator(child, validator, factory, path);
+        }
+        Iterator<SyntaxTree> trees = trees(child, validator, factory, path);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return trees.hasNext();
+            }
+
+            @Override
+            public List<SyntaxTree> next() {
+                return List.of(trees.next());
+            }
+        };
+    }
+
+    private static final class NodeTreesIterator implements Iterator<SyntaxTree> {
+        private final ForestNode node;
+        @Nullable
+        private final Function<SyntaxTree, Boolean> validator;
+        @Nullable
+        private final SyntaxTreeFactory factory;
+        private final SequencesIterator sequences;
+        @Nullable
+        private SyntaxTree next = null;
+
+        NodeTreesIterator(ForestNode node, @Nullable Function<SyntaxTree, Boolean> validator, @Nullable SyntaxTreeFactory factory, Path path) {
+            this.node = node;
+            this.validator = validator;
+            this.factory = factory;
+            this.sequences = new SequencesIterator(node, validator, factory, path);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next==null) {
+                if (!sequences.hasNext()) {
+                    return false;
+                }
+                List<SyntaxTree> children = sequences.next();
+                SyntaxTree syntaxTree = new SyntaxTree(node.symbol, null, sequences.alternative().ruleIndex(), children, node.start, node.end);
+                // tree which was interned before is already valid
+                SyntaxTree known = factory!=null ? factory.get(syntaxTree) : null;
+                if (known!=null) {
+                    next = known;
+                }
+                else if (validator==null || validator.apply(syntaxTree)) {
+                    next = factory!=null ? factory.intern(syntaxTree) : syntaxTree;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public SyntaxTree next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SyntaxTree result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    /**
+     * sequences of children's trees of all alternatives of node, sequences of one alternative are the cartesian product
+     * of trees of children. Iterators over children are created again when the previous child moves to the next tree
+     */
+    private static final class SequencesIterator implements Iterator<List<SyntaxTree>> {
+        @Nullable
+        private final Function<SyntaxTree, Boolean> validator;
+        @Nullable
+        private final SyntaxTreeFactory factory;
+        private final Path path;
+        private final Iterator<Alternative> alternatives;
+
+        @Nullable
+        private Alternative alternative = null;
+        private List<Iterator<List<SyntaxTree>>> iterators = List.of();
+        private List<List<SyntaxTree>> current = List.of();
+        private boolean hasCurrent = false;
+        private boolean ready = false;
+
+        SequencesIterator(ForestNode node, @Nullable Function<SyntaxTree, Boolean> validator, @Nullable SyntaxTreeFactory factory, Path path) {
+            this.validator = validator;
+            this.factory = factory;
+            this.path = path;
+            this.alternatives = node.alternatives.iterator();
+        }
+
+        // alternative of the last returned sequence
+        Alternative alternative() {
+            return Objects.requireNonNull(alternative);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!ready) {
+                hasCurrent = advance();
+                ready = true;
+            }
+            return hasCurrent;
+        }
+
+        @Override
+        public List<SyntaxTree> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            List<SyntaxTree> result = new ArrayList<>();
+            for (List<SyntaxTree> part : current) {
+                result.addAll(part);
+            }
+            return List.copyOf(result);
+        }
+
+        // move to the next combination of children's trees
+        private boolean advance() {
+            if (hasCurrent) {
+                int i = iterators.size() - 1;
+                while (i >= 0 && !iterators.get(i).hasNext()) {
+                    i--;
+                }
+                if (i >= 0) {
+                    current.set(i, iterators.get(i).next());
+                    if (fill(i + 1)) {
+                        return true;
+                    }
+                }
+            }
+            while (alternatives.hasNext()) {
+                alternative = alternatives.next();
+                int size = alternative.children().size();
+                iterators = new ArrayList<>(Collections.nCopies(size, null));
+                current = new ArrayList<>(Collections.nCopies(size, null));
+                if (fill(0)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // start iterators of children from index, false if any child doesn't have trees
+        private boolean fill(int from) {
+            for (int i = from; i < iterators.size(); i++) {
+                iterators.set(i, childSequences(alternative().children().get(i), validator, factory, path));
+                if (!iterators.get(i).hasNext()) {
+                    return false;
+                }
+                current.set(i, iterators.get(i).next());
+            }
+            return true;
+        }
+    }
+}
@@ -7,6 +7,8 @@
 
 package ai.metaheuristic.glr;
 
+import ai.metaheuristic.glr.exceptions.GlrGrammarException;
+
 import javax.annotation.Nullable;
 
 import java.util.*;
@@ -22,17 +24,30 @@ public class GlrGrammar {
     public record Rule(int index, String leftSymbol, List<String> rightSymbols,
                        boolean commit, @Nullable List<Map<String, List<Object>>> params, double weight){}
 
-    public final List<Rule> rules = new ArrayList<>();
+    // rules can't be changed, grammar is shared by parsers in many threads
+    public final List<Rule> rules;
     public final LinkedHashMap<String, List<Integer>> rulesForSymbol;
     private final LinkedHashSet<String> symbols;
     public final LinkedHashSet<String> nonterminals;
     public final LinkedHashSet<String> terminals;
 
+    // symbols interned to int ids in order of their first appearance in rules, then '$'
+    private final LinkedHashMap<String, Integer> symbolIds = new LinkedHashMap<>();
+    private final String[] symbolNames;
+    private final int[] ruleLeftIds;
+    private final int[][] ruleRightIds;
+
     public GlrGrammar(Rule ... rules) {
         this(Arrays.stream(rules).toList());
     }
     public GlrGrammar(List<Rule> rules) {
-        this.rules.addAll(rules);
+        this.rules = List.copyOf(rules);
+        for (Rule rule : this.rules) {
+            // logarithm of weight is score of rule, see GlrParseOptions
+            if (!(rule.weight > 0) || Double.isInfinite(rule.weight)) {
+                throw new GlrGrammarException("weight of rule must be positive and finite, rule #" + rule.index + ", " + rule.leftSymbol + ", weight: " + rule.weight);
+            }
+        }
 
         this.rulesForSymbol = new LinkedHashMap<>();
         for (Rule rule : this.rules) {
@@ -42,6 +57,45 @@ public class GlrGrammar {
         this.symbols.add(GlrConsts.END_OF_TOKEN_LIST);
         this.nonterminals = this.rules.stream().map(o->o.leftSymbol).collect(Collectors.toCollection(LinkedHashSet::new));
         this.terminals = symbols.stream().filter(o->!nonterminals.contains(o)).collect(Collectors.toCollection(LinkedHashSet::new));
+
+        for (String symbol : this.symbols) {
+            symbolIds.put(symbol, symbolIds.size());
+        }
+        this.symbolNames = symbolIds.keySet().toArray(new String[0]);
+        this.ruleLeftIds = new int[this.rules.size()];
+        this.ruleRightIds = new int[this.rules.size()][];
+        for (int i = 0; i < this.rules.size(); i++) {
+            Rule rule = this.rules.get(i);
+            ruleLeftIds[i] = symbolIds.get(rule.leftSymbol);
+            ruleRightIds[i] = rule.rightSymbols.stream().mapToInt(symbolIds::get).toArray();
+        }
+    }
+
+    /**
+     * @return id of symbol or -1 if symbol isn't used in this grammar
+     */
+    public int symbolId(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        return id==null ? -1 : id;
+    }
+
+    public String symbolName(int symbolId) {
+        return symbolNames[symbolId];
+    }
+
+    public int symbolCount() {
+        return symbolNames.length;
+    }
+
+    public int ruleLeftId(int ruleIndex) {
+        return ruleLeftIds[ruleIndex];
+    }
+
+    /**
+     * ids of right symbols of rule. The returned array is shared and must not be modified
+     */
+    public int[] ruleRightIds(int ruleIndex) {
+        return ruleRightIds[ruleIndex];
     }
 
     public List<String> allSymbols() {
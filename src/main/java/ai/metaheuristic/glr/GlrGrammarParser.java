@@ -89,6 +89,15 @@ public class GlrGrammarParser {
     public static GlrGrammar parse(String grammar, String start) {
         List<Rule> rules = new ArrayList<>();
         rules.add(new Rule(0, "@", new ArrayList<>(List.of(start)), false, new ArrayList<>(List.of(Map.of("", List.of()))), 1.0));
+        rules.addAll(parseRules(grammar, rules.size()));
+        return new GlrGrammar(rules);
+    }
+
+    /**
+     * rules of grammar text without start rule, indexes of rules begin with firstIndex
+     */
+    public static List<Rule> parseRules(String grammar, int firstIndex) {
+        List<Rule> rules = new ArrayList<>();
         for (ScanRule scanRule : scanRules(grammar)) {
             var leftSymbol = scanRule.leftSymbol;
             var weight = scanRule.weight;
@@ -104,9 +113,9 @@ public class GlrGrammarParser {
 */
             final List<String> symbols = rightSymbols.stream().map(o -> o.symbol).toList();
             List<Map<String, List<Object>>> map = rightSymbols.stream().map(o -> o.map).toList();
-            rules.add(new Rule(rules.size(), leftSymbol, symbols, false, map, weight));
+            rules.add(new Rule(firstIndex + rules.size(), leftSymbol, symbols, false, map, weight));
         }
-        return new GlrGrammar(rules);
+        return rules;
     }
 
     public record SymbolWithMap(String symbol, Map<String, List<Object>> map) {}
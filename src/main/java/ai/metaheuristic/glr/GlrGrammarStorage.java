@@ -0,0 +1,379 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.exceptions.GlrCompiledGrammarException;
+import ai.metaheuristic.glr.exceptions.GlrGrammarException;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Binary format of compiled grammar, i.e. rules with labels, interned symbols and compiled action/goto table.
+ *
+ * Layout, all numbers are big-endian:
+ * <pre>
+ * int      magic 'GLRC'
+ * int      version
+ *          LR mode of table as (int length, utf-8 bytes of name)
+ * int      symbol count, then symbols as (int length, utf-8 bytes)
+ * int      rule count, then rules as
+ *          left symbol id, right symbol count, right symbol ids, commit, weight, params
+ * int[]    ruleLeft, ruleLength, base, check, slotCell, rowCellStart, cellSymbol, cellActionStart
+ * byte[]   actionKind
+ * int[]    actionValue
+ * </pre>
+ * Each array is stored as int length followed by elements.
+ */
+public class GlrGrammarStorage {
+
+    public static final int MAGIC = 0x474C5243;
+    // 2: rules are stored with refined terminals of GlrTerminalClasses, table is built over them
+    // 3: LR mode of table is stored, loaded parser is rebuilt by addRules() in the same mode
+    public static final int VERSION = 3;
+
+    private static final byte PARAM_STRING = 0;
+    private static final byte PARAM_BOOLEAN = 1;
+
+    public record CompiledGrammar(GlrGrammar grammar, GlrTable table, GlrEnums.LrMode lrMode) {}
+
+    /**
+     * @param source source grammar of table, terminals with unary labels are stored as refined terminals of table,
+     *                see {@link GlrTerminalClasses}
+     * @param lrMode mode which table was built in
+     */
+    public static void save(Path path, GlrGrammar source, GlrTable table, GlrEnums.LrMode lrMode) throws IOException {
+        GlrGrammar grammar = GlrTerminalClasses.compile(source).grammar;
+        try (OutputStream os = Files.newOutputStream(path); DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, lrMode.name());
+
+            out.writeInt(table.symbols.length);
+            for (String symbol : table.symbols) {
+                writeString(out, symbol);
+            }
+
+            out.writeInt(grammar.rules.size());
+            for (int i = 0; i < grammar.rules.size(); i++) {
+                GlrGrammar.Rule rule = grammar.rules.get(i);
+                if (rule.index()!=i) {
+                    throw new IllegalStateException("(rule.index()!=i), rule: " + rule);
+                }
+                out.writeInt(table.symbolId(rule.leftSymbol()));
+                out.writeInt(rule.rightSymbols().size());
+                for (String s : rule.rightSymbols()) {
+                    out.writeInt(table.symbolId(s));
+                }
+                out.writeBoolean(rule.commit());
+                out.writeDouble(rule.weight());
+                writeParams(out, rule.params());
+            }
+
+            writeInts(out, table.ruleLeft);
+            writeInts(out, table.ruleLength);
+            writeInts(out, table.base);
+            writeInts(out, table.check);
+            writeInts(out, table.slotCell);
+            writeInts(out, table.rowCellStart);
+            writeInts(out, table.cellSymbol);
+            writeInts(out, table.cellActionStart);
+            out.writeInt(table.actionKind.length);
+            out.write(table.actionKind);
+            writeInts(out, table.actionValue);
+        }
+    }
+
+    public static CompiledGrammar load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+    }
+
+    static CompiledGrammar read(ByteBuffer buffer) {
+        try {
+            int magic = buffer.getInt();
+            if (magic!=MAGIC) {
+                throw new GlrCompiledGrammarException("Not a compiled grammar, magic: " + Integer.toHexString(magic));
+            }
+            int version = buffer.getInt();
+            if (version==1) {
+                throw new GlrCompiledGrammarException("Compiled grammar of version 1 has table without terminal classes, grammar must be saved again");
+            }
+            if (version==2) {
+                throw new GlrCompiledGrammarException("Compiled grammar of version 2 doesn't have LR mode of table, grammar must be saved again");
+            }
+            if (version!=VERSION) {
+                throw new GlrCompiledGrammarException("Unsupported version of compiled grammar: " + version + ", expected: " + VERSION);
+            }
+            String mode = readString(buffer);
+            GlrEnums.LrMode lrMode = Arrays.stream(GlrEnums.LrMode.values()).filter(o->o.name().equals(mode)).findFirst()
+                    .orElseThrow(()->new GlrCompiledGrammarException("Unknown LR mode of compiled grammar: " + mode));
+
+            String[] symbols = new String[length(buffer, Integer.BYTES)];
+            for (int i = 0; i < symbols.length; i++) {
+                symbols[i] = readString(buffer);
+            }
+
+            int ruleCount = length(buffer, Integer.BYTES);
+            List<GlrGrammar.Rule> rules = new ArrayList<>(ruleCount);
+            for (int i = 0; i < ruleCount; i++) {
+                String left = symbols[symbolId(buffer, symbols, i)];
+                List<String> rights = new ArrayList<>();
+                for (int j = buffer.getInt(); j > 0; j--) {
+                    rights.add(symbols[symbolId(buffer, symbols, i)]);
+                }
+                boolean commit = buffer.get()!=0;
+                double weight = buffer.getDouble();
+                rules.add(new GlrGrammar.Rule(i, left, rights, commit, readParams(buffer), weight));
+            }
+            GlrGrammar grammar = new GlrGrammar(rules);
+            if (grammar.symbolCount()!=symbols.length) {
+                throw new GlrCompiledGrammarException("Symbol table doesn't match rules");
+            }
+            for (int i = 0; i < symbols.length; i++) {
+                if (!symbols[i].equals(grammar.symbolName(i))) {
+                    throw new GlrCompiledGrammarException("Symbol table doesn't match rules, symbol: " + symbols[i]);
+                }
+            }
+
+            int[] ruleLeft = readInts(buffer);
+            int[] ruleLength = readInts(buffer);
+            int[] base = readInts(buffer);
+            int[] check = readInts(buffer);
+            int[] slotCell = readInts(buffer);
+            int[] rowCellStart = readInts(buffer);
+            int[] cellSymbol = readInts(buffer);
+            int[] cellActionStart = readInts(buffer);
+            byte[] actionKind = new byte[length(buffer, Byte.BYTES)];
+            buffer.get(actionKind);
+            int[] actionValue = readInts(buffer);
+            if (buffer.hasRemaining()) {
+                throw new GlrCompiledGrammarException("Unexpected data at the end of compiled grammar, remaining: " + buffer.remaining());
+            }
+
+            checkRules(grammar, ruleLeft, ruleLength);
+            GlrTable table = new GlrTable(symbols, ruleLeft, ruleLength, base, check, slotCell,
+                    rowCellStart, cellSymbol, cellActionStart, actionKind, actionValue);
+            checkTable(table);
+            return new CompiledGrammar(GlrTerminalClasses.source(grammar), table, lrMode);
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new GlrCompiledGrammarException("Compiled grammar is truncated or corrupted: " + e);
+        }
+        catch (GlrGrammarException e) {
+            throw new GlrCompiledGrammarException("Compiled grammar has invalid rule, " + e.getMessage());
+        }
+    }
+
+    private static int symbolId(ByteBuffer buffer, String[] symbols, int ruleIndex) {
+        int id = buffer.getInt();
+        if (id < 0 || id >= symbols.length) {
+            throw new GlrCompiledGrammarException("Symbol id of rule #" + ruleIndex + " is out of range: " + id + ", symbols: " + symbols.length);
+        }
+        return id;
+    }
+
+    private static void checkRules(GlrGrammar grammar, int[] ruleLeft, int[] ruleLength) {
+        if (ruleLeft.length!=grammar.rules.size() || ruleLength.length!=grammar.rules.size()) {
+            throw new GlrCompiledGrammarException("Lengths of ruleLeft and ruleLength don't match rules, ruleLeft: " + ruleLeft.length +
+                    ", ruleLength: " + ruleLength.length + ", rules: " + grammar.rules.size());
+        }
+        for (int i = 0; i < ruleLeft.length; i++) {
+            if (ruleLeft[i]!=grammar.ruleLeftId(i)) {
+                throw new GlrCompiledGrammarException("ruleLeft doesn't match rule #" + i + ", ruleLeft: " + ruleLeft[i] + ", expected: " + grammar.ruleLeftId(i));
+            }
+            if (ruleLength[i]!=grammar.ruleRightIds(i).length) {
+                throw new GlrCompiledGrammarException("ruleLength doesn't match rule #" + i + ", ruleLength: " + ruleLength[i] + ", expected: " + grammar.ruleRightIds(i).length);
+            }
+        }
+    }
+
+    /**
+     * arrays of table must be consistent with each other, otherwise parser would fail with IndexOutOfBoundsException
+     * or would use wrong cells while parsing
+     */
+    private static void checkTable(GlrTable table) {
+        final int stateCount = table.base.length;
+        final int cellCount = table.cellSymbol.length;
+        final int actionCount = table.actionKind.length;
+        if (table.check.length!=table.slotCell.length) {
+            throw new GlrCompiledGrammarException("Lengths of check and slotCell are different, check: " + table.check.length + ", slotCell: " + table.slotCell.length);
+        }
+        checkOffsets("rowCellStart", table.rowCellStart, stateCount, cellCount);
+        checkOffsets("cellActionStart", table.cellActionStart, cellCount, actionCount);
+        if (table.actionValue.length!=actionCount) {
+            throw new GlrCompiledGrammarException("Lengths of actionKind and actionValue are different, actionKind: " + actionCount + ", actionValue: " + table.actionValue.length);
+        }
+        for (int c = 0; c < cellCount; c++) {
+            if (table.cellSymbol[c] < 0 || table.cellSymbol[c] >= table.symbols.length) {
+                throw new GlrCompiledGrammarException("Symbol of cell #" + c + " is out of range: " + table.cellSymbol[c]);
+            }
+        }
+        for (int state = 0; state < stateCount; state++) {
+            if (table.base[state] < 0) {
+                throw new GlrCompiledGrammarException("base of state #" + state + " is negative: " + table.base[state]);
+            }
+            for (int c = table.rowCellStart[state]; c < table.rowCellStart[state + 1]; c++) {
+                long slot = (long) table.base[state] + table.cellSymbol[c];
+                if (slot >= table.check.length || table.check[(int) slot]!=state || table.slotCell[(int) slot]!=c) {
+                    throw new GlrCompiledGrammarException("base, check and slotCell don't match cell #" + c + " of state #" + state);
+                }
+            }
+        }
+        for (int slot = 0; slot < table.check.length; slot++) {
+            if (table.check[slot] < -1 || table.check[slot] >= stateCount) {
+                throw new GlrCompiledGrammarException("State in check is out of range, slot: " + slot + ", state: " + table.check[slot]);
+            }
+        }
+        final int ruleCount = table.ruleLeft.length;
+        for (int a = 0; a < actionCount; a++) {
+            final byte kind = table.actionKind[a];
+            final int value = table.actionValue[a];
+            if (kind < 0 || kind >= GlrEnums.ActionType.values().length) {
+                throw new GlrCompiledGrammarException("Unknown action kind of action #" + a + ": " + kind);
+            }
+            if ((kind==GlrTable.SHIFT || kind==GlrTable.GOTO) && (value < 0 || value >= stateCount)) {
+                throw new GlrCompiledGrammarException("Target state of action #" + a + " is out of range: " + value + ", states: " + stateCount);
+            }
+            if (kind==GlrTable.REDUCE && (value < 0 || value >= ruleCount)) {
+                throw new GlrCompiledGrammarException("Rule of reduce action #" + a + " is out of range: " + value + ", rules: " + ruleCount);
+            }
+        }
+    }
+
+    /**
+     * offsets of ranges of items, offsets[i]..offsets[i+1] is range of i-th range. Offsets must start with 0, must not decrease
+     * and the last one must be equal to the number of items
+     */
+    private static void checkOffsets(String name, int[] offsets, int ranges, int items) {
+        if (offsets.length!=ranges + 1) {
+            throw new GlrCompiledGrammarException("Length of " + name + " is " + offsets.length + ", expected: " + (ranges + 1));
+        }
+        if (offsets[0]!=0 || offsets[ranges]!=items) {
+            throw new GlrCompiledGrammarException(name + " must start with 0 and end with " + items + ", start: " + offsets[0] + ", end: " + offsets[ranges]);
+        }
+        for (int i = 0; i < ranges; i++) {
+            if (offsets[i] > offsets[i + 1]) {
+                throw new GlrCompiledGrammarException(name + " isn't monotonic at #" + i + ", " + offsets[i] + " > " + offsets[i + 1]);
+            }
+        }
+    }
+
+    private static void writeParams(DataOutputStream out, @Nullable List<Map<String, List<Object>>> params) throws IOException {
+        if (params==null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(params.size());
+        for (Map<String, List<Object>> map : params) {
+            out.writeInt(map.size());
+            for (Map.Entry<String, List<Object>> entry : map.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Object o : entry.getValue()) {
+                    if (o instanceof String s) {
+                        out.writeByte(PARAM_STRING);
+                        writeString(out, s);
+                    }
+                    else if (o instanceof Boolean b) {
+                        out.writeByte(PARAM_BOOLEAN);
+                        out.writeBoolean(b);
+                    }
+                    else {
+                        throw new IllegalStateException("(!(o instanceof String) && !(o instanceof Boolean)), o: " + o);
+                    }
+                }
+            }
+        }
+    }
+
+    @Nullable
+    private static List<Map<String, List<Object>>> readParams(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        if (size==-1) {
+            return null;
+        }
+        checkLength(buffer, size, Integer.BYTES);
+        List<Map<String, List<Object>>> params = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Map<String, List<Object>> map = new LinkedHashMap<>();
+            for (int j = buffer.getInt(); j > 0; j--) {
+                String key = readString(buffer);
+                List<Object> values = new ArrayList<>();
+                for (int k = buffer.getInt(); k > 0; k--) {
+                    byte type = buffer.get();
+                    values.add(switch (type) {
+                        case PARAM_STRING -> readString(buffer);
+                        case PARAM_BOOLEAN -> buffer.get()!=0;
+                        default -> throw new GlrCompiledGrammarException("Unknown type of param value: " + type);
+                    });
+                }
+                map.put(key, values);
+            }
+            params.add(map);
+        }
+        return params;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[length(buffer, Byte.BYTES)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * length of array which is read from buffer, array can't be longer than the rest of buffer
+     *
+     * @param elementSize min number of bytes of one element
+     */
+    private static int length(ByteBuffer buffer, int elementSize) {
+        int length = buffer.getInt();
+        checkLength(buffer, length, elementSize);
+        return length;
+    }
+
+    private static void checkLength(ByteBuffer buffer, int length, int elementSize) {
+        if (length < 0 || length > buffer.remaining() / elementSize) {
+            throw new GlrCompiledGrammarException("Compiled grammar is corrupted, wrong length of array: " + length + ", remaining bytes: " + buffer.remaining());
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+        out.writeInt(ints.length);
+        for (int i : ints) {
+            out.writeInt(i);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer) {
+        int[] ints = new int[length(buffer, Integer.BYTES)];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + ints.length * Integer.BYTES);
+        return ints;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static ai.metaheuristic.glr.GlrConsts.SYMBOL_RAW_RIGHT_SYMBOLS;
+
+/**
+ * labels of rules which are compiled once for grammar. Program of rule is an array of checks ordered by position of right symbol,
+ * value of label is already parsed and function is already resolved, see {@link GlrLabels#compile(String, String)}.
+ * Marker of raw symbol isn't a label and isn't checked, value of label which isn't a string fails compiling
+ */
+public final class GlrLabelProgram {
+
+    public record Check(int position, String label, String value, GlrLabels.TokenCheck check) {}
+
+    private static final Check[] NO_CHECKS = new Check[0];
+
+    // checks by index of rule
+    private final Check[][] programs;
+
+    private GlrLabelProgram(Check[][] programs) {
+        this.programs = programs;
+    }
+
+    public static GlrLabelProgram compile(GlrGrammar grammar) {
+        Check[][] programs = new Check[grammar.rules.size()][];
+        for (int r = 0; r < programs.length; r++) {
+            programs[r] = compile(grammar.rules.get(r));
+        }
+        return new GlrLabelProgram(programs);
+    }
+
+    private static Check[] compile(GlrGrammar.Rule rule) {
+        if (rule.params()==null) {
+            return NO_CHECKS;
+        }
+        List<Check> checks = new ArrayList<>();
+        for (int i = 0; i < rule.params().size(); i++) {
+            for (Map.Entry<String, List<Object>> entry : rule.params().get(i).entrySet()) {
+                if (SYMBOL_RAW_RIGHT_SYMBOLS.equals(entry.getKey())) {
+                    continue;
+                }
+                for (Object value : entry.getValue()) {
+                    if (!(value instanceof String s)) {
+                        throw new IllegalStateException("(!(labelValue instanceof String))");
+                    }
+                    checks.add(new Check(i, entry.getKey(), s, GlrLabels.compile(entry.getKey(), s)));
+                }
+            }
+        }
+        return checks.isEmpty() ? NO_CHECKS : checks.toArray(NO_CHECKS);
+    }
+
+    /**
+     * @return checks of rule in order of positions, empty array if rule doesn't have labels
+     */
+    public Check[] checks(int ruleIndex) {
+        return ruleIndex < programs.length ? programs[ruleIndex] : NO_CHECKS;
+    }
+
+    /**
+     * run checks of rule over tokens of its derivation. Position of right symbol is an index of token from the start of tree,
+     * position next to the last token is a nonterminal and fails label if tree has nonterminal children, farther position isn't checked.
+     * Label which addresses other token, i.e. agr-gnc, fails if this token is out of span of tree
+     *
+     * @param input tokens which were parsed, tokens of tree are addressed by index in input
+     */
+    public static boolean test(Check[] checks, GlrStack.SyntaxTree syntaxTree, List<GlrToken> input) {
+        final int length = syntaxTree.end() - syntaxTree.start();
+        for (Check check : checks) {
+            if (check.position > length) {
+                break;
+            }
+            if (check.position==length) {
+                if (hasNonterminal(syntaxTree)) {
+                    return false;
+                }
+                break;
+            }
+            if (!check.check.test(input, syntaxTree.start() + check.position, syntaxTree.start(), syntaxTree.end())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasNonterminal(GlrStack.SyntaxTree syntaxTree) {
+        for (GlrStack.SyntaxTree child : syntaxTree.children()) {
+            if (child.token()==null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -29,13 +29,45 @@ public class GlrLabels {
 
     public record LabelCheck(@Nullable String value, List<GlrToken> tokens, int i) {}
 
-    @SuppressWarnings("ObjectEquality")
+    /**
+     * label with already parsed value, checks token with index i. See {@link #compile(String, String)}
+     */
+    @FunctionalInterface
+    public interface TokenCheck {
+        boolean test(List<GlrToken> tokens, int i);
+
+        /**
+         * the same check, label can address only tokens of span [start, end), label which addresses token out of span fails
+         */
+        default boolean test(List<GlrToken> tokens, int i, int start, int end) {
+            return test(tokens, i);
+        }
+    }
+
+    /**
+     * check of label which depends only on the checked token, i.e. of unary label. See {@link #compileUnary(String, String)}
+     */
+    @FunctionalInterface
+    public interface UnaryCheck extends TokenCheck {
+        boolean test(GlrToken token);
+
+        @Override
+        default boolean test(List<GlrToken> tokens, int i) {
+            return test(tokens.get(i));
+        }
+    }
+
     public static boolean agr_gnc_label(LabelCheck labelCheck) {
         if (labelCheck.value==null) {
             throw new IllegalStateException("(labelCheck.value==null)");
         }
-        var one = labelCheck.tokens.get(labelCheck.i).params;
-        var another = labelCheck.tokens.get(labelCheck.i + Integer.parseInt(labelCheck.value)).params;
+        return agreeGnc(labelCheck.tokens.get(labelCheck.i), labelCheck.tokens.get(labelCheck.i + Integer.parseInt(labelCheck.value)));
+    }
+
+    @SuppressWarnings("ObjectEquality")
+    private static boolean agreeGnc(GlrToken oneToken, GlrToken anotherToken) {
+        var one = oneToken.params;
+        var another = anotherToken.params;
         if (one==null || another==null) {
             return false;
         }
@@ -51,12 +83,15 @@ public class GlrLabels {
             return false;
         }
         final String inputTerm = labelCheck.tokens.get(labelCheck.i).inputTerm;
-        Matcher m = patterns.computeIfAbsent(labelCheck.value,
-                GlrLabels::compilePattern).matcher(inputTerm);
+        Matcher m = pattern(labelCheck.value).matcher(inputTerm);
         final boolean b = m.find();
         return b;
     }
 
+    private static Pattern pattern(String regex) {
+        return patterns.computeIfAbsent(regex, GlrLabels::compilePattern);
+    }
+
     private static Pattern compilePattern(String regex) {
         final Pattern p = Pattern.compile(regex, Pattern.UNICODE_CASE | Pattern.UNICODE_CHARACTER_CLASS);
         if (p.matcher("").find() || p.matcher("  ").find()) {
@@ -69,9 +104,11 @@ public class GlrLabels {
         if (labelCheck.value==null) {
             throw new IllegalStateException("(labelCheck.value==null)");
         }
-        final GlrToken glrToken = labelCheck.tokens.get(labelCheck.i);
-        final boolean b = glrToken.value.getClass().getSimpleName().equals(labelCheck.value);
-        return b;
+        return isClass(labelCheck.tokens.get(labelCheck.i), labelCheck.value);
+    }
+
+    private static boolean isClass(GlrToken glrToken, String simpleName) {
+        return glrToken.value.getClass().getSimpleName().equals(simpleName);
     }
 
     String py1 = """
@@ -80,11 +117,14 @@ public class GlrLabels {
         """;
 
     public static boolean gram_label(LabelCheck labelCheck) {
-        final GlrToken glrToken = labelCheck.tokens.get(labelCheck.i);
+        return hasGram(labelCheck.tokens.get(labelCheck.i), labelCheck.value);
+    }
+
+    private static boolean hasGram(GlrToken glrToken, @Nullable String gram) {
         if (glrToken.params == null) {
             return false;
         }
-        return glrToken.params.contains(labelCheck.value);
+        return glrToken.params.contains(gram);
     }
 
 /*
@@ -115,6 +155,67 @@ public class GlrLabels {
             )
     );
 
+    /**
+     * check of label with value which doesn't allocate objects, except of matcher of regex.
+     * Built-in labels are compiled to typed checks, other labels are checked by function from {@link #LABELS_CHECK},
+     * label which isn't known fails. Pattern of regex is compiled at the first check, so wrong regex fails parsing, not compiling
+     */
+    public static TokenCheck compile(String label, String value) {
+        if (gram.label.equals(label) || clazz.label.equals(label) || regex.label.equals(label)) {
+            return compileUnary(label, value);
+        }
+        if (agr_gnc.label.equals(label) && value.matches("-?\\d+")) {
+            final int offset = Integer.parseInt(value);
+            return new TokenCheck() {
+                @Override
+                public boolean test(List<GlrToken> tokens, int i) {
+                    return agreeGnc(tokens.get(i), tokens.get(i + offset));
+                }
+
+                @Override
+                public boolean test(List<GlrToken> tokens, int i, int start, int end) {
+                    if (i + offset < start || i + offset >= end) {
+                        return false;
+                    }
+                    return test(tokens, i);
+                }
+            };
+        }
+        Function<LabelCheck, Boolean> check = LABELS_CHECK.get(label);
+        if (check==null) {
+            return (tokens, i)->false;
+        }
+        return (tokens, i)->check.apply(new LabelCheck(value, tokens, i));
+    }
+
+    /**
+     * compiled check of gram, class or regex label, token is checked without list of tokens
+     */
+    public static UnaryCheck compileUnary(String label, String value) {
+        if (gram.label.equals(label)) {
+            return (token)->hasGram(token, value);
+        }
+        if (clazz.label.equals(label)) {
+            return (token)->isClass(token, value);
+        }
+        if (regex.label.equals(label)) {
+            return new UnaryCheck() {
+                @Nullable
+                private volatile Pattern pattern = null;
+
+                @Override
+                public boolean test(GlrToken token) {
+                    Pattern p = pattern;
+                    if (p==null) {
+                        pattern = p = pattern(value);
+                    }
+                    return p.matcher(token.inputTerm).find();
+                }
+            };
+        }
+        throw new IllegalStateException("(label isn't unary: " + label + ")");
+    }
+
     public static Map<String, List<Object>> parseLabel(String labelsStr1) {
         String str = labelsStr1.strip().replace(" ", "");
         Map<String, List<Object>> labels = new LinkedHashMap<>();
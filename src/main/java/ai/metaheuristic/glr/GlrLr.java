@@ -10,6 +10,7 @@ package ai.metaheuristic.glr;
 import javax.annotation.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
@@ -33,9 +34,26 @@ public class GlrLr {
     public record State(int index, List<Item> itemset, Map<String, Set<Integer>> followDict, @Nullable Integer parentStateIndex, @Nullable String parentLookahead) {}
     public record Action(String type, @Nullable Integer state, @Nullable Integer ruleIndex) {}
 
+    public record Conflicts(int shiftReduce, int reduceReduce) {}
+
     public static List<LinkedHashMap<String, List<Action>>> generateActionGotoTable(GlrGrammar grammar) {
+        return generateActionGotoTable(grammar, GlrEnums.LrMode.SLR);
+    }
+
+    public static List<LinkedHashMap<String, List<Action>>> generateActionGotoTable(GlrGrammar grammar, GlrEnums.LrMode mode) {
+        return generateActionGotoTable(grammar, mode, null);
+    }
+
+    /**
+     * @param pool if not null, state graph is built in parallel, see {@link GlrLrBuilder}
+     */
+    public static List<LinkedHashMap<String, List<Action>>> generateActionGotoTable(GlrGrammar grammar, GlrEnums.LrMode mode, @Nullable ForkJoinPool pool) {
+        return generateActionGotoTable(grammar, new GlrLrBuilder(grammar, pool).generate(mode));
+    }
+
+    public static List<LinkedHashMap<String, List<Action>>> generateActionGotoTable(GlrGrammar grammar, GlrLrBuilder.Automaton automaton) {
         List<LinkedHashMap<String, List<Action>>> result = new ArrayList<>();
-        List<State> states = generateStateGraph(grammar);
+        List<State> states = automaton.states();
         GenerateFollowers generateFollowers = new GenerateFollowers(grammar);
         LinkedHashMap<String, LinkedHashSet<String>> followers = generateFollowers.followers;
 
@@ -50,7 +68,7 @@ public class GlrLr {
                         actions.computeIfAbsent(GlrConsts.END_OF_TOKEN_LIST, o->new ArrayList<>()).add(new Action("A", null, null));
                     }
                     else {
-                        for (String follower : followers.get(rule.leftSymbol())) {
+                        for (String follower : reduceLookaheads(grammar, automaton, state.index, item.ruleIndex, followers.get(rule.leftSymbol()))) {
                             actions.computeIfAbsent(follower, o->new ArrayList<>()).add(new Action("R", null, item.ruleIndex));
                         }
                         actions.computeIfAbsent(GlrConsts.END_OF_TOKEN_LIST, o->new ArrayList<>()).add(new Action("R", null, item.ruleIndex));
@@ -78,108 +96,60 @@ public class GlrLr {
         return result;
     }
 
-    private record StackRec(@Nullable Integer index, @Nullable String lookahead, List<Item> itemset) {}
-
-    public static List<State> generateStateGraph(GlrGrammar grammar) {
-        List<State> states = new ArrayList<>();
-        LinkedHashMap<List<Item>, State> stateByItemset = new LinkedHashMap<>();
-        List<Item> firstItemset = closure(List.of(EMPTY_ITEM), grammar);
-        firstItemset = firstItemset.stream().sorted(Comparator.comparingInt(Item::ruleIndex)).collect(Collectors.toList());
-        LinkedList<StackRec> stack = new LinkedList<>();
-        stack.add(new StackRec(null, null, firstItemset));
-
-        while (!stack.isEmpty()) {
-            StackRec stackRec = stack.removeFirst();
-            Integer parentStateIndex = stackRec.index;
-            String parentLookahead = stackRec.lookahead;
-            List<Item> itemset = stackRec.itemset;
-            State state;
-            if (stateByItemset.containsKey(itemset)) {
-                if (parentStateIndex==null) {
-                    throw new IllegalStateException("(parentStateIndex==null)");
-                }
-                // # State already exist, just add follow link
-                state = stateByItemset.get(itemset);
-                states.get(parentStateIndex).followDict.computeIfAbsent(parentLookahead, (o)->new HashSet<>()).add(state.index);
-                continue;
-            }
-            state = new State(states.size(), itemset, new LinkedHashMap<>(), parentStateIndex, parentLookahead);
-            states.add(state);
-            stateByItemset.putIfAbsent(state.itemset, state);
-
-            if (parentStateIndex!=null) {
-                states.get(parentStateIndex).followDict.computeIfAbsent(parentLookahead, (o)->new HashSet<>()).add(state.index);
+    /**
+     * lookaheads of reduce by rule in state. For LALR and LR1 the order of followers is kept, lookaheads
+     * which aren't in followers go after them. END_OF_TOKEN_LIST is skipped because reduce by it is added always
+     */
+    private static Collection<String> reduceLookaheads(
+            GlrGrammar grammar, GlrLrBuilder.Automaton automaton, int stateIndex, int ruleIndex, LinkedHashSet<String> followers) {
+        if (automaton.reduceLookaheads()==null) {
+            return followers;
+        }
+        BitSet lookaheads = automaton.reduceLookaheads().get(stateIndex).get(ruleIndex);
+        if (lookaheads==null) {
+            throw new IllegalStateException("(lookaheads==null), state: " + stateIndex + ", rule: " + ruleIndex);
+        }
+        LinkedHashSet<String> result = new LinkedHashSet<>();
+        for (String follower : followers) {
+            if (lookaheads.get(grammar.symbolId(follower))) {
+                result.add(follower);
             }
-            int i=0;
-            for (Follows follows : follow(state.itemset, grammar)){
-                String lookahead = follows.lookahead;
-                LinkedList<GlrLr.Item> itemset1 = GlrLr.uniqueAndSorted(follows.item);
-                stack.add(new StackRec(state.index, lookahead, itemset1));
+        }
+        for (int i = lookaheads.nextSetBit(0); i >= 0; i = lookaheads.nextSetBit(i + 1)) {
+            String symbol = grammar.symbolName(i);
+            if (!GlrConsts.END_OF_TOKEN_LIST.equals(symbol)) {
+                result.add(symbol);
             }
         }
-        return states;
+        return result;
+    }
+
+    /**
+     * cells which have both shift and reduce actions and cells with more than one reduce action.
+     * Column of END_OF_TOKEN_LIST isn't counted, it has reduce for every completed rule in all modes
+     */
+    public static Conflicts countConflicts(List<LinkedHashMap<String, List<Action>>> actionGotoTable) {
+        return GlrConflictReport.analyze(actionGotoTable).totals();
+    }
+
+    public static List<State> generateStateGraph(GlrGrammar grammar) {
+        return new GlrLrBuilder(grammar).generateStateGraph();
     }
 
+    /**
+     * starters and followers of nonterminals in the order which is used for action/goto table, see {@link GlrFirstFollow}
+     */
     public static class GenerateFollowers {
         public final GlrGrammar grammar;
-        public final LinkedHashMap<String, LinkedHashSet<String>> starters = new LinkedHashMap<>();
-        public final LinkedHashMap<String, LinkedHashSet<String>> followers = new LinkedHashMap<>();
+        public final GlrFirstFollow firstFollow;
+        public final LinkedHashMap<String, LinkedHashSet<String>> starters;
+        public final LinkedHashMap<String, LinkedHashSet<String>> followers;
 
         public GenerateFollowers(GlrGrammar grammar) {
             this.grammar = grammar;
-            for (String s : grammar.nonterminals) {
-                this.starters.put(s, getStarters(s, grammar));
-            }
-            for (String s : grammar.nonterminals) {
-                this.followers.put(s, getFollowers(s, null, grammar));
-            }
-        }
-
-        public static LinkedHashSet<String> getStarters(String symbol, GlrGrammar grammar) {
-            LinkedHashSet<String> result = new LinkedHashSet<>();
-            for (Integer ruleIndex : grammar.rulesForSymbol.get(symbol)) {
-                GlrGrammar.Rule rule = grammar.rules.get(ruleIndex);
-                final String rightSymbol = rule.rightSymbols().get(0);
-                if (grammar.nonterminals.contains(rightSymbol)) {
-                    if (!rightSymbol.equals(symbol)) {
-                        result.addAll(getStarters(rightSymbol, grammar));
-                    }
-                }
-                else {
-                    result.add(rightSymbol);
-                }
-            }
-            return result;
-        }
-
-        public LinkedHashSet<String> getFollowers(String symbol, @Nullable LinkedHashSet<String> seenSymbolsTemp, GlrGrammar grammar) {
-            LinkedHashSet<String> seenSymbols = seenSymbolsTemp!=null ? seenSymbolsTemp : new LinkedHashSet<>();
-            LinkedHashSet<String> result = new LinkedHashSet<>();
-            for (GlrGrammar.Rule rule : grammar.rules) {
-//                if isinstance(rule, set):  # TODO: remove workaround
-//                    continue
-                if (!rule.rightSymbols().contains(symbol)) {
-                    continue;
-                }
-                int index = rule.rightSymbols().indexOf(symbol);
-                if (index + 1 == rule.rightSymbols().size()) {
-                    if (!rule.leftSymbol().equals(symbol) && !seenSymbols.contains(rule.leftSymbol())) {
-                        result.addAll(getFollowers(rule.leftSymbol(), seenSymbols, grammar));
-                    }
-                }
-                else {
-                    String next = rule.rightSymbols().get(index + 1);
-                    if (grammar.nonterminals.contains(next)) {
-                        result.addAll(starters.get(next));
-                    }
-                    else {
-                        result.add(next);
-                    }
-                }
-            }
-
-
-            return result;
+            this.firstFollow = new GlrFirstFollow(grammar);
+            this.starters = firstFollow.starters();
+            this.followers = firstFollow.followers();
         }
     }
 
@@ -0,0 +1,704 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Builder of LR(0) state graph over int-coded items. Also builds lookaheads of reduce actions for
+ * {@link GlrEnums.LrMode#LALR} and canonical LR(1) states for {@link GlrEnums.LrMode#LR1}.
+ *
+ * Item is encoded as itemId = ruleOffset[ruleIndex] + dotPosition, so sorting of itemIds is the same as sorting of
+ * {@link GlrLr.Item}. Item sets are sorted int arrays with precomputed hash ({@link ItemSet}).
+ * Closure is cached per item and closure of kernel is a union of closures of its items.
+ * Transitions are cached per kernel, so the same kernel which is reached from different states is resolved
+ * without building closure again.
+ *
+ * States are numbered in the order of their first appearance in breadth-first traversal,
+ * which is the same numbering as in the original implementation of {@link GlrLr#generateStateGraph(GlrGrammar)}.
+ * With {@link ForkJoinPool} successors of each level of traversal are computed in parallel, the numbering stays the same
+ */
+public class GlrLrBuilder {
+
+    public static final class ItemSet {
+        public final int[] items;
+        private final int hash;
+
+        public ItemSet(int[] items) {
+            this.items = items;
+            this.hash = Arrays.hashCode(items);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ItemSet itemSet)) {
+                return false;
+            }
+            return hash==itemSet.hash && Arrays.equals(items, itemSet.items);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    public final GlrGrammar grammar;
+
+    private final int[] ruleOffset;
+    private final int[] itemRule;
+    private final int[] itemDot;
+    // id of symbol right after dot or -1 if dot is at the end of rule
+    private final int[] itemNext;
+    private final boolean[] nonterminals;
+
+    private final AtomicReferenceArray<int[]> closureCache;
+
+    // levels of state graph which are smaller than this are explored in current thread
+    private static final int PARALLEL_THRESHOLD = 64;
+    private static final int TASK_SIZE = 16;
+
+    @Nullable
+    private final ForkJoinPool pool;
+
+    public GlrLrBuilder(GlrGrammar grammar) {
+        this(grammar, null);
+    }
+
+    /**
+     * @param pool if not null, successors of states are computed in this pool
+     */
+    public GlrLrBuilder(GlrGrammar grammar, @Nullable ForkJoinPool pool) {
+        this.grammar = grammar;
+        this.pool = pool;
+        int ruleCount = grammar.rules.size();
+        this.ruleOffset = new int[ruleCount + 1];
+        for (int r = 0; r < ruleCount; r++) {
+            ruleOffset[r + 1] = ruleOffset[r] + grammar.ruleRightIds(r).length + 1;
+        }
+        int itemCount = ruleOffset[ruleCount];
+        this.itemRule = new int[itemCount];
+        this.itemDot = new int[itemCount];
+        this.itemNext = new int[itemCount];
+        for (int r = 0; r < ruleCount; r++) {
+            int[] rights = grammar.ruleRightIds(r);
+            for (int dot = 0; dot <= rights.length; dot++) {
+                int id = ruleOffset[r] + dot;
+                itemRule[id] = r;
+                itemDot[id] = dot;
+                itemNext[id] = dot < rights.length ? rights[dot] : -1;
+            }
+        }
+        this.nonterminals = new boolean[grammar.symbolCount()];
+        for (int r = 0; r < ruleCount; r++) {
+            nonterminals[grammar.ruleLeftId(r)] = true;
+        }
+        this.closureCache = new AtomicReferenceArray<>(itemCount);
+    }
+
+    public int itemCount() {
+        return itemRule.length;
+    }
+
+    public int itemId(int ruleIndex, int dotPosition) {
+        return ruleOffset[ruleIndex] + dotPosition;
+    }
+
+    public int itemRule(int itemId) {
+        return itemRule[itemId];
+    }
+
+    public int itemDot(int itemId) {
+        return itemDot[itemId];
+    }
+
+    public int itemNext(int itemId) {
+        return itemNext[itemId];
+    }
+
+    /**
+     * closure of single item as sorted array of itemIds. The returned array is shared and must not be modified
+     */
+    public int[] closure(int itemId) {
+        int[] closure = closureCache.get(itemId);
+        if (closure==null) {
+            closure = buildClosure(itemId);
+            closureCache.set(itemId, closure);
+        }
+        return closure;
+    }
+
+    private int[] buildClosure(int itemId) {
+        BitSet items = new BitSet(itemRule.length);
+        boolean[] visited = new boolean[nonterminals.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        items.set(itemId);
+        queue.add(itemId);
+        while (!queue.isEmpty()) {
+            int next = itemNext[queue.poll()];
+            if (next==-1 || !nonterminals[next] || visited[next]) {
+                continue;
+            }
+            visited[next] = true;
+            for (Integer ruleIndex : grammar.rulesForSymbol.get(grammar.symbolName(next))) {
+                int id = ruleOffset[ruleIndex];
+                if (!items.get(id)) {
+                    items.set(id);
+                    queue.add(id);
+                }
+            }
+        }
+        return items.stream().toArray();
+    }
+
+    /**
+     * @param kernel sorted itemIds
+     */
+    public ItemSet closure(int[] kernel) {
+        if (kernel.length==1) {
+            return new ItemSet(closure(kernel[0]));
+        }
+        BitSet items = new BitSet(itemRule.length);
+        for (int itemId : kernel) {
+            for (int id : closure(itemId)) {
+                items.set(id);
+            }
+        }
+        return new ItemSet(items.stream().toArray());
+    }
+
+    public List<GlrLr.Item> toItems(ItemSet itemSet) {
+        return toItems(itemSet, 1);
+    }
+
+    private List<GlrLr.Item> toItems(ItemSet itemSet, int stride) {
+        List<GlrLr.Item> items = new ArrayList<>(itemSet.items.length);
+        int last = -1;
+        for (int code : itemSet.items) {
+            int id = code / stride;
+            // codes are sorted, so items with the same core are adjacent
+            if (id!=last) {
+                items.add(new GlrLr.Item(itemRule[id], itemDot[id]));
+                last = id;
+            }
+        }
+        return items;
+    }
+
+    /**
+     * transitions from item set in order of first appearance of symbol after dot
+     *
+     * @return pairs of (symbolId, kernel), kernel is sorted array of advanced items
+     */
+    public List<Transition> transitions(ItemSet itemSet) {
+        return transitions(itemSet, 1);
+    }
+
+    private List<Transition> transitions(ItemSet itemSet, int stride) {
+        LinkedHashMap<Integer, int[]> kernels = new LinkedHashMap<>();
+        int[] sizes = new int[nonterminals.length];
+        for (int code : itemSet.items) {
+            int next = itemNext[code / stride];
+            if (next!=-1) {
+                sizes[next]++;
+            }
+        }
+        int[] filled = new int[nonterminals.length];
+        for (int code : itemSet.items) {
+            int next = itemNext[code / stride];
+            if (next==-1) {
+                continue;
+            }
+            int[] kernel = kernels.computeIfAbsent(next, o->new int[sizes[o]]);
+            // items are sorted, so advanced items are sorted too
+            kernel[filled[next]++] = code + stride;
+        }
+        List<Transition> result = new ArrayList<>(kernels.size());
+        for (Map.Entry<Integer, int[]> entry : kernels.entrySet()) {
+            result.add(new Transition(entry.getKey(), new ItemSet(entry.getValue())));
+        }
+        return result;
+    }
+
+    public record Transition(int symbol, ItemSet kernel) {}
+
+    /**
+     * @param reduceLookaheads for each state, terminal ids which are lookaheads of completed rules, null for SLR mode
+     */
+    public record Automaton(GlrEnums.LrMode mode, List<GlrLr.State> states, @Nullable List<Map<Integer, BitSet>> reduceLookaheads) {}
+
+    /**
+     * explored graph of states. For LR(0) code of item is itemId,
+     * for LR(1) code of item is itemId * symbolCount + lookahead, i.e. stride==symbolCount
+     */
+    private record Graph(int stride, List<ItemSet> itemSets, List<int[]> gotoSymbols, List<int[]> gotoTargets, List<GlrLr.State> states) {
+        int gotoTarget(int state, int symbol) {
+            int[] symbols = gotoSymbols.get(state);
+            for (int i = 0; i < symbols.length; i++) {
+                if (symbols[i]==symbol) {
+                    return gotoTargets.get(state)[i];
+                }
+            }
+            return -1;
+        }
+    }
+
+    public List<GlrLr.State> generateStateGraph() {
+        return exploreLr0(Map.of()).states;
+    }
+
+    private Graph exploreLr0(Map<ItemSet, Successors> reused) {
+        return explore(new ItemSet(closure(itemId(0, 0))), 1, kernel -> closure(kernel.items), reused);
+    }
+
+    public Automaton generate(GlrEnums.LrMode mode) {
+        return switch (mode) {
+            case SLR -> new Automaton(mode, generateStateGraph(), null);
+            case LALR -> generateLalr(exploreLr0(Map.of()));
+            case LR1 -> generateLr1();
+        };
+    }
+
+    /**
+     * Automaton of grammar which was made from the grammar of previous automaton by adding or removing rules.
+     * Successors of states which don't depend on changed rules are taken from previous automaton without
+     * building closures and transitions, the other states are explored again. The result is the same as of {@link #generate(GlrEnums.LrMode)}.
+     * Lookaheads of LALR are computed again for the whole graph, states of LR1 are always built from scratch
+     *
+     * @param ruleMapping new index for each rule of previous grammar or -1 for removed rule, the order of rules must be kept
+     * @param changedSymbols left symbols of added and removed rules
+     */
+    public Automaton generate(Automaton previous, int[] ruleMapping, Set<String> changedSymbols) {
+        return switch (previous.mode()) {
+            case SLR -> new Automaton(GlrEnums.LrMode.SLR, exploreLr0(reusableSuccessors(previous.states(), ruleMapping, changedSymbols)).states, null);
+            case LALR -> generateLalr(exploreLr0(reusableSuccessors(previous.states(), ruleMapping, changedSymbols)));
+            case LR1 -> generateLr1();
+        };
+    }
+
+    /**
+     * State of previous graph can be reused if it doesn't contain items of removed rules and doesn't have items with changed symbol after dot,
+     * i.e. its closure is the same in new grammar. Its successors can be reused if all its targets can be reused too
+     */
+    private Map<ItemSet, Successors> reusableSuccessors(List<GlrLr.State> states, int[] ruleMapping, Set<String> changedSymbols) {
+        boolean[] changed = new boolean[nonterminals.length];
+        for (String symbol : changedSymbols) {
+            int id = grammar.symbolId(symbol);
+            if (id!=-1) {
+                changed[id] = true;
+            }
+        }
+        ItemSet[] clean = new ItemSet[states.size()];
+        for (GlrLr.State state : states) {
+            int[] items = new int[state.itemset().size()];
+            boolean dirty = false;
+            for (int i = 0; i < items.length && !dirty; i++) {
+                GlrLr.Item item = state.itemset().get(i);
+                int ruleIndex = ruleMapping[item.ruleIndex()];
+                if (ruleIndex==-1) {
+                    dirty = true;
+                    continue;
+                }
+                items[i] = itemId(ruleIndex, item.dotPosition());
+                dirty = itemNext[items[i]]!=-1 && changed[itemNext[items[i]]];
+            }
+            if (!dirty) {
+                // the order of rules is kept, so ids are still sorted
+                clean[state.index()] = new ItemSet(items);
+            }
+        }
+
+        HashMap<ItemSet, Successors> result = new HashMap<>();
+        for (GlrLr.State state : states) {
+            ItemSet itemSet = clean[state.index()];
+            if (itemSet==null) {
+                continue;
+            }
+            int[] symbols = new int[state.followDict().size()];
+            ItemSet[] itemSets = new ItemSet[symbols.length];
+            int i = 0;
+            for (Map.Entry<String, Set<Integer>> entry : state.followDict().entrySet()) {
+                ItemSet target = clean[entry.getValue().iterator().next()];
+                if (target==null) {
+                    break;
+                }
+                symbols[i] = grammar.symbolId(entry.getKey());
+                itemSets[i++] = target;
+            }
+            if (i==symbols.length) {
+                result.put(itemSet, new Successors(symbols, itemSets));
+            }
+        }
+        return result;
+    }
+
+    private record Successors(int[] symbols, ItemSet[] itemSets) {}
+
+    /**
+     * Breadth-first exploration level by level. Successors of all states of current level are computed
+     * in parallel if pool is set, then new states are numbered sequentially in order of states and their transitions,
+     * so numbering doesn't depend on the pool
+     *
+     * @param reused already known successors of item sets
+     */
+    private Graph explore(ItemSet first, int stride, Function<ItemSet, ItemSet> closureFunc, Map<ItemSet, Successors> reused) {
+        List<GlrLr.State> states = new ArrayList<>();
+        List<ItemSet> itemSets = new ArrayList<>();
+        List<int[]> gotoSymbols = new ArrayList<>();
+        List<int[]> gotoTargets = new ArrayList<>();
+        HashMap<ItemSet, Integer> stateByItemSet = new HashMap<>();
+        ConcurrentHashMap<ItemSet, ItemSet> closureByKernel = new ConcurrentHashMap<>();
+        Function<ItemSet, Successors> successorsFunc = itemSet -> {
+            Successors successors = reused.get(itemSet);
+            return successors!=null ? successors : successors(itemSet, stride, closureFunc, closureByKernel);
+        };
+
+        itemSets.add(first);
+        stateByItemSet.put(first, 0);
+        states.add(new GlrLr.State(0, toItems(first, stride), new LinkedHashMap<>(), null, null));
+
+        int from = 0;
+        while (from < states.size()) {
+            int to = states.size();
+            Successors[] successors = new Successors[to - from];
+            if (pool==null || to - from < PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    successors[i - from] = successorsFunc.apply(itemSets.get(i));
+                }
+            }
+            else {
+                pool.invoke(new SuccessorsTask(itemSets, from, from, to, successors, successorsFunc));
+            }
+
+            for (int stateIndex = from; stateIndex < to; stateIndex++) {
+                GlrLr.State state = states.get(stateIndex);
+                Successors successor = successors[stateIndex - from];
+                int[] targets = new int[successor.symbols.length];
+                for (int i = 0; i < successor.symbols.length; i++) {
+                    ItemSet itemSet = successor.itemSets[i];
+                    Integer target = stateByItemSet.get(itemSet);
+                    if (target==null) {
+                        target = states.size();
+                        String lookahead = grammar.symbolName(successor.symbols[i]);
+                        itemSets.add(itemSet);
+                        stateByItemSet.put(itemSet, target);
+                        states.add(new GlrLr.State(target, toItems(itemSet, stride), new LinkedHashMap<>(), stateIndex, lookahead));
+                    }
+                    targets[i] = target;
+                    state.followDict().computeIfAbsent(grammar.symbolName(successor.symbols[i]), (o)->new HashSet<>()).add(target);
+                }
+                gotoSymbols.add(successor.symbols);
+                gotoTargets.add(targets);
+            }
+            from = to;
+        }
+        return new Graph(stride, itemSets, gotoSymbols, gotoTargets, states);
+    }
+
+    private Successors successors(ItemSet itemSet, int stride, Function<ItemSet, ItemSet> closureFunc, ConcurrentHashMap<ItemSet, ItemSet> closureByKernel) {
+        List<Transition> transitions = transitions(itemSet, stride);
+        int[] symbols = new int[transitions.size()];
+        ItemSet[] itemSets = new ItemSet[transitions.size()];
+        for (int i = 0; i < transitions.size(); i++) {
+            Transition transition = transitions.get(i);
+            ItemSet closure = closureByKernel.get(transition.kernel);
+            if (closure==null) {
+                closure = closureFunc.apply(transition.kernel);
+                ItemSet prev = closureByKernel.putIfAbsent(transition.kernel, closure);
+                if (prev!=null) {
+                    closure = prev;
+                }
+            }
+            symbols[i] = transition.symbol;
+            itemSets[i] = closure;
+        }
+        return new Successors(symbols, itemSets);
+    }
+
+    private static class SuccessorsTask extends RecursiveAction {
+        private final List<ItemSet> itemSets;
+        private final int offset;
+        private final int from;
+        private final int to;
+        private final Successors[] result;
+        private final Function<ItemSet, Successors> successorsFunc;
+
+        SuccessorsTask(List<ItemSet> itemSets, int offset, int from, int to, Successors[] result, Function<ItemSet, Successors> successorsFunc) {
+            this.itemSets = itemSets;
+            this.offset = offset;
+            this.from = from;
+            this.to = to;
+            this.result = result;
+            this.successorsFunc = successorsFunc;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    result[i - offset] = successorsFunc.apply(itemSets.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new SuccessorsTask(itemSets, offset, from, middle, result, successorsFunc),
+                    new SuccessorsTask(itemSets, offset, middle, to, result, successorsFunc));
+        }
+    }
+
+    // LALR(1) lookaheads, F. DeRemer and T. Pennello, Efficient Computation of LALR(1) Look-Ahead Sets
+
+    private Automaton generateLalr(Graph graph) {
+        int symbolCount = nonterminals.length;
+        int endOfTokenList = grammar.symbolId(GlrConsts.END_OF_TOKEN_LIST);
+        GlrFirstFollow firstFollow = new GlrFirstFollow(grammar);
+        int acceptItem = itemId(0, grammar.ruleRightIds(0).length);
+
+        // nonterminal transitions (state, symbol)
+        HashMap<Long, Integer> transitionIndex = new HashMap<>();
+        List<int[]> transitions = new ArrayList<>();
+        for (int state = 0; state < graph.states.size(); state++) {
+            int[] symbols = graph.gotoSymbols.get(state);
+            for (int symbol : symbols) {
+                if (nonterminals[symbol]) {
+                    transitionIndex.put((long) state * symbolCount + symbol, transitions.size());
+                    transitions.add(new int[]{state, symbol});
+                }
+            }
+        }
+        int n = transitions.size();
+
+        BitSet[] directReads = new BitSet[n];
+        List<List<Integer>> reads = new ArrayList<>(n);
+        List<List<Integer>> includes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int target = graph.gotoTarget(transitions.get(i)[0], transitions.get(i)[1]);
+            BitSet dr = new BitSet(symbolCount);
+            List<Integer> r = new ArrayList<>();
+            for (int symbol : graph.gotoSymbols.get(target)) {
+                if (!nonterminals[symbol]) {
+                    dr.set(symbol);
+                }
+                else if (firstFollow.nullable(symbol)) {
+                    r.add(transitionIndex.get((long) target * symbolCount + symbol));
+                }
+            }
+            if (Arrays.binarySearch(graph.itemSets.get(target).items, acceptItem)>=0) {
+                dr.set(endOfTokenList);
+            }
+            directReads[i] = dr;
+            reads.add(r);
+            includes.add(new ArrayList<>());
+        }
+
+        // lookback, (state, ruleIndex) -> nonterminal transitions
+        List<Map<Integer, List<Integer>>> lookbacks = new ArrayList<>();
+        for (int i = 0; i < graph.states.size(); i++) {
+            lookbacks.add(new HashMap<>());
+        }
+        for (int i = 0; i < n; i++) {
+            int fromState = transitions.get(i)[0];
+            int left = transitions.get(i)[1];
+            for (Integer ruleIndex : grammar.rulesForSymbol.get(grammar.symbolName(left))) {
+                int[] rights = grammar.ruleRightIds(ruleIndex);
+                int state = fromState;
+                for (int dot = 0; dot < rights.length; dot++) {
+                    int symbol = rights[dot];
+                    if (nonterminals[symbol] && suffixNullable(itemId(ruleIndex, dot + 1), firstFollow)) {
+                        includes.get(transitionIndex.get((long) state * symbolCount + symbol)).add(i);
+                    }
+                    state = graph.gotoTarget(state, symbol);
+                }
+                lookbacks.get(state).computeIfAbsent(ruleIndex, o->new ArrayList<>()).add(i);
+            }
+        }
+
+        BitSet[] follows = digraph(digraph(directReads, toArrays(reads)), toArrays(includes));
+
+        List<Map<Integer, BitSet>> reduceLookaheads = new ArrayList<>(graph.states.size());
+        for (int state = 0; state < graph.states.size(); state++) {
+            Map<Integer, BitSet> map = new HashMap<>();
+            for (int itemId : graph.itemSets.get(state).items) {
+                if (itemNext[itemId]!=-1) {
+                    continue;
+                }
+                BitSet la = new BitSet(symbolCount);
+                for (Integer i : lookbacks.get(state).getOrDefault(itemRule[itemId], List.of())) {
+                    la.or(follows[i]);
+                }
+                map.put(itemRule[itemId], la);
+            }
+            reduceLookaheads.add(map);
+        }
+        return new Automaton(GlrEnums.LrMode.LALR, graph.states, reduceLookaheads);
+    }
+
+    private boolean suffixNullable(int itemId, GlrFirstFollow firstFollow) {
+        for (int id = itemId; itemNext[id]!=-1; id++) {
+            if (!firstFollow.nullable(itemNext[id])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[][] toArrays(List<List<Integer>> lists) {
+        int[][] result = new int[lists.size()][];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = lists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return result;
+    }
+
+    /**
+     * Digraph algorithm of DeRemer and Pennello, F(x) = F'(x) + U{F(y) | x R y}.
+     * Nodes of one strongly connected component get the same set. Traversal is iterative to not overflow stack
+     */
+    static BitSet[] digraph(BitSet[] initial, int[][] relation) {
+        int n = initial.length;
+        BitSet[] result = new BitSet[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = (BitSet) initial[i].clone();
+        }
+        int[] depth = new int[n];
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        // frame is (node, position in relation, depth of node)
+        ArrayDeque<int[]> frames = new ArrayDeque<>();
+        for (int x = 0; x < n; x++) {
+            if (depth[x]!=0) {
+                continue;
+            }
+            stack.push(x);
+            depth[x] = stack.size();
+            frames.push(new int[]{x, 0, depth[x]});
+            while (!frames.isEmpty()) {
+                int[] frame = frames.peek();
+                int node = frame[0];
+                if (frame[1] < relation[node].length) {
+                    int y = relation[node][frame[1]++];
+                    if (depth[y]==0) {
+                        stack.push(y);
+                        depth[y] = stack.size();
+                        frames.push(new int[]{y, 0, depth[y]});
+                    }
+                    else {
+                        depth[node] = Math.min(depth[node], depth[y]);
+                        result[node].or(result[y]);
+                    }
+                    continue;
+                }
+                frames.pop();
+                if (depth[node]==frame[2]) {
+                    while (true) {
+                        int z = stack.pop();
+                        depth[z] = Integer.MAX_VALUE;
+                        if (z==node) {
+                            break;
+                        }
+                        result[z] = (BitSet) result[node].clone();
+                    }
+                }
+                if (!frames.isEmpty()) {
+                    int parent = frames.peek()[0];
+                    depth[parent] = Math.min(depth[parent], depth[node]);
+                    result[parent].or(result[node]);
+                }
+            }
+        }
+        return result;
+    }
+
+    // canonical LR(1)
+
+    private Automaton generateLr1() {
+        final int stride = nonterminals.length;
+        try {
+            Math.multiplyExact(itemRule.length, stride);
+        }
+        catch (ArithmeticException e) {
+            throw new IllegalStateException("Grammar is too big for LR(1) mode, items: " + itemRule.length + ", symbols: " + stride);
+        }
+        GlrFirstFollow firstFollow = new GlrFirstFollow(grammar);
+        int endOfTokenList = grammar.symbolId(GlrConsts.END_OF_TOKEN_LIST);
+        BitSet[] suffixFirst = new BitSet[itemRule.length];
+        boolean[] suffixNullable = new boolean[itemRule.length];
+        for (int itemId = itemRule.length - 1; itemId >= 0; itemId--) {
+            int next = itemNext[itemId];
+            if (next==-1) {
+                suffixFirst[itemId] = new BitSet();
+                suffixNullable[itemId] = true;
+                continue;
+            }
+            BitSet set = (BitSet) firstFollow.first(next).clone();
+            if (firstFollow.nullable(next)) {
+                set.or(suffixFirst[itemId + 1]);
+            }
+            suffixFirst[itemId] = set;
+            suffixNullable[itemId] = firstFollow.nullable(next) && suffixNullable[itemId + 1];
+        }
+
+        Function<ItemSet, ItemSet> closureFunc = kernel -> {
+            HashSet<Integer> codes = new HashSet<>();
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int code : kernel.items) {
+                codes.add(code);
+                queue.add(code);
+            }
+            while (!queue.isEmpty()) {
+                int code = queue.poll();
+                int itemId = code / stride;
+                int next = itemNext[itemId];
+                if (next==-1 || !nonterminals[next]) {
+                    continue;
+                }
+                BitSet lookaheads = suffixFirst[itemId + 1];
+                if (suffixNullable[itemId + 1]) {
+                    lookaheads = (BitSet) lookaheads.clone();
+                    lookaheads.set(code % stride);
+                }
+                for (Integer ruleIndex : grammar.rulesForSymbol.get(grammar.symbolName(next))) {
+                    int base = ruleOffset[ruleIndex] * stride;
+                    for (int la = lookaheads.nextSetBit(0); la >= 0; la = lookaheads.nextSetBit(la + 1)) {
+                        if (codes.add(base + la)) {
+                            queue.add(base + la);
+                        }
+                    }
+                }
+            }
+            int[] items = codes.stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(items);
+            return new ItemSet(items);
+        };
+
+        ItemSet firstItemSet = closureFunc.apply(new ItemSet(new int[]{itemId(0, 0) * stride + endOfTokenList}));
+        Graph graph = explore(firstItemSet, stride, closureFunc, Map.of());
+
+        List<Map<Integer, BitSet>> reduceLookaheads = new ArrayList<>(graph.states.size());
+        for (ItemSet itemSet : graph.itemSets) {
+            Map<Integer, BitSet> map = new HashMap<>();
+            for (int code : itemSet.items) {
+                int itemId = code / stride;
+                if (itemNext[itemId]==-1) {
+                    map.computeIfAbsent(itemRule[itemId], o->new BitSet(stride)).set(code % stride);
+                }
+            }
+            reduceLookaheads.add(map);
+        }
+        return new Automaton(GlrEnums.LrMode.LR1, graph.states, reduceLookaheads);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+
+import java.util.List;
+
+/**
+ * Events of {@link GlrParseSession}. All methods are no-op by default, arguments are objects which parser already has,
+ * so call of {@link #NO_OP} doesn't allocate anything and is eliminated by JIT.
+ * Listener is called from the thread which pushes tokens and must not change stack
+ */
+public interface GlrParseListener {
+
+    GlrParseListener NO_OP = new GlrParseListener() {};
+
+    /**
+     * token is pushed, level is the current level of stack before reductions by this token
+     */
+    default void onTokenStart(GlrStack.Level level, GlrToken token) {}
+
+    /**
+     * reduction of paths from node by rule
+     */
+    default void onReduce(GlrStack.Node node, GlrGrammar.Rule rule) {}
+
+    /**
+     * token is shifted from node, to is a node of the next level
+     */
+    default void onShift(GlrStack.Node from, GlrStack.Node to) {}
+
+    /**
+     * new edge is added to node which already existed, i.e. two stacks are merged
+     */
+    default void onMerge(GlrStack.Node node, GlrStack.Edge edge) {}
+
+    /**
+     * node is in accepting state, forest nodes of its edges are accepted spans
+     */
+    default void onAccept(GlrStack.Node node) {}
+
+    /**
+     * head is dropped by beam or match policy
+     */
+    default void onDrop(GlrStack.Node node) {}
+
+    /**
+     * trees which are returned by {@link GlrParser#parse(java.util.List, boolean, java.util.function.Function, GlrParseOptions)},
+     * called after forest is enumerated
+     */
+    default void onTrees(List<GlrStack.SyntaxTree> trees) {}
+}
@@ -0,0 +1,66 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.GlrEnums.ParseMetric;
+
+import javax.annotation.Nullable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cost of parse, is filled by parser when it's passed with {@link GlrParseOptions#withMetrics(GlrParseMetrics)}.
+ * Counters are added up if the same object is passed to several parses, PEAK_LIVE_HEADS is max of them.
+ * Isn't thread-safe, use one object per parse and {@link GlrParseMetricsAggregator} to collect them
+ */
+public class GlrParseMetrics {
+
+    private final long[] values = new long[ParseMetric.values().length];
+
+    public long get(ParseMetric metric) {
+        return values[metric.ordinal()];
+    }
+
+    void add(ParseMetric metric, long value) {
+        values[metric.ordinal()] += value;
+    }
+
+    void max(ParseMetric metric, long value) {
+        values[metric.ordinal()] = Math.max(values[metric.ordinal()], value);
+    }
+
+    /**
+     * validator which counts rejected nodes of trees, null if validator is null
+     */
+    @Nullable
+    Function<GlrStack.SyntaxTree, Boolean> countRejects(@Nullable Function<GlrStack.SyntaxTree, Boolean> validator) {
+        if (validator==null) {
+            return null;
+        }
+        return syntaxTree->{
+            Boolean ok = validator.apply(syntaxTree);
+            if (!Boolean.TRUE.equals(ok)) {
+                values[ParseMetric.REJECTED_REDUCTIONS.ordinal()]++;
+            }
+            return ok;
+        };
+    }
+
+    public Map<ParseMetric, Long> toMap() {
+        EnumMap<ParseMetric, Long> map = new EnumMap<>(ParseMetric.class);
+        for (ParseMetric metric : ParseMetric.values()) {
+            map.put(metric, values[metric.ordinal()]);
+        }
+        return map;
+    }
+
+    public String toString() {
+        return toMap().toString();
+    }
+}
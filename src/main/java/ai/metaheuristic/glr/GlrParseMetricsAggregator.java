@@ -0,0 +1,78 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.GlrEnums.ParseMetric;
+
+/**
+ * Histograms of metrics of many parses, is thread-safe.
+ * Bucket 0 counts value 0, bucket i counts values in [2^(i-1), 2^i), so percentile is known up to factor 2
+ */
+public class GlrParseMetricsAggregator {
+
+    public static final int BUCKETS = 64;
+
+    /**
+     * @param buckets number of parses by bucket of value
+     */
+    public record Histogram(long count, long sum, long max, long[] buckets) {
+
+        public double mean() {
+            return count==0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * upper bound of bucket where percentile of values is reached, max value for the last bucket
+         *
+         * @param p from 0.0 to 1.0
+         */
+        public long percentile(double p) {
+            if (p<0 || p>1) {
+                throw new IllegalStateException("(p<0 || p>1), p: " + p);
+            }
+            long threshold = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen>=threshold && seen>0) {
+                    return i==0 ? 0 : Math.min(max, (1L << i) - 1);
+                }
+            }
+            return max;
+        }
+    }
+
+    private final long[][] buckets = new long[ParseMetric.values().length][BUCKETS];
+    private final long[] sums = new long[ParseMetric.values().length];
+    private final long[] maxes = new long[ParseMetric.values().length];
+    private long parses = 0;
+
+    public static int bucket(long value) {
+        return value<=0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    public synchronized void add(GlrParseMetrics metrics) {
+        parses++;
+        for (ParseMetric metric : ParseMetric.values()) {
+            long value = metrics.get(metric);
+            int i = metric.ordinal();
+            buckets[i][bucket(value)]++;
+            sums[i] += value;
+            maxes[i] = Math.max(maxes[i], value);
+        }
+    }
+
+    public synchronized long parses() {
+        return parses;
+    }
+
+    public synchronized Histogram histogram(ParseMetric metric) {
+        int i = metric.ordinal();
+        return new Histogram(parses, sums[i], maxes[i], buckets[i].clone());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import javax.annotation.Nullable;
+
+/**
+ * Options of one parse.
+ *
+ * Beam: score of stack head is the sum of logarithms of weights of rules in the best derivation which leads to this head.
+ * After each token only beamWidth heads with the best scores and heads with score not less than (best score - beamMargin)
+ * are kept, other heads are dropped with all derivations through them. Rules without weight have weight 1.0,
+ * so beam prunes only by explicit weights like (0.5). Score of head is computed when head is created,
+ * derivation which is found later at the same position doesn't raise scores of heads which are already built on it.
+ * In substring mode heads are compared only with heads whose paths start at the same token, i.e. with the same min start,
+ * so longer span with weighted rules isn't dropped by shorter one which starts later
+ *
+ * @param matchPolicy selection of accepted spans in substring mode, is ignored in full match mode
+ * @param beamWidth max number of stack heads after token, in substring mode for each start of paths, 0 - without limit
+ * @param beamMargin heads with score less than (best score - beamMargin) are dropped, Double.POSITIVE_INFINITY - without limit
+ * @param listener receives events of parse, {@link GlrParseListener#NO_OP} - events of parser, i.e. trace with logLevel 1
+ * @param metrics if not null, cost of parse is added to it
+ * @param budget limits of one parse, see {@link Budget}
+ */
+public record GlrParseOptions(
+        GlrEnums.ReduceMode reduceMode, GlrEnums.MatchPolicy matchPolicy, int beamWidth, double beamMargin, GlrParseListener listener,
+        @Nullable GlrParseMetrics metrics, Budget budget) {
+
+    /**
+     * Limits of one parse, 0 - without limit. Live heads are checked after each token, stack nodes are counted for all levels,
+     * trees are counted while they are built from forest. Deadline and interrupt of thread are checked while stack is reduced
+     * and while trees are built, timeout starts when parse starts
+     *
+     * @param timeoutNanos time of parse and building of trees
+     * @param interruptible stop parse if current thread is interrupted, interrupt status isn't cleared
+     * @param policy what parser does when limit is reached
+     */
+    public record Budget(int maxLiveHeads, long maxStackNodes, long maxTrees, long timeoutNanos, boolean interruptible, GlrEnums.BudgetPolicy policy) {
+
+        public static final Budget UNLIMITED = new Budget(0, 0, 0, 0, false, GlrEnums.BudgetPolicy.FAIL);
+
+        public Budget {
+            if (maxLiveHeads<0 || maxStackNodes<0 || maxTrees<0 || timeoutNanos<0) {
+                throw new IllegalStateException("(maxLiveHeads<0 || maxStackNodes<0 || maxTrees<0 || timeoutNanos<0)");
+            }
+        }
+
+        public boolean isLimited() {
+            return maxLiveHeads>0 || maxStackNodes>0 || maxTrees>0 || timeoutNanos>0 || interruptible;
+        }
+
+        /**
+         * deadline for parse which is started at startedOn, Long.MAX_VALUE if there isn't timeout
+         */
+        public long deadline(long startedOn) {
+            return timeoutNanos>0 ? startedOn + timeoutNanos : Long.MAX_VALUE;
+        }
+
+        /**
+         * INTERRUPTED or DEADLINE if parse must be stopped, null otherwise
+         */
+        @Nullable
+        public GlrEnums.ParseLimit outOfTime(long deadline) {
+            if (interruptible && Thread.currentThread().isInterrupted()) {
+                return GlrEnums.ParseLimit.INTERRUPTED;
+            }
+            if (deadline!=Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+                return GlrEnums.ParseLimit.DEADLINE;
+            }
+            return null;
+        }
+    }
+
+    public static final GlrParseOptions DEFAULT = new GlrParseOptions(GlrEnums.ReduceMode.PATHS, GlrEnums.MatchPolicy.ALL, 0, Double.POSITIVE_INFINITY, GlrParseListener.NO_OP, null, Budget.UNLIMITED);
+
+    public GlrParseOptions {
+        if (beamWidth<0) {
+            throw new IllegalStateException("(beamWidth<0), beamWidth: " + beamWidth);
+        }
+        if (Double.isNaN(beamMargin) || beamMargin<0) {
+            throw new IllegalStateException("(Double.isNaN(beamMargin) || beamMargin<0), beamMargin: " + beamMargin);
+        }
+    }
+
+    public GlrParseOptions withReduceMode(GlrEnums.ReduceMode reduceMode) {
+        return new GlrParseOptions(reduceMode, matchPolicy, beamWidth, beamMargin, listener, metrics, budget);
+    }
+
+    public GlrParseOptions withMatchPolicy(GlrEnums.MatchPolicy matchPolicy) {
+        return new GlrParseOptions(reduceMode, matchPolicy, beamWidth, beamMargin, listener, metrics, budget);
+    }
+
+    public GlrParseOptions withBeam(int beamWidth, double beamMargin) {
+        return new GlrParseOptions(reduceMode, matchPolicy, beamWidth, beamMargin, listener, metrics, budget);
+    }
+
+    public GlrParseOptions withListener(GlrParseListener listener) {
+        return new GlrParseOptions(reduceMode, matchPolicy, beamWidth, beamMargin, listener, metrics, budget);
+    }
+
+    public GlrParseOptions withMetrics(@Nullable GlrParseMetrics metrics) {
+        return new GlrParseOptions(reduceMode, matchPolicy, beamWidth, beamMargin, listener, metrics, budget);
+    }
+
+    public GlrParseOptions withBudget(Budget budget) {
+        return new GlrParseOptions(reduceMode, matchPolicy, beamWidth, beamMargin, listener, metrics, budget);
+    }
+
+    public boolean isBeam() {
+        return beamWidth>0 || beamMargin!=Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,780 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.exceptions.GlrParseBudgetException;
+import ai.metaheuristic.glr.token.GlrToken;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * State of one parse, tokens are pushed one by one. Only the current level of graph-structured stack is kept by session,
+ * older nodes and nodes of forest are reachable only through edges of live nodes, so nodes which can't be extended
+ * anymore are released by GC and memory is bounded by the live part of stack, not by the length of input.
+ *
+ * Accepted span can get new derivations only while its last level is reduced, so roots of accepted spans are passed
+ * to consumer right after the next token is pushed. END_OF_TOKEN_LIST is pushed by {@link #finish()}
+ * if it wasn't pushed already. Session isn't thread-safe.
+ *
+ * With {@link GlrEnums.MatchPolicy#LEFTMOST_LONGEST} in substring mode, span is passed to consumer when no live head
+ * has path from the start of this span or before it, i.e. when neither more left nor longer span can be accepted.
+ * Only span which has at least one tree accepted by validator is chosen.
+ * Span which starts inside of already chosen span is dropped as soon as it's accepted, heads which have
+ * all paths started inside of chosen span are dropped too.
+ *
+ * Validator is applied while stack is reduced to derivations whose children are all tokens, the tree of such derivation
+ * is known at once, so rejected path doesn't get stack node and forest alternative. Other derivations depend on trees of children,
+ * and children at the current level can get new alternatives until the level is reduced. So after reduction, each nonterminal
+ * of level is checked once, over valid trees of its children first, then by enumeration of its trees until the first one
+ * accepted by validator or until {@link #MAX_CHECKED_TREES} trees were checked. Edges of nonterminals without valid tree
+ * are dropped before shift, budgets and beam. The result is kept in forest node, so rejected node isn't enumerated again
+ * by derivations of next levels and by forest. Trees of parse are the same as without this check.
+ *
+ * Limits of {@link GlrParseOptions.Budget} are checked after each token, deadline and interrupt are checked while stack is reduced too.
+ * With FAIL policy {@link GlrParseBudgetException} is thrown and session is closed. With PARTIAL policy the level where limit was
+ * reached is dropped, the rest of tokens is ignored and spans which were accepted before are passed to consumer
+ */
+public class GlrParseSession {
+
+    // max number of trees of forest node which are checked by validator after level is reduced
+    public static final int MAX_CHECKED_TREES = 16;
+
+    private final GlrParser parser;
+    private final GlrTable table;
+    private final boolean fullMath;
+    private final GlrParseOptions options;
+    private final GlrEnums.ReduceMode reduceMode;
+    private final Consumer<GlrStack.ForestNode> rootConsumer;
+    @Nullable
+    private final Function<GlrStack.SyntaxTree, Boolean> validator;
+    private final GlrParseListener listener;
+    @Nullable
+    private final GlrParseMetrics metrics;
+    private final GlrParseOptions.Budget budget;
+    private final long deadline;
+    private long stackNodes = 0;
+    private int reductions = 0;
+    @Nullable
+    private GlrEnums.ParseLimit exceeded = null;
+    private final int[] reduceBySymbols;
+    // terminals which the current token is shifted as
+    private final int[] tokenTerminals;
+
+    private GlrStack.Level level;
+    // roots which were accepted at the current level
+    private final LinkedHashSet<GlrStack.ForestNode> accepted = new LinkedHashSet<>();
+    private boolean endPushed = false;
+    private boolean closed = false;
+    // LEFTMOST_LONGEST, the best span which isn't passed to consumer yet, spans which were accepted after the end of candidate,
+    // and the end of the last passed span
+    @Nullable
+    private GlrStack.ForestNode candidate = null;
+    private final List<GlrStack.ForestNode> pending = new ArrayList<>();
+    private int committedEnd = 0;
+    // number of edges of stack nodes which were dropped as dominated
+    int dominatedEdges = 0;
+
+    GlrParseSession(GlrParser parser, boolean fullMath, GlrParseOptions options, Consumer<GlrStack.ForestNode> rootConsumer) {
+        this(parser, fullMath, options, null, rootConsumer);
+    }
+
+    GlrParseSession(
+            GlrParser parser, boolean fullMath, GlrParseOptions options, @Nullable Function<GlrStack.SyntaxTree, Boolean> validator,
+            Consumer<GlrStack.ForestNode> rootConsumer) {
+        this.parser = parser;
+        this.table = parser.table;
+        this.fullMath = fullMath;
+        this.options = options;
+        this.reduceMode = options.reduceMode();
+        this.rootConsumer = rootConsumer;
+        this.validator = validator;
+        this.listener = parser.listener(options);
+        this.metrics = options.metrics();
+        this.budget = options.budget();
+        this.deadline = budget.deadline(System.nanoTime());
+        this.tokenTerminals = new int[parser.maxTokenTerminals];
+        this.reduceBySymbols = new int[parser.maxTokenTerminals + 1];
+        this.level = new GlrStack.Level(0);
+        if (fullMath) {
+            level.addNode(0);
+        }
+    }
+
+    /**
+     * number of tokens which were pushed
+     */
+    public int position() {
+        return level.position;
+    }
+
+    /**
+     * number of stack heads at the current position
+     */
+    public int liveHeads() {
+        return level.nodes().size();
+    }
+
+    /**
+     * number of stack nodes which are reachable from heads, i.e. which are kept by session
+     */
+    int stackNodes() {
+        Set<GlrStack.Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<GlrStack.Node> queue = new ArrayDeque<>(level.nodes());
+        while (!queue.isEmpty()) {
+            GlrStack.Node node = queue.poll();
+            if (visited.add(node)) {
+                node.edges.forEach(o->queue.add(o.target()));
+            }
+        }
+        return visited.size();
+    }
+
+    /**
+     * limit of budget which stopped parsing with PARTIAL policy, null if parsing wasn't stopped
+     */
+    @Nullable
+    public GlrEnums.ParseLimit exceeded() {
+        return exceeded;
+    }
+
+    public void push(GlrToken token) {
+        if (closed) {
+            throw new IllegalStateException("(closed)");
+        }
+        if (exceeded!=null) {
+            return;
+        }
+        if (budget.isLimited()) {
+            GlrEnums.ParseLimit limit = budget.outOfTime(deadline);
+            if (limit!=null) {
+                exceed(limit, "before token #" + level.position);
+                return;
+            }
+        }
+        final int endOfTokenList = table.endOfTokenListId();
+        final int symbol = table.symbolId(token.symbol);
+        endPushed = symbol==endOfTokenList;
+
+        listener.onTokenStart(level, token);
+        if (metrics!=null) {
+            metrics.add(GlrEnums.ParseMetric.TOKENS, 1);
+        }
+
+        final int terminalCount = parser.tokenTerminals(token, symbol, tokenTerminals);
+        int reduceByCount = 0;
+        if (fullMath) {
+            if (terminalCount==0) {
+                reduceBySymbols[reduceByCount++] = symbol;
+            }
+            for (int i = 0; i < terminalCount; i++) {
+                reduceBySymbols[reduceByCount++] = tokenTerminals[i];
+            }
+        }
+        else {
+            // symbol which isn't in grammar is interpreted as end of stream
+            boolean start = parser.startSymbols==null;
+            for (int i = 0; i < terminalCount; i++) {
+                reduceBySymbols[reduceByCount++] = tokenTerminals[i];
+                start |= parser.startSymbols!=null && parser.startSymbols.get(tokenTerminals[i]);
+            }
+
+            // # If not full match on each token we assume rule may start or end
+            if (start && level.node(0)==null) {
+                level.addNode(0);
+            }
+            if (symbol!=endOfTokenList) {
+                reduceBySymbols[reduceByCount++] = endOfTokenList;
+            }
+        }
+
+        for (int i = 0; i < reduceByCount; i++) {
+            final int reduceBySymbol = reduceBySymbols[i];
+            reduce(level, reduceBySymbol);
+            if (exceeded!=null) {
+                return;
+            }
+            for (GlrStack.Node node : level.nodes()) {
+                int cell = table.cell(node.state, reduceBySymbol);
+                if (cell==GlrTable.NO_CELL) {
+                    continue;
+                }
+                for (int a = table.actionStart(cell), end = table.actionEnd(cell); a < end; a++) {
+                    if (table.actionKind(a)==GlrTable.ACCEPT) {
+                        listener.onAccept(node);
+                        for (GlrStack.Edge edge : node.edges) {
+                            accepted.add(edge.forest());
+                        }
+                    }
+                }
+            }
+        }
+        if (validator!=null) {
+            dropInvalid(level);
+        }
+        stackNodes += level.nodes().size();
+        if (budget.maxStackNodes()>0 && stackNodes>budget.maxStackNodes()) {
+            exceed(GlrEnums.ParseLimit.STACK_NODES, "stack nodes: " + stackNodes + ", max: " + budget.maxStackNodes());
+            return;
+        }
+        if (isLeftmostLongest()) {
+            offerAccepted();
+            dropDominated(level);
+        }
+        level = shift(level, token, tokenTerminals, terminalCount);
+        if (options.isBeam()) {
+            prune(level);
+        }
+        if (metrics!=null) {
+            metrics.max(GlrEnums.ParseMetric.PEAK_LIVE_HEADS, level.nodes().size());
+        }
+        flush();
+        if (budget.maxLiveHeads()>0 && level.nodes().size()>budget.maxLiveHeads()) {
+            exceed(GlrEnums.ParseLimit.LIVE_HEADS, "live heads: " + level.nodes().size() + ", max: " + budget.maxLiveHeads());
+        }
+    }
+
+    /**
+     * stop parsing, roots which were accepted at the current level are dropped because their derivations aren't complete
+     */
+    private void exceed(GlrEnums.ParseLimit limit, String message) {
+        accepted.clear();
+        level = new GlrStack.Level(level.position);
+        if (budget.policy()==GlrEnums.BudgetPolicy.FAIL) {
+            closed = true;
+            throw new GlrParseBudgetException(limit, limit + ", " + message);
+        }
+        exceeded = limit;
+        if (metrics!=null) {
+            metrics.add(GlrEnums.ParseMetric.BUDGET_EXCEEDED, 1);
+        }
+    }
+
+    /**
+     * push END_OF_TOKEN_LIST if it wasn't the last pushed token and close session
+     */
+    public void finish() {
+        if (!closed && !endPushed && exceeded==null) {
+            push(new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+        }
+        close();
+    }
+
+    /**
+     * close session without pushing END_OF_TOKEN_LIST, spans which end at the last token aren't accepted in this case
+     */
+    void close() {
+        flush();
+        while (candidate!=null) {
+            commit();
+        }
+        closed = true;
+        level = new GlrStack.Level(level.position);
+    }
+
+    /**
+     * keep beamWidth heads with the best scores and heads within beamMargin from the best score. In substring mode
+     * scores of paths from different starts aren't comparable, so heads are pruned in groups by min start of their paths
+     */
+    private void prune(GlrStack.Level level) {
+        if (level.nodes().isEmpty()) {
+            return;
+        }
+        for (GlrStack.Node head : level.nodes()) {
+            head.updateScore();
+        }
+        if (fullMath) {
+            prune(level, new ArrayList<>(level.nodes()));
+            return;
+        }
+        Map<Integer, List<GlrStack.Node>> byStart = new LinkedHashMap<>();
+        for (GlrStack.Node head : level.nodes()) {
+            byStart.computeIfAbsent(head.minStart(), o->new ArrayList<>()).add(head);
+        }
+        for (List<GlrStack.Node> heads : byStart.values()) {
+            prune(level, heads);
+        }
+    }
+
+    private void prune(GlrStack.Level level, List<GlrStack.Node> heads) {
+        heads.sort(Comparator.comparingDouble(GlrStack.Node::score).reversed());
+        double minScore = heads.get(0).score() - options.beamMargin();
+        int width = options.beamWidth()>0 ? options.beamWidth() : heads.size();
+        for (int i = 0; i < heads.size(); i++) {
+            GlrStack.Node head = heads.get(i);
+            if (i >= width || head.score() < minScore) {
+                listener.onDrop(head);
+                level.removeNode(head);
+            }
+        }
+    }
+
+    private boolean isLeftmostLongest() {
+        return !fullMath && options.matchPolicy()==GlrEnums.MatchPolicy.LEFTMOST_LONGEST;
+    }
+
+    private void flush() {
+        if (!isLeftmostLongest()) {
+            if (accepted.isEmpty()) {
+                return;
+            }
+            List<GlrStack.ForestNode> roots = new ArrayList<>(accepted);
+            accepted.clear();
+            for (GlrStack.ForestNode root : roots) {
+                rootConsumer.accept(root);
+            }
+            return;
+        }
+        offerAccepted();
+        // neither more left nor longer span can be accepted
+        while (candidate!=null && minLiveStart(level) > candidate.start) {
+            commit();
+        }
+        dropDominated(level);
+    }
+
+    /**
+     * pass candidate to consumer, the best of pending spans becomes candidate
+     */
+    private void commit() {
+        GlrStack.ForestNode committed = Objects.requireNonNull(candidate);
+        rootConsumer.accept(committed);
+        committedEnd = committed.end;
+        candidate = null;
+        for (GlrStack.ForestNode root : pending) {
+            if (candidate==null || isBetter(root, candidate)) {
+                candidate = root;
+            }
+        }
+        if (candidate!=null) {
+            final int end = candidate.end;
+            pending.removeIf(o->o.start < end);
+        }
+    }
+
+    /**
+     * Span becomes candidate or pending only if it has tree which is accepted by validator, so span without trees doesn't drop valid spans.
+     * Trees of span are enumerated until the first valid one. Span which starts inside of candidate is dropped, span after
+     * candidate is kept until candidate is passed
+     */
+    private void offerAccepted() {
+        for (GlrStack.ForestNode root : accepted) {
+            if (root.start < committedEnd) {
+                continue;
+            }
+            final boolean better = candidate==null || isBetter(root, candidate);
+            if (!better && root.start < candidate.end) {
+                continue;
+            }
+            if (validator!=null && !hasValidTree(root)) {
+                continue;
+            }
+            if (better) {
+                // new candidate ends at the current level, so all pending spans start inside of it
+                candidate = root;
+                pending.clear();
+            }
+            else {
+                pending.add(root);
+            }
+        }
+        accepted.clear();
+    }
+
+    // the leftmost span, the longest one if spans start at the same token
+    private static boolean isBetter(GlrStack.ForestNode span, GlrStack.ForestNode other) {
+        return span.start < other.start || (span.start==other.start && span.end > other.end);
+    }
+
+    private static int minLiveStart(GlrStack.Level level) {
+        int minLiveStart = Integer.MAX_VALUE;
+        for (GlrStack.Node node : level.nodes()) {
+            minLiveStart = Math.min(minLiveStart, node.minStart());
+        }
+        return minLiveStart;
+    }
+
+    /**
+     * drop edges of nodes of level to paths which start before the end of passed span, or inside of candidate if
+     * there isn't any path which starts before candidate. Spans of these paths would overlap span which is passed
+     * or will be passed to consumer
+     */
+    private void dropDominated(GlrStack.Level level) {
+        final boolean chosen = candidate!=null && minLiveStart(level) >= candidate.start;
+        final int dominatedStart = chosen ? candidate.start : committedEnd;
+        final int dominatedEnd = chosen ? candidate.end : committedEnd;
+        List<GlrStack.Node> dominated = new ArrayList<>();
+        for (GlrStack.Node node : level.nodes()) {
+            int edges = node.edges.size();
+            if (edges==0) {
+                continue;
+            }
+            node.removeEdges(edge->edge.target().maxStart() < committedEnd ||
+                                   (edge.target().minStart() > dominatedStart && edge.target().maxStart() < dominatedEnd));
+            dominatedEdges += edges - node.edges.size();
+            if (node.edges.isEmpty()) {
+                dominated.add(node);
+            }
+        }
+        for (GlrStack.Node node : dominated) {
+            listener.onDrop(node);
+            level.removeNode(node);
+        }
+    }
+
+    private record Reduction(GlrStack.Node node, int ruleIndex, @Nullable GlrStack.Edge edge) {}
+
+    /**
+     * All reductions by lookahead in level. Reduction is done once for each path, when new edge is added to existing node
+     * only paths through this edge are reduced. If level has edges of empty rules, paths through new edge can start
+     * at other nodes of level, in this case all nodes are reduced again (Farshi), duplicates are ignored by forest nodes
+     */
+    private void reduce(GlrStack.Level level, int lookahead) {
+        ArrayDeque<Reduction> queue = new ArrayDeque<>();
+        for (GlrStack.Node node : level.nodes()) {
+            scheduleReductions(node, null, lookahead, true, queue);
+        }
+        boolean emptyEdges = false;
+        while (!queue.isEmpty()) {
+            Reduction reduction = queue.poll();
+            final int ruleIndex = reduction.ruleIndex;
+            int length = table.ruleLength(ruleIndex);
+            listener.onReduce(reduction.node, parser.grammar.rules.get(ruleIndex));
+            if (budget.isLimited() && (++reductions & 0xFF)==0) {
+                GlrEnums.ParseLimit limit = budget.outOfTime(deadline);
+                if (limit!=null) {
+                    exceed(limit, "at token #" + level.position + ", reductions: " + reductions);
+                    return;
+                }
+            }
+            if (metrics!=null) {
+                metrics.add(GlrEnums.ParseMetric.REDUCTIONS, 1);
+            }
+            List<PathEnd> paths = new ArrayList<>();
+            GlrStack.ForestNode[] children = new GlrStack.ForestNode[length];
+            if (length==0) {
+                paths.add(new PathEnd(reduction.node, children));
+            }
+            else if (reduceMode==GlrEnums.ReduceMode.BINARISED && length > 2) {
+                collectBinarisedPaths(level, ruleIndex, length, Objects.requireNonNull(reduction.edge), !emptyEdges, paths);
+            }
+            else {
+                GlrStack.Edge edge = Objects.requireNonNull(reduction.edge);
+                children[length - 1] = edge.forest();
+                collectPaths(edge.target(), length - 1, children, paths);
+            }
+            for (PathEnd path : paths) {
+                GlrStack.Node from = path.node;
+                if (!isValid(ruleIndex, path.children, from.position, level.position)) {
+                    continue;
+                }
+                int cell = table.cell(from.state, table.ruleLeft(ruleIndex));
+                if (cell==GlrTable.NO_CELL) {
+                    continue;
+                }
+                for (int a = table.actionStart(cell), end = table.actionEnd(cell); a < end; a++) {
+                    if (table.actionKind(a)!=GlrTable.GOTO) {
+                        continue;
+                    }
+                    final int state = table.actionValue(a);
+                    int left = table.ruleLeft(ruleIndex);
+                    GlrStack.ForestNode forestNode = level.forestNode(left, table.symbol(left), from.position);
+                    forestNode.addAlternative(new GlrStack.Alternative(ruleIndex, List.of(path.children)), parser.ruleScores[ruleIndex]);
+
+                    GlrStack.Node node = level.node(state);
+                    if (node==null) {
+                        node = level.addNode(state);
+                        GlrStack.Edge newEdge = node.addEdge(from, forestNode);
+                        emptyEdges |= from.position==level.position;
+                        scheduleReductions(node, newEdge, lookahead, true, queue);
+                    }
+                    else if (node.edgeTo(from)==null) {
+                        GlrStack.Edge newEdge = node.addEdge(from, forestNode);
+                        listener.onMerge(node, newEdge);
+                        if (metrics!=null) {
+                            metrics.add(GlrEnums.ParseMetric.MERGES, 1);
+                        }
+                        emptyEdges |= from.position==level.position;
+                        if (emptyEdges) {
+                            for (GlrStack.Node n : level.nodes()) {
+                                scheduleReductions(n, null, lookahead, false, queue);
+                            }
+                        }
+                        else {
+                            scheduleReductions(node, newEdge, lookahead, false, queue);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private record PathEnd(GlrStack.Node node, GlrStack.ForestNode[] children) {}
+
+    /**
+     * check nonterminals of reduced level and drop edges of stack nodes whose nonterminals don't have tree accepted by validator
+     */
+    private void dropInvalid(GlrStack.Level level) {
+        checkForest(level);
+        List<GlrStack.Node> invalid = new ArrayList<>();
+        for (GlrStack.Node node : level.nodes()) {
+            int edges = node.edges.size();
+            if (edges==0) {
+                continue;
+            }
+            node.removeEdges(edge->!hasValidTree(edge.forest()));
+            if (metrics!=null) {
+                metrics.add(GlrEnums.ParseMetric.INVALID_EDGES, edges - node.edges.size());
+            }
+            if (node.edges.isEmpty()) {
+                invalid.add(node);
+            }
+        }
+        for (GlrStack.Node node : invalid) {
+            listener.onDrop(node);
+            level.removeNode(node);
+        }
+    }
+
+    // frame of depth-first traversal of forest nodes of level, position is the next child of the current alternative
+    private static final class CheckFrame {
+        final GlrStack.ForestNode node;
+        final Iterator<GlrStack.Alternative> alternatives;
+        List<GlrStack.ForestNode> children = List.of();
+        int position = 0;
+
+        CheckFrame(GlrStack.ForestNode node) {
+            this.node = node;
+            this.alternatives = node.alternatives.iterator();
+        }
+    }
+
+    /**
+     * check all nonterminals of level, children of the same level are checked before their parents.
+     * Children in cycles of empty or unary rules can't be checked first, such parents are checked by enumeration of trees
+     */
+    private void checkForest(GlrStack.Level level) {
+        Set<GlrStack.ForestNode> inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<CheckFrame> stack = new ArrayDeque<>();
+        for (GlrStack.ForestNode root : level.forestNodes()) {
+            if (root.valid!=null) {
+                continue;
+            }
+            stack.push(new CheckFrame(root));
+            inProgress.add(root);
+            while (!stack.isEmpty()) {
+                CheckFrame frame = stack.peek();
+                if (frame.position < frame.children.size()) {
+                    GlrStack.ForestNode child = frame.children.get(frame.position++);
+                    if (child.token==null && !child.intermediate && child.valid==null && child.end==level.position && inProgress.add(child)) {
+                        stack.push(new CheckFrame(child));
+                    }
+                    continue;
+                }
+                if (frame.alternatives.hasNext()) {
+                    frame.children = frame.alternatives.next().children();
+                    frame.position = 0;
+                    continue;
+                }
+                stack.pop();
+                inProgress.remove(frame.node);
+                check(frame.node);
+            }
+        }
+    }
+
+    /**
+     * Node is valid if tree of one of its alternatives over valid trees of children is accepted by validator.
+     * Otherwise trees of node are enumerated, number of trees is exponential in ambiguous forest, so after
+     * {@link #MAX_CHECKED_TREES} calls of validator node is considered valid. Only node without valid tree is rejected
+     */
+    private void check(GlrStack.ForestNode node) {
+        final Function<GlrStack.SyntaxTree, Boolean> nodeValidator = Objects.requireNonNull(validator);
+        for (GlrStack.Alternative alternative : node.alternatives) {
+            GlrStack.SyntaxTree tree = treeOfValidChildren(node, alternative);
+            if (tree!=null && nodeValidator.apply(tree)) {
+                node.valid = true;
+                node.validTree = tree;
+                return;
+            }
+        }
+        final int[] checked = {0};
+        node.validTree = GlrForest.firstTree(node, tree->++checked[0] > MAX_CHECKED_TREES || nodeValidator.apply(tree));
+        node.valid = node.validTree!=null;
+    }
+
+    /**
+     * tree of alternative over valid trees of children, null if any child isn't checked or is invalid
+     */
+    @Nullable
+    private static GlrStack.SyntaxTree treeOfValidChildren(GlrStack.ForestNode node, GlrStack.Alternative alternative) {
+        List<GlrStack.SyntaxTree> trees = new ArrayList<>(alternative.children().size());
+        for (GlrStack.ForestNode child : alternative.children()) {
+            if (child.token!=null) {
+                trees.add(new GlrStack.SyntaxTree(child.token.symbol, child.token, null, List.of(), child.start, child.end));
+            }
+            else if (child.validTree!=null && !child.intermediate) {
+                trees.add(child.validTree);
+            }
+            else {
+                return null;
+            }
+        }
+        return new GlrStack.SyntaxTree(node.symbol, null, alternative.ruleIndex(), trees, node.start, node.end);
+    }
+
+    /**
+     * forest node must be complete, i.e. its level must be reduced
+     */
+    private boolean hasValidTree(GlrStack.ForestNode node) {
+        if (node.token!=null) {
+            return true;
+        }
+        if (node.valid==null) {
+            check(node);
+        }
+        return Objects.requireNonNull(node.valid);
+    }
+
+    /**
+     * false if children of path are all tokens and validator rejects their tree, path with nonterminal child isn't checked
+     */
+    private boolean isValid(int ruleIndex, GlrStack.ForestNode[] children, int start, int end) {
+        if (validator==null) {
+            return true;
+        }
+        List<GlrStack.SyntaxTree> trees = new ArrayList<>(children.length);
+        for (GlrStack.ForestNode child : children) {
+            if (child.token==null) {
+                return true;
+            }
+            trees.add(new GlrStack.SyntaxTree(child.token.symbol, child.token, null, List.of(), child.start, child.end));
+        }
+        return validator.apply(new GlrStack.SyntaxTree(table.symbol(table.ruleLeft(ruleIndex)), null, ruleIndex, trees, start, end));
+    }
+
+    private static void collectPaths(GlrStack.Node node, int remaining, GlrStack.ForestNode[] children, List<PathEnd> paths) {
+        if (remaining==0) {
+            paths.add(new PathEnd(node, children.clone()));
+            return;
+        }
+        for (GlrStack.Edge edge : node.edges) {
+            children[remaining - 1] = edge.forest();
+            collectPaths(edge.target(), remaining - 1, children, paths);
+        }
+    }
+
+    /**
+     * Paths of reduction by rule with more than 2 symbols, one symbol is passed at each step. All partial paths which
+     * reach the same stack node are merged, their symbols are kept as one intermediate forest node,
+     * so the number of paths at each step isn't more than the number of stack nodes.
+     * Children of path end are the first symbol and intermediate node of the rest
+     *
+     * @param reuse paths which were continued from stack node by previous reduction aren't continued again, only
+     *              intermediate node gets new alternative. It's false when edges to nodes of the current level can be added,
+     *              i.e. with empty rules
+     */
+    private void collectBinarisedPaths(GlrStack.Level level, int ruleIndex, int length, GlrStack.Edge edge, boolean reuse, List<PathEnd> paths) {
+        String name = table.symbol(table.ruleLeft(ruleIndex));
+        // the last symbols of rule which are passed, by node where these symbols start
+        LinkedHashMap<GlrStack.Node, GlrStack.ForestNode> frontier = new LinkedHashMap<>();
+        frontier.put(edge.target(), edge.forest());
+        for (int passed = 1; passed < length - 1; passed++) {
+            LinkedHashMap<GlrStack.Node, GlrStack.ForestNode> next = new LinkedHashMap<>();
+            for (Map.Entry<GlrStack.Node, GlrStack.ForestNode> entry : frontier.entrySet()) {
+                for (GlrStack.Edge e : entry.getKey().edges) {
+                    GlrStack.ForestNode intermediate = level.intermediateNode(ruleIndex, passed + 1, e.target().position, name);
+                    intermediate.addAlternative(new GlrStack.Alternative(ruleIndex, List.of(e.forest(), entry.getValue())), 0);
+                    if (!next.containsKey(e.target()) && (level.markContinued(ruleIndex, passed + 1, e.target()) || !reuse)) {
+                        next.put(e.target(), intermediate);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        for (Map.Entry<GlrStack.Node, GlrStack.ForestNode> entry : frontier.entrySet()) {
+            for (GlrStack.Edge e : entry.getKey().edges) {
+                paths.add(new PathEnd(e.target(), new GlrStack.ForestNode[]{e.forest(), entry.getValue()}));
+            }
+        }
+    }
+
+    /**
+     * @param edge if not null, only paths which start with this edge are reduced
+     * @param withEmpty reduce by empty rules too, it's needed only once for each node
+     */
+    private void scheduleReductions(GlrStack.Node node, @Nullable GlrStack.Edge edge, int lookahead, boolean withEmpty, ArrayDeque<Reduction> queue) {
+        int cell = table.cell(node.state, lookahead);
+        if (cell==GlrTable.NO_CELL) {
+            return;
+        }
+        for (int a = table.actionStart(cell), end = table.actionEnd(cell); a < end; a++) {
+            if (table.actionKind(a)!=GlrTable.REDUCE) {
+                continue;
+            }
+            final int ruleIndex = table.actionValue(a);
+            if (table.ruleLength(ruleIndex)==0) {
+                if (withEmpty) {
+                    queue.add(new Reduction(node, ruleIndex, null));
+                }
+            }
+            else if (edge!=null) {
+                queue.add(new Reduction(node, ruleIndex, edge));
+            }
+            else {
+                for (GlrStack.Edge e : node.edges) {
+                    queue.add(new Reduction(node, ruleIndex, e));
+                }
+            }
+        }
+    }
+
+    /**
+     * token is shifted as each of terminals, all shifts share one leaf of forest
+     */
+    private GlrStack.Level shift(GlrStack.Level level, GlrToken token, int[] terminals, int terminalCount) {
+        GlrStack.Level next = new GlrStack.Level(level.position + 1);
+        GlrStack.ForestNode leaf = new GlrStack.ForestNode(token.symbol, level.position, level.position + 1, token);
+        for (int t = 0; t < terminalCount; t++) {
+            shift(level, next, leaf, terminals[t]);
+        }
+        return next;
+    }
+
+    private void shift(GlrStack.Level level, GlrStack.Level next, GlrStack.ForestNode leaf, int symbol) {
+        for (GlrStack.Node node : level.nodes()) {
+            int cell = table.cell(node.state, symbol);
+            if (cell==GlrTable.NO_CELL) {
+                continue;
+            }
+            for (int a = table.actionStart(cell), end = table.actionEnd(cell); a < end; a++) {
+                if (table.actionKind(a)!=GlrTable.SHIFT) {
+                    continue;
+                }
+                final int state = table.actionValue(a);
+                GlrStack.Node shifted = next.node(state);
+                if (shifted==null) {
+                    shifted = next.addNode(state);
+                    shifted.addEdge(node, leaf);
+                }
+                else if (shifted.edgeTo(node)==null) {
+                    listener.onMerge(shifted, shifted.addEdge(node, leaf));
+                    if (metrics!=null) {
+                        metrics.add(GlrEnums.ParseMetric.MERGES, 1);
+                    }
+                }
+                listener.onShift(node, shifted);
+                if (metrics!=null) {
+                    metrics.add(GlrEnums.ParseMetric.SHIFTS, 1);
+                }
+            }
+        }
+    }
+}
@@ -7,76 +7,263 @@
 
 package ai.metaheuristic.glr;
 
+import ai.metaheuristic.glr.exceptions.GlrParseBudgetException;
 import ai.metaheuristic.glr.token.GlrToken;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Supplier;
 
 /**
+ * Parser isn't changed after creating, state of parsing is local to each call or {@link GlrParseSession}.
+ * So methods of parsing can be called from many threads at once, except of tracing with log level 1 and above
+ * which prints steps of different parses in mix
+ *
  * @author Sergio Lissner
  * Date: 9/10/2022
  * Time: 10:47 PM
  */
 public class GlrParser {
 
-    public void log(int level, String pattern) {
-        log(level, pattern, null);
+    public final GlrGrammar grammar;
+    private final int logLevel;
+    public final List<LinkedHashMap<String, List<GlrLr.Action>>> actionGotoTable;
+    public final GlrTable table;
+    // conflicts of table, risky grammar is reported or rejected by GlrBuildOptions.maxHeads() when table is built or loaded
+    public final GlrConflictReport conflictReport;
+    // mode which table was built in, parser over loaded table is rebuilt from scratch in this mode
+    public final GlrEnums.LrMode lrMode;
+    // state graph which is used for incremental rebuilding, null if parser was created over loaded table
+    @Nullable
+    private final GlrLrBuilder.Automaton automaton;
+    // FIRST set of start rule, new stack is started only at token from this set. null if any nonterminal is nullable
+    @Nullable
+    final BitSet startSymbols;
+    // logarithm of weight of rule by index of rule
+    final double[] ruleScores;
+    // listener of sessions which don't have own listener
+    final GlrParseListener listener;
+    // terminals with unary labels, tables are built over grammar of these classes
+    public final GlrTerminalClasses terminalClasses;
+    // refined terminals by symbol of token, with their ids in table
+    private final Map<String, TokenClasses> tokenClasses;
+    // max number of terminals which one token can be shifted as
+    final int maxTokenTerminals;
+
+    private record TokenClasses(GlrTerminalClasses.TerminalClass[] classes, int[] ids) {}
+
+    public GlrParser(GlrGrammar grammar) {
+        this(grammar, 0);
+    }
+
+    public GlrParser(GlrGrammar grammar, int logLevel) {
+        this(grammar, logLevel, GlrEnums.LrMode.SLR);
+    }
+
+    public GlrParser(GlrGrammar grammar, int logLevel, GlrEnums.LrMode lrMode) {
+        this(grammar, logLevel, lrMode, null);
     }
 
-    public void logList(int level, String pattern, @Nullable Supplier<List<Object>> objectsFunc) {
-        if (objectsFunc==null) {
-            log(level, pattern);
+    /**
+     * @param pool if not null, tables are built in parallel in this pool
+     */
+    public GlrParser(GlrGrammar grammar, int logLevel, GlrEnums.LrMode lrMode, @Nullable ForkJoinPool pool) {
+        this(grammar, new GlrBuildOptions(logLevel, lrMode, pool));
+    }
+
+    public GlrParser(GlrGrammar grammar, GlrBuildOptions options) {
+        this(grammar, GlrTerminalClasses.compile(grammar), options);
+    }
+
+    private GlrParser(GlrGrammar grammar, GlrTerminalClasses terminalClasses, GlrBuildOptions options) {
+        this(grammar, terminalClasses, new GlrLrBuilder(terminalClasses.grammar, options.pool()).generate(options.lrMode()), null, options.lrMode(), options.logLevel());
+        options.checkRisk(conflictReport);
+    }
+
+    /**
+     * @param prevActionGotoTable rows of this table which are equal to new rows are shared with new table
+     */
+    private GlrParser(
+            GlrGrammar grammar, GlrTerminalClasses terminalClasses, GlrLrBuilder.Automaton automaton,
+            @Nullable List<LinkedHashMap<String, List<GlrLr.Action>>> prevActionGotoTable, GlrEnums.LrMode lrMode, int logLevel) {
+        this.grammar = grammar;
+        this.terminalClasses = terminalClasses;
+        this.lrMode = lrMode;
+        this.automaton = automaton;
+        List<LinkedHashMap<String, List<GlrLr.Action>>> actionGotoTable = GlrLr.generateActionGotoTable(terminalClasses.grammar, automaton);
+        if (prevActionGotoTable!=null) {
+            for (int i = 0; i < actionGotoTable.size() && i < prevActionGotoTable.size(); i++) {
+                LinkedHashMap<String, List<GlrLr.Action>> prevRow = prevActionGotoTable.get(i);
+                // the order of keys is compared too
+                if (new ArrayList<>(prevRow.entrySet()).equals(new ArrayList<>(actionGotoTable.get(i).entrySet()))) {
+                    actionGotoTable.set(i, prevRow);
+                }
+            }
         }
-        else {
-            log(level, pattern, () -> objectsFunc.get().toArray(new Object[0]));
+        this.actionGotoTable = Collections.unmodifiableList(actionGotoTable);
+        this.table = GlrTable.compile(terminalClasses.grammar, actionGotoTable);
+        this.startSymbols = startSymbols(terminalClasses.grammar);
+        this.tokenClasses = tokenClasses(terminalClasses, table);
+        this.maxTokenTerminals = maxTokenTerminals(tokenClasses);
+        this.ruleScores = ruleScores(grammar);
+        this.logLevel = logLevel;
+        this.listener = logLevel>=1 ? new GlrTraceListener() : GlrParseListener.NO_OP;
+        this.conflictReport = GlrConflictReport.analyze(actionGotoTable);
+    }
+
+    /**
+     * parser over already compiled table, i.e. loaded with {@link GlrGrammarStorage#load(java.nio.file.Path)}
+     */
+    public GlrParser(GlrGrammar grammar, GlrTable table, int logLevel) {
+        this(grammar, table, GlrBuildOptions.DEFAULT.withLogLevel(logLevel));
+    }
+
+    /**
+     * parser over already compiled table, LR mode of options must be the mode which table was built in,
+     * it's used when parser is rebuilt by {@link #addRules(List)}. Pool of options isn't used, risk of grammar is checked
+     */
+    public GlrParser(GlrGrammar grammar, GlrTable table, GlrBuildOptions options) {
+        final int logLevel = options.logLevel();
+        this.grammar = grammar;
+        this.terminalClasses = GlrTerminalClasses.compile(grammar);
+        this.table = table;
+        this.actionGotoTable = Collections.unmodifiableList(table.toActionGotoTable());
+        this.lrMode = options.lrMode();
+        this.automaton = null;
+        this.startSymbols = startSymbols(terminalClasses.grammar);
+        this.tokenClasses = tokenClasses(terminalClasses, table);
+        this.maxTokenTerminals = maxTokenTerminals(tokenClasses);
+        this.ruleScores = ruleScores(grammar);
+        this.logLevel = logLevel;
+        this.listener = logLevel>=1 ? new GlrTraceListener() : GlrParseListener.NO_OP;
+        this.conflictReport = GlrConflictReport.analyze(actionGotoTable);
+        options.checkRisk(conflictReport);
+    }
+
+    private static Map<String, TokenClasses> tokenClasses(GlrTerminalClasses terminalClasses, GlrTable table) {
+        Map<String, TokenClasses> result = new HashMap<>();
+        for (Map.Entry<String, List<GlrTerminalClasses.TerminalClass>> entry : terminalClasses.classes.entrySet()) {
+            List<GlrTerminalClasses.TerminalClass> classes = entry.getValue();
+            result.put(entry.getKey(), new TokenClasses(
+                    classes.toArray(new GlrTerminalClasses.TerminalClass[0]), classes.stream().mapToInt(o->table.symbolId(o.symbol())).toArray()));
         }
+        return result;
     }
-    public void log(int level, String pattern, @Nullable Supplier<Object[]> objectsFunc) {
-        if (level <= logLevel) {
-            if (objectsFunc!=null) {
-                System.out.printf(pattern, objectsFunc.get());
-            }
-            else {
-                System.out.printf(pattern);
+
+    private static int maxTokenTerminals(Map<String, TokenClasses> tokenClasses) {
+        return 1 + tokenClasses.values().stream().mapToInt(o->o.ids.length).max().orElse(0);
+    }
+
+    /**
+     * ids of terminals of table which token is shifted as, i.e. symbol of token and refined terminals whose labels are satisfied by token
+     *
+     * @param symbol id of symbol of token in table
+     * @param terminals array with length of {@link #maxTokenTerminals} at least
+     * @return number of ids which were put to terminals
+     */
+    int tokenTerminals(GlrToken token, int symbol, int[] terminals) {
+        int count = 0;
+        if (table.isTerminal(symbol)) {
+            terminals[count++] = symbol;
+        }
+        TokenClasses classes = tokenClasses.isEmpty() ? null : tokenClasses.get(token.symbol);
+        if (classes!=null) {
+            for (int i = 0; i < classes.ids.length; i++) {
+                if (classes.ids[i]>=0 && classes.classes[i].test(token)) {
+                    terminals[count++] = classes.ids[i];
+                }
             }
-            System.out.println();
         }
+        return count;
     }
 
-    public record NodeAndAction(GlrStack.StackItem node, GlrLr.Action action) {}
-    public List<NodeAndAction> getByActionType(List<GlrStack.StackItem> nodes, GlrToken token, String actionType) {
-        List<NodeAndAction> result = new ArrayList<>();
-        for (GlrStack.StackItem node : nodes) {
-            if (node.state==null) {
-                throw new IllegalStateException("(node.state==null)");
+    private static double[] ruleScores(GlrGrammar grammar) {
+        double[] scores = new double[grammar.rules.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = Math.log(grammar.rules.get(i).weight());
+        }
+        return scores;
+    }
+
+    @Nullable
+    private static BitSet startSymbols(GlrGrammar grammar) {
+        GlrFirstFollow firstFollow = new GlrFirstFollow(grammar);
+        for (int i = 0; i < grammar.symbolCount(); i++) {
+            if (firstFollow.nullable(i)) {
+                return null;
             }
-            List<GlrLr.Action> nodeActions = actionGotoTable.get(node.state).get(token.symbol);
-            if (nodeActions==null) {
+        }
+        return firstFollow.first(grammar.ruleLeftId(0));
+    }
+
+    public GlrParser addRule(GlrGrammar.Rule rule) {
+        return addRules(List.of(rule));
+    }
+
+    /**
+     * new parser with rules added to the end of grammar, this parser isn't changed.
+     * Only states which depend on left symbols of new rules are built again, see {@link GlrLrBuilder#generate(GlrLrBuilder.Automaton, int[], Set)}.
+     * Indexes of new rules are assigned in order of adding.
+     *
+     * Only state graph is incremental. FIRST/FOLLOW sets, action/goto table and {@link GlrTable} are built again
+     * for the whole grammar, unchanged rows are shared with this parser. Parser over loaded table doesn't have state graph,
+     * its state graph is built from scratch in {@link #lrMode}
+     */
+    public GlrParser addRules(List<GlrGrammar.Rule> newRules) {
+        List<GlrGrammar.Rule> rules = new ArrayList<>(grammar.rules);
+        Set<String> changedSymbols = new HashSet<>();
+        for (GlrGrammar.Rule rule : newRules) {
+            rules.add(new GlrGrammar.Rule(rules.size(), rule.leftSymbol(), rule.rightSymbols(), rule.commit(), rule.params(), rule.weight()));
+            changedSymbols.add(rule.leftSymbol());
+        }
+        int[] ruleMapping = new int[grammar.rules.size()];
+        for (int i = 0; i < ruleMapping.length; i++) {
+            ruleMapping[i] = i;
+        }
+        return rebuild(new GlrGrammar(rules), ruleMapping, changedSymbols);
+    }
+
+    /**
+     * new parser without rule, this parser isn't changed. Indexes of rules after removed one are decreased by 1.
+     * Tables are rebuilt in the same way as by {@link #addRules(List)}
+     */
+    public GlrParser removeRule(int ruleIndex) {
+        if (ruleIndex<=0 || ruleIndex>=grammar.rules.size()) {
+            throw new IllegalStateException("(ruleIndex<=0 || ruleIndex>=grammar.rules.size()), ruleIndex: " + ruleIndex);
+        }
+        List<GlrGrammar.Rule> rules = new ArrayList<>();
+        int[] ruleMapping = new int[grammar.rules.size()];
+        for (GlrGrammar.Rule rule : grammar.rules) {
+            if (rule.index()==ruleIndex) {
+                ruleMapping[rule.index()] = -1;
                 continue;
             }
-            for (GlrLr.Action action : nodeActions) {
-                if (action.type().equals(actionType)) {
-                    result.add(new NodeAndAction(node, action));
-                }
-            }
+            ruleMapping[rule.index()] = rules.size();
+            rules.add(rule.index()==rules.size()
+                    ? rule
+                    : new GlrGrammar.Rule(rules.size(), rule.leftSymbol(), rule.rightSymbols(), rule.commit(), rule.params(), rule.weight()));
         }
-        return result;
+        return rebuild(new GlrGrammar(rules), ruleMapping, Set.of(grammar.rules.get(ruleIndex).leftSymbol()));
     }
 
-    public final GlrGrammar grammar;
-    private final int logLevel;
-    public final List<LinkedHashMap<String, List<GlrLr.Action>>> actionGotoTable;
+    private GlrParser rebuild(GlrGrammar newGrammar, int[] ruleMapping, Set<String> changedSymbols) {
+        GlrTerminalClasses newTerminalClasses = GlrTerminalClasses.compile(newGrammar);
+        GlrLrBuilder builder = new GlrLrBuilder(newTerminalClasses.grammar);
+        GlrLrBuilder.Automaton newAutomaton = automaton==null
+                ? builder.generate(lrMode)
+                : builder.generate(automaton, ruleMapping, changedSymbols);
+        return new GlrParser(newGrammar, newTerminalClasses, newAutomaton, actionGotoTable, lrMode, logLevel);
+    }
 
-    public GlrParser(GlrGrammar grammar) {
-        this(grammar, 0);
+    public GlrLr.Conflicts conflicts() {
+        return conflictReport.totals();
     }
 
-    public GlrParser(GlrGrammar grammar, int logLevel) {
-        this.grammar = grammar;
-        this.actionGotoTable = GlrLr.generateActionGotoTable(grammar);
-        this.logLevel = logLevel;
+    // listener of options, listener of parser if options don't have own one
+    GlrParseListener listener(GlrParseOptions options) {
+        return options.listener()!=GlrParseListener.NO_OP ? options.listener() : listener;
     }
 
     public List<GlrStack.SyntaxTree> parse(List<GlrToken> reduceByTokens, boolean fullMath) {
@@ -85,89 +272,173 @@ public class GlrParser {
 
     public List<GlrStack.SyntaxTree> parse(
             List<? extends GlrToken> reduceByTokensParams, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator) {
+        return parse(reduceByTokensParams, fullMath, reduceValidator, GlrEnums.ReduceMode.PATHS);
+    }
 
-        List<GlrStack.StackItem> acceptedNodes = new ArrayList<>();
-
-        List<GlrStack.StackItem> current = fullMath
-                ? new ArrayList<>(List.of(GlrStack.StackItem.startNew()))
-                : new ArrayList<>();
-        for (int tokenIndex = 0; tokenIndex < reduceByTokensParams.size(); tokenIndex++) {
-            GlrToken token = reduceByTokensParams.get(tokenIndex);
+    public List<GlrStack.SyntaxTree> parse(
+            List<? extends GlrToken> reduceByTokensParams, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator,
+            GlrEnums.ReduceMode reduceMode) {
+        return parse(reduceByTokensParams, fullMath, reduceValidator, GlrParseOptions.DEFAULT.withReduceMode(reduceMode));
+    }
 
-            logList(1, "\nTOKEN: %s", ()->List.of(token));
+    public List<GlrStack.SyntaxTree> parse(
+            List<? extends GlrToken> reduceByTokensParams, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator,
+            GlrParseOptions options) {
+        GlrParseOptions.Budget budget = options.budget();
+        long deadline = budget.deadline(System.nanoTime());
+        GlrForest forest = parseForest(
+                reduceByTokensParams, fullMath, reduceValidator, budget.isLimited() ? checkTime(reduceValidator, budget, deadline) : reduceValidator, options);
+        long startedOn = System.nanoTime();
+        List<GlrStack.SyntaxTree> result = budget.isLimited() ? limitedTrees(forest, budget, deadline, options.metrics()) : forest.toList();
+        addTreeMetrics(options.metrics(), result, startedOn);
+        listener(options).onTrees(result);
+        return result;
+    }
 
-            List<GlrToken> reduceByTokens = new ArrayList<>(List.of(token));
+    /**
+     * the best tree of each accepted span by weights of rules, see {@link GlrForest#bestTrees()}. Other trees aren't built
+     */
+    public List<GlrStack.SyntaxTree> parseBest(
+            List<? extends GlrToken> reduceByTokensParams, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator) {
+        return parseBest(reduceByTokensParams, fullMath, reduceValidator, GlrParseOptions.DEFAULT);
+    }
 
-            if (!fullMath) {
-                if ( !grammar.terminals.contains(token.symbol)) {
-                    log(1, "- Not in grammar, interpret as end of stream");
-                    reduceByTokens = new ArrayList<>();
-                }
+    public List<GlrStack.SyntaxTree> parseBest(
+            List<? extends GlrToken> reduceByTokensParams, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator,
+            GlrParseOptions options) {
+        GlrForest forest = parseForest(reduceByTokensParams, fullMath, reduceValidator, options);
+        long startedOn = System.nanoTime();
+        List<GlrStack.SyntaxTree> result = forest.bestTrees();
+        addTreeMetrics(options.metrics(), result, startedOn);
+        return result;
+    }
 
-                // # If not full match on each token we assume rule may start or end
-                current.add(GlrStack.StackItem.startNew());
-                if (!GlrConsts.END_OF_TOKEN_LIST.equals(token.symbol)) {
-                    reduceByTokens.add(new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
-                }
+    /**
+     * validator which throws {@link GlrParseBudgetException} when deadline is reached or thread is interrupted,
+     * it's called for each node of tree, so time is checked while trees are built
+     */
+    private static Function<GlrStack.SyntaxTree, Boolean> checkTime(
+            @Nullable Function<GlrStack.SyntaxTree, Boolean> validator, GlrParseOptions.Budget budget, long deadline) {
+        return syntaxTree->{
+            GlrEnums.ParseLimit limit = budget.outOfTime(deadline);
+            if (limit!=null) {
+                throw new GlrParseBudgetException(limit, limit + ", while trees were built");
             }
+            return validator==null || validator.apply(syntaxTree);
+        };
+    }
 
-            for (GlrToken reduceByToken : reduceByTokens) {
-                List<GlrStack.StackItem> processReduceNodes = new ArrayList<>(current);
-                while (!processReduceNodes.isEmpty()) {
-                    List<GlrStack.StackItem> newReduceNodes = new ArrayList<>();
-                    for (NodeAndAction r : getByActionType(processReduceNodes, reduceByToken, "R")) {
-                        GlrStack.StackItem node = r.node;
-                        GlrLr.Action action = r.action;
-
-                        if (action.ruleIndex() == null) {
-                            throw new IllegalStateException("(action.ruleIndex()==null)");
-                        }
-                        GlrGrammar.Rule rule = grammar.rules.get(action.ruleIndex());
-                        // - REDUCE: (word.10) by (#11: Symbol =
-                        logList(1, "- REDUCE: (%s) by (%s)", ()->List.of(node, GlrUtils.formatRule(rule)));
-                        List<GlrStack.StackItem> reducedNodes = node.reduce(actionGotoTable, rule, reduceValidator);
-                        newReduceNodes.addAll(reducedNodes);
-                        for (GlrStack.StackItem n : reducedNodes) {
-                            logList(1, "     %s", ()->List.of(GlrUtils.formatStackItem(n, "     ")));
-                        }
-                    }
-                    processReduceNodes = newReduceNodes;
-                    current.addAll(newReduceNodes);
+    /**
+     * trees are enumerated lazily, building is stopped when limit of budget is reached
+     */
+    private static List<GlrStack.SyntaxTree> limitedTrees(
+            GlrForest forest, GlrParseOptions.Budget budget, long deadline, @Nullable GlrParseMetrics metrics) {
+        List<GlrStack.SyntaxTree> result = new ArrayList<>();
+        try {
+            // trees are kept in result, so their equal subtrees are shared
+            Iterator<GlrStack.SyntaxTree> trees = forest.iterator(new GlrStack.SyntaxTreeFactory());
+            while (trees.hasNext()) {
+                GlrStack.SyntaxTree syntaxTree = trees.next();
+                if (budget.maxTrees()>0 && result.size()>=budget.maxTrees()) {
+                    throw new GlrParseBudgetException(GlrEnums.ParseLimit.TREES, "TREES, max: " + budget.maxTrees());
                 }
-                for (NodeAndAction nodeAndAction : getByActionType(current, reduceByToken, "A")) {
-                    GlrStack.StackItem node = nodeAndAction.node;
-                    logList(1, "- ACCEPT: (%s)", ()->List.of(node));
-                    acceptedNodes.add(node);
+                GlrEnums.ParseLimit limit = budget.outOfTime(deadline);
+                if (limit!=null) {
+                    throw new GlrParseBudgetException(limit, limit + ", while trees were built");
                 }
+                result.add(syntaxTree);
             }
-            List<GlrStack.StackItem> shiftedNodes = new ArrayList<>();
-            final List<NodeAndAction> list = getByActionType(current, token, "S");
-            for (NodeAndAction nodeAndAction : list) {
-                GlrStack.StackItem node = nodeAndAction.node;
-                GlrLr.Action action = nodeAndAction.action;
-                if (action.state()==null) {
-                    throw new IllegalStateException("(action.state()==null)");
-                }
-                var shiftedNode = node.shift(token, action.state());
-                logList(1, "- SHIFT: (%s) to (%s)  =>  %s", ()->List.of(node, action.state(), shiftedNode));
-                shiftedNodes.add(shiftedNode);
+        }
+        catch (GlrParseBudgetException e) {
+            if (budget.policy()==GlrEnums.BudgetPolicy.FAIL) {
+                throw e;
             }
-            current = shiftedNodes;
-            current = new LinkedList<>(GlrStack.StackItem.merge(current));
-            log(1, "\n- STACK:");
-            for (GlrStack.StackItem node : current) {
-                final String path = GlrUtils.formatStackItem(node, "    ");
-                logList(1, "    %s", ()->List.of(path));
+            if (metrics!=null && forest.exceeded==null) {
+                metrics.add(GlrEnums.ParseMetric.BUDGET_EXCEEDED, 1);
             }
-            int i=0;
         }
-        log(1, "\n--------------------\nACCEPTED:");
-        for (GlrStack.StackItem node : acceptedNodes) {
-            if (node.syntaxTree == null) {
-                throw new IllegalStateException("(node.syntax_tree==null)");
-            }
-            logList(1, "%s", ()->List.of(GlrUtils.formatSyntaxTree(node.syntaxTree)));
+        return result;
+    }
+
+    private static void addTreeMetrics(@Nullable GlrParseMetrics metrics, List<GlrStack.SyntaxTree> trees, long startedOn) {
+        if (metrics!=null) {
+            metrics.add(GlrEnums.ParseMetric.TREE_NANOS, System.nanoTime() - startedOn);
+            metrics.add(GlrEnums.ParseMetric.ACCEPTED_TREES, trees.size());
         }
-        return acceptedNodes.stream().map(o->o.syntaxTree).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * parse without building of trees, trees can be enumerated from result lazily
+     *
+     * @param reduceValidator is applied to derivations of tokens while stack is reduced and to other nodes of trees
+     *                        when they are enumerated from forest, see {@link GlrParseSession}
+     */
+    public GlrForest parseForest(
+            List<? extends GlrToken> reduceByTokensParams, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator) {
+        return parseForest(reduceByTokensParams, fullMath, reduceValidator, GlrParseOptions.DEFAULT);
+    }
+
+    public GlrForest parseForest(
+            List<? extends GlrToken> reduceByTokensParams, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator,
+            GlrEnums.ReduceMode reduceMode) {
+        return parseForest(reduceByTokensParams, fullMath, reduceValidator, GlrParseOptions.DEFAULT.withReduceMode(reduceMode));
+    }
+
+    public GlrForest parseForest(
+            List<? extends GlrToken> reduceByTokensParams, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator,
+            GlrParseOptions options) {
+        return parseForest(reduceByTokensParams, fullMath, reduceValidator, reduceValidator, options);
+    }
+
+    /**
+     * @param treeValidator validator of forest, it's checked while trees are built
+     */
+    private GlrForest parseForest(
+            List<? extends GlrToken> reduceByTokensParams, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator,
+            @Nullable Function<GlrStack.SyntaxTree, Boolean> treeValidator, GlrParseOptions options) {
+        long startedOn = System.nanoTime();
+        GlrParseMetrics metrics = options.metrics();
+        List<GlrStack.ForestNode> accepted = new ArrayList<>();
+        GlrParseSession session = new GlrParseSession(
+                this, fullMath, options, metrics!=null ? metrics.countRejects(reduceValidator) : reduceValidator, accepted::add);
+        for (GlrToken token : reduceByTokensParams) {
+            session.push(token);
+        }
+        session.close();
+        if (metrics!=null) {
+            metrics.add(GlrEnums.ParseMetric.PARSE_NANOS, System.nanoTime() - startedOn);
+            treeValidator = metrics.countRejects(treeValidator);
+        }
+        return new GlrForest(accepted, treeValidator, ruleScores, session.exceeded());
+    }
+
+    /**
+     * session of parsing in substring mode, tokens are pushed one by one, see {@link GlrParseSession}
+     *
+     * @param listener receives trees of each accepted span as soon as the span can't get other derivations
+     */
+    public GlrParseSession open(Consumer<GlrStack.SyntaxTree> listener) {
+        return open(listener, false, null, GlrParseOptions.DEFAULT);
+    }
+
+    public GlrParseSession open(
+            Consumer<GlrStack.SyntaxTree> listener, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator,
+            GlrEnums.ReduceMode reduceMode) {
+        return open(listener, fullMath, reduceValidator, GlrParseOptions.DEFAULT.withReduceMode(reduceMode));
+    }
+
+    public GlrParseSession open(
+            Consumer<GlrStack.SyntaxTree> listener, boolean fullMath, @Nullable Function<GlrStack.SyntaxTree, Boolean> reduceValidator,
+            GlrParseOptions options) {
+        GlrParseMetrics metrics = options.metrics();
+        Function<GlrStack.SyntaxTree, Boolean> validator = metrics!=null ? metrics.countRejects(reduceValidator) : reduceValidator;
+        return new GlrParseSession(this, fullMath, options, validator, root->{
+            for (GlrStack.SyntaxTree syntaxTree : GlrStack.syntaxTrees(root, validator, new IdentityHashMap<>())) {
+                if (metrics!=null) {
+                    metrics.add(GlrEnums.ParseMetric.ACCEPTED_TREES, 1);
+                }
+                listener.accept(syntaxTree);
+            }
+        });
     }
 }
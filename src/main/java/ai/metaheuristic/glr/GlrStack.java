@@ -8,149 +8,486 @@
 package ai.metaheuristic.glr;
 
 import ai.metaheuristic.glr.token.GlrToken;
-import lombok.EqualsAndHashCode;
-import lombok.RequiredArgsConstructor;
-import javax.annotation.Nullable;
 
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
+ * Graph-structured stack (Tomita, Farshi). There is one {@link Node} per (state, token position),
+ * alternative derivations are kept as edges between nodes and as alternatives of {@link ForestNode}.
+ * Label of edge is a node of shared packed parse forest: all derivations of symbol over the span of tokens
+ *
  * @author Sergio Lissner
  * Date: 9/12/2022
  * Time: 5:58 PM
  */
 public class GlrStack {
 
-    public record SyntaxTree(String symbol, @Nullable GlrToken token, @Nullable Integer ruleIndex, List<SyntaxTree> children) {
-        boolean isLeaf() {
-            return children==null || children.isEmpty();
+    /**
+     * tree of derivation of symbol over tokens [start, end) of input. Trees are compared by structure, hash is computed once
+     * from hashes of children. Trees which are created by {@link SyntaxTreeFactory} are unique, so equal trees are the same object
+     */
+    public static final class SyntaxTree {
+        private final String symbol;
+        @Nullable
+        private final GlrToken token;
+        @Nullable
+        private final Integer ruleIndex;
+        private final List<SyntaxTree> children;
+        private final int start;
+        private final int end;
+        private final int hash;
+
+        public SyntaxTree(String symbol, @Nullable GlrToken token, @Nullable Integer ruleIndex, List<SyntaxTree> children, int start, int end) {
+            this.symbol = symbol;
+            this.token = token;
+            this.ruleIndex = ruleIndex;
+            this.children = children;
+            this.start = start;
+            this.end = end;
+            this.hash = Objects.hash(symbol, token, ruleIndex, children, start, end);
+        }
+
+        public String symbol() {
+            return symbol;
         }
-    }
 
-    public static class StackItem implements Comparable<StackItem> {
         @Nullable
-        public SyntaxTree syntaxTree;
+        public GlrToken token() {
+            return token;
+        }
+
         @Nullable
-        public Integer state;
-        public final List<StackItem> prev = new ArrayList<>();
+        public Integer ruleIndex() {
+            return ruleIndex;
+        }
 
-        public StackItem(@Nullable SyntaxTree syntaxTree, @Nullable Integer state, @Nullable List<StackItem> prev) {
-            this.syntaxTree = syntaxTree;
-            this.state = state;
-            if (prev!=null) {
-                this.prev.addAll(prev);
-            }
+        public List<SyntaxTree> children() {
+            return children;
         }
 
-        public String toString() {
-            if (!prev.isEmpty())
-                return String.format("%s.%s", syntaxTree != null ? syntaxTree.symbol : "null", state);
-            else {
-                return "0";
+        public int start() {
+            return start;
+        }
+
+        public int end() {
+            return end;
+        }
+
+        boolean isLeaf() {
+            return children==null || children.isEmpty();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this==o) {
+                return true;
             }
+            if (!(o instanceof SyntaxTree that) || hash!=that.hash) {
+                return false;
+            }
+            return start==that.start && end==that.end && token==that.token && symbol.equals(that.symbol)
+                   && Objects.equals(ruleIndex, that.ruleIndex) && children.equals(that.children);
         }
 
         @Override
-        public int compareTo(StackItem o) {
-            final int compare = Integer.compare(
-                    this.syntaxTree == null || this.syntaxTree.ruleIndex==null ? 0 : this.syntaxTree.ruleIndex,
-                    o.syntaxTree == null || o.syntaxTree.ruleIndex==null ? 0 : o.syntaxTree.ruleIndex);
-            return compare;
+        public int hashCode() {
+            return hash;
         }
-/*
+
         @Override
-        public int compareTo(StackItem o) {
-            final int compare = Integer.compare(
-                    this.syntaxTree == null ? 0 : this.syntaxTree.hashCode(),
-                    o.syntaxTree == null ? 0 : o.syntaxTree.hashCode());
-            return compare!=0 ? compare : Integer.compare(this.state == null ? 0 : this.state, o.state == null ? 0 : o.state);
+        public String toString() {
+            return "SyntaxTree[symbol=" + symbol + ", token=" + token + ", ruleIndex=" + ruleIndex + ", children=" + children
+                   + ", start=" + start + ", end=" + end + "]";
         }
-*/
 
-        public static StackItem startNew() {
-            return new StackItem(null, 0, null);
+        /**
+         * tokens which are derived by tree
+         *
+         * @param input tokens which were parsed
+         */
+        public List<GlrToken> tokens(List<GlrToken> input) {
+            return input.subList(start, end);
         }
 
-        public List<List<StackItem>> pop(int depth) {
-            if (depth==0) {
-                return List.of(List.of(this));
+        /**
+         * token of input with index in [start, end), it's found by spans of children without input
+         */
+        public GlrToken tokenAt(int index) {
+            if (index < start || index >= end) {
+                throw new IllegalStateException("(index < start || index >= end)");
             }
-            if (prev.isEmpty()) {
-                return List.of();
-            }
-            List<List<StackItem>> result = new ArrayList<>();
-            for (StackItem prev : this.prev) {
-                for (List<StackItem> path : prev.pop(depth-1)) {
-                    List<StackItem> temp = new ArrayList<>(path);
-                    temp.add(this);
-                    result.add(temp);
+            SyntaxTree tree = this;
+            while (tree.token==null) {
+                SyntaxTree next = null;
+                for (SyntaxTree child : tree.children) {
+                    if (index >= child.start && index < child.end) {
+                        next = child;
+                        break;
+                    }
+                }
+                if (next==null) {
+                    throw new IllegalStateException("(next==null)");
                 }
+                tree = next;
             }
-            return result;
+            return tree.token;
         }
 
-        public List<StackItem> reduce(
-                List<LinkedHashMap<String, List<GlrLr.Action>>> actionGotoTable,
-                GlrGrammar.Rule rule,
-                @Nullable Function<SyntaxTree, Boolean> reduceValidator) {
-
-            List<StackItem> result = new ArrayList<>();
-            int depth = rule.rightSymbols().size();
-            for (List<StackItem> path : pop(depth)) {
-                final Integer stateIdx = path.get(0).state;
-                if (stateIdx==null) {
-                    throw new IllegalStateException("(stateIdx==null)");
+        /**
+         * input as list where only tokens of tree are available, see {@link #tokenAt(int)}. For checking a tree when input isn't kept
+         */
+        public List<GlrToken> inputView() {
+            return new AbstractList<>() {
+                @Override
+                public GlrToken get(int index) {
+                    return tokenAt(index);
                 }
-                List<GlrLr.Action> gotoActions = actionGotoTable.get(stateIdx).get(rule.leftSymbol());
-
-                // # TODO: probably assert that only 1 goto action and it is 'G'
-                for (GlrLr.Action gotoAction : gotoActions ) {
-                    if ("G".equals(gotoAction.type())) {
-                        List<SyntaxTree> tree = path.size()<2 ? List.of() : path.subList(1, path.size()).stream().map(o->o.syntaxTree).filter(Objects::nonNull).toList();
-                        SyntaxTree syntaxTree = new SyntaxTree(rule.leftSymbol(), null, rule.index(), tree);
-                        if (reduceValidator ==null || reduceValidator.apply(syntaxTree)){
-                            var newHead = new StackItem(syntaxTree, gotoAction.state(), List.of(path.get(0)));
-                            result.add(newHead);
-                        }
-                    }
+
+                @Override
+                public int size() {
+                    return end;
                 }
-            }
-            return result;
+            };
+        }
+    }
+
+    /**
+     * hash-consing of trees, structurally equal trees are created only once. Equal subtrees of different trees are shared,
+     * so comparing of trees which were interned by the same factory stops at the first pair of identical children
+     */
+    public static final class SyntaxTreeFactory {
+        private final HashMap<SyntaxTree, SyntaxTree> trees = new HashMap<>();
+
+        public SyntaxTree leaf(GlrToken token, int start, int end) {
+            return intern(new SyntaxTree(token.symbol, token, null, List.of(), start, end));
+        }
+
+        /**
+         * @param children trees which were created by this factory
+         */
+        public SyntaxTree node(String symbol, int ruleIndex, List<SyntaxTree> children, int start, int end) {
+            return intern(new SyntaxTree(symbol, null, ruleIndex, List.copyOf(children), start, end));
+        }
+
+        /**
+         * @return tree which is equal to syntaxTree and was created before, or syntaxTree itself
+         */
+        public SyntaxTree intern(SyntaxTree syntaxTree) {
+            SyntaxTree known = trees.putIfAbsent(syntaxTree, syntaxTree);
+            return known!=null ? known : syntaxTree;
+        }
+
+        @Nullable
+        public SyntaxTree get(SyntaxTree syntaxTree) {
+            return trees.get(syntaxTree);
         }
 
-        public StackItem shift(GlrToken token, int state) {
-            SyntaxTree syntaxTree = new SyntaxTree(token.symbol, token, null, List.of());
-            return new StackItem(syntaxTree, state, List.of(this));
+        public int size() {
+            return trees.size();
         }
+    }
+
+    /**
+     * derivation of nonterminal by rule, children are nodes of right symbols of rule
+     */
+    public record Alternative(int ruleIndex, List<ForestNode> children) {}
 
-        @EqualsAndHashCode
-        @RequiredArgsConstructor
-        public static class TreeStateAsKey {
-            public final SyntaxTree syntaxTree;
-            public final Integer state;
+    /**
+     * all derivations of symbol over tokens [start, end). Leaf node is a shifted token.
+     * Nodes are compared by identity, the same (symbol, start, end) has only one node in one parse.
+     *
+     * Intermediate node is created by binarised reduction, it's all derivations of the last symbols of rule over [start, end).
+     * Its alternatives are pairs (the first of these symbols, intermediate node of the rest) or the last symbol only.
+     * Intermediate node isn't a node of tree, its derivations are inlined into children of parent
+     */
+    public static final class ForestNode {
+        public final String symbol;
+        public final int start;
+        public final int end;
+        @Nullable
+        public final GlrToken token;
+        public final boolean intermediate;
+        // in order of discovering, duplicates are ignored
+        public final LinkedHashSet<Alternative> alternatives = new LinkedHashSet<>();
+        // logarithm of weight of the best derivation which was found
+        double score;
+        // true if node has tree accepted by validator of session, null while it isn't checked.
+        // Node is checked by session when all alternatives of node were added, i.e. when its level is reduced
+        @Nullable
+        Boolean valid = null;
+        // tree which was accepted when node was checked, parents are checked over these trees of children first
+        @Nullable
+        SyntaxTree validTree = null;
+
+        public ForestNode(String symbol, int start, int end, @Nullable GlrToken token) {
+            this(symbol, start, end, token, false);
+        }
+
+        public ForestNode(String symbol, int start, int end, @Nullable GlrToken token, boolean intermediate) {
+            this.symbol = symbol;
+            this.start = start;
+            this.end = end;
+            this.token = token;
+            this.intermediate = intermediate;
+            this.score = token!=null ? 0 : Double.NEGATIVE_INFINITY;
         }
 
-        public static List<StackItem> merge(List<StackItem> stackItems) {
-            List<StackItem> result = new ArrayList<>();
-            List<StackItem> sorted = stackItems.stream().sorted().toList();
-            LinkedHashMap<TreeStateAsKey, List<StackItem>> map = new LinkedHashMap<>();
-            for (StackItem stackItem : sorted) {
-                map.computeIfAbsent(new TreeStateAsKey(stackItem.syntaxTree, stackItem.state), (o)->new ArrayList<>()).add(stackItem);
+        public double score() {
+            return score;
+        }
+
+        /**
+         * @param ruleScore logarithm of weight of rule, 0 for alternative of intermediate node
+         * @return false if the same alternative was already added
+         */
+        public boolean addAlternative(Alternative alternative, double ruleScore) {
+            if (!alternatives.add(alternative)) {
+                return false;
+            }
+            double sum = ruleScore;
+            for (ForestNode child : alternative.children) {
+                sum += child.score;
             }
-            for (Map.Entry<TreeStateAsKey, List<StackItem>> entry : map.entrySet()) {
-                final List<StackItem> group = entry.getValue();
-                if (group.size() > 1) {
-                    List<StackItem> allPrevs = group.stream().flatMap(o->o.prev.stream()).toList();
-                    result.add( new StackItem(group.get(0).syntaxTree, group.get(0).state, allPrevs));
+            score = Math.max(score, sum);
+            return true;
+        }
+
+        public boolean isLeaf() {
+            return token!=null;
+        }
+
+        public String toString() {
+            return String.format("%s%s[%d,%d)", intermediate ? "*" : "", symbol, start, end);
+        }
+    }
+
+    /**
+     * edge from node to node of previous position, forest is derivation of symbol between them
+     */
+    public record Edge(Node target, ForestNode forest) {}
+
+    public static final class Node {
+        public final int state;
+        public final int position;
+        public final List<Edge> edges = new ArrayList<>();
+        // the best score of path from this node to the start of stack, 0 for the start node
+        double score = 0;
+        // min and max positions of start nodes of paths from this node
+        int minStart;
+        int maxStart;
+
+        public Node(int state, int position) {
+            this.state = state;
+            this.position = position;
+            this.minStart = position;
+            this.maxStart = position;
+        }
+
+        @Nullable
+        public Edge edgeTo(Node target) {
+            for (Edge edge : edges) {
+                if (edge.target==target) {
+                    return edge;
                 }
-                else {
-                    result.add(group.get(0));
+            }
+            return null;
+        }
+
+        public Edge addEdge(Node target, ForestNode forest) {
+            Edge edge = new Edge(target, forest);
+            double pathScore = target.score + forest.score;
+            score = edges.isEmpty() ? pathScore : Math.max(score, pathScore);
+            minStart = edges.isEmpty() ? target.minStart : Math.min(minStart, target.minStart);
+            maxStart = edges.isEmpty() ? target.maxStart : Math.max(maxStart, target.maxStart);
+            edges.add(edge);
+            return edge;
+        }
+
+        /**
+         * remove edges, score and start positions are computed again from the rest of edges
+         */
+        public void removeEdges(Predicate<Edge> filter) {
+            if (!edges.removeIf(filter) || edges.isEmpty()) {
+                return;
+            }
+            score = Double.NEGATIVE_INFINITY;
+            minStart = Integer.MAX_VALUE;
+            maxStart = Integer.MIN_VALUE;
+            for (Edge edge : edges) {
+                score = Math.max(score, edge.target.score + edge.forest.score);
+                minStart = Math.min(minStart, edge.target.minStart);
+                maxStart = Math.max(maxStart, edge.target.maxStart);
+            }
+        }
+
+        public double score() {
+            return score;
+        }
+
+        public int minStart() {
+            return minStart;
+        }
+
+        public int maxStart() {
+            return maxStart;
+        }
+
+        /**
+         * score from current scores of forest nodes of edges, they can be raised after edges were added
+         */
+        public double updateScore() {
+            if (!edges.isEmpty()) {
+                score = Double.NEGATIVE_INFINITY;
+                for (Edge edge : edges) {
+                    score = Math.max(score, edge.target.score + edge.forest.score);
                 }
             }
+            return score;
+        }
 
+        public String toString() {
+            return state + "@" + position;
+        }
+    }
+
+    private record IntermediateKey(int ruleIndex, int length, int start) {}
+
+    private record ContinuedKey(int ruleIndex, int length, Node from) {}
+
+    /**
+     * nodes of one token position, there is at most one node for each state
+     */
+    public static final class Level {
+        public final int position;
+        private final LinkedHashMap<Integer, Node> nodes = new LinkedHashMap<>();
+        // nonterminal nodes of forest which end at this position, key is (symbol, start)
+        private final HashMap<Long, ForestNode> forest = new HashMap<>();
+        // intermediate nodes of binarised reductions which end at this position
+        private final HashMap<IntermediateKey, ForestNode> intermediates = new HashMap<>();
+        // stack nodes from which paths of binarised reductions are already continued
+        private final HashSet<ContinuedKey> continued = new HashSet<>();
+
+        public Level(int position) {
+            this.position = position;
+        }
+
+        @Nullable
+        public Node node(int state) {
+            return nodes.get(state);
+        }
+
+        public Node addNode(int state) {
+            Node node = new Node(state, position);
+            nodes.put(state, node);
+            return node;
+        }
+
+        public Collection<Node> nodes() {
+            return nodes.values();
+        }
+
+        public void removeNode(Node node) {
+            nodes.remove(node.state, node);
+        }
+
+        public boolean isEmpty() {
+            return nodes.isEmpty();
+        }
+
+        public ForestNode forestNode(int symbol, String symbolName, int start) {
+            return forest.computeIfAbsent(((long) symbol << 32) | start, o->new ForestNode(symbolName, start, position, null));
+        }
+
+        /**
+         * nonterminal nodes of forest which end at this position, intermediate nodes aren't included
+         */
+        public Collection<ForestNode> forestNodes() {
+            return forest.values();
+        }
+
+        /**
+         * intermediate node for derivations of the last length symbols of rule over [start, position)
+         */
+        public ForestNode intermediateNode(int ruleIndex, int length, int start, String symbolName) {
+            return intermediates.computeIfAbsent(new IntermediateKey(ruleIndex, length, start), o->new ForestNode(symbolName, start, position, null, true));
+        }
+
+        /**
+         * mark that paths with the last length symbols of rule are continued from stack node,
+         * false if they were already continued by previous reduction
+         */
+        public boolean markContinued(int ruleIndex, int length, Node from) {
+            return continued.add(new ContinuedKey(ruleIndex, length, from));
+        }
+    }
+
+    /**
+     * all trees of forest node. Each nonterminal node of tree is checked with validator, trees with failed nodes are skipped.
+     * Trees of the same forest node are built only once and are shared between parents
+     *
+     * @param memo trees of already processed forest nodes
+     */
+    public static List<SyntaxTree> syntaxTrees(
+            ForestNode node, @Nullable Function<SyntaxTree, Boolean> validator, IdentityHashMap<ForestNode, List<SyntaxTree>> memo) {
+        List<SyntaxTree> result = memo.get(node);
+        if (result!=null) {
+            return result;
+        }
+        if (node.token!=null) {
+            result = List.of(new SyntaxTree(node.token.symbol, node.token, null, List.of(), node.start, node.end));
+            memo.put(node, result);
             return result;
         }
+        // cyclic derivations, i.e. A = B, B = A, don't produce trees
+        memo.put(node, List.of());
+        result = new ArrayList<>();
+        for (Alternative alternative : node.alternatives) {
+            for (List<SyntaxTree> children : childSequences(alternative, validator, memo)) {
+                SyntaxTree syntaxTree = new SyntaxTree(node.symbol, null, alternative.ruleIndex, List.copyOf(children), node.start, node.end);
+                if (validator==null || validator.apply(syntaxTree)) {
+                    result.add(syntaxTree);
+                }
+            }
+        }
+        memo.put(node, result);
+        return result;
     }
 
+    /**
+     * cartesian product of trees of children, derivations of intermediate child are inlined
+     */
+    private static List<List<SyntaxTree>> childSequences(
+            Alternative alternative, @Nullable Function<SyntaxTree, Boolean> validator, IdentityHashMap<ForestNode, List<SyntaxTree>> memo) {
+        List<List<SyntaxTree>> result = List.of(List.of());
+        for (ForestNode child : alternative.children) {
+            List<List<SyntaxTree>> parts = new ArrayList<>();
+            if (child.intermediate) {
+                for (Alternative a : child.alternatives) {
+                    parts.addAll(childSequences(a, validator, memo));
+                }
+            }
+            else {
+                for (SyntaxTree tree : syntaxTrees(child, validator, memo)) {
+                    parts.add(List.of(tree));
+                }
+            }
+            if (parts.isEmpty()) {
+                return List.of();
+            }
+            List<List<SyntaxTree>> next = new ArrayList<>(result.size() * parts.size());
+            for (List<SyntaxTree> prefix : result) {
+                for (List<SyntaxTree> part : parts) {
+                    List<SyntaxTree> sequence = new ArrayList<>(prefix.size() + part.size());
+                    sequence.addAll(prefix);
+                    sequence.addAll(part);
+                    next.add(sequence);
+                }
+            }
+            result = next;
+        }
+        return result;
+    }
 }
@@ -0,0 +1,291 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.GlrEnums.ActionType;
+
+/**
+ * Compiled form of action/goto table which is produced by {@link GlrLr#generateActionGotoTable(GlrGrammar)}.
+ *
+ * Symbols are interned to int ids, action types are stored as bytes ({@link ActionType#code}).
+ * Cells of a row are kept in the same order as keys in LinkedHashMap of original table,
+ * lookup of cell by (state, symbol) is done via row-displacement (comb) index:
+ * slot = base[state] + symbol, slot is valid only if check[slot]==state
+ */
+public class GlrTable {
+
+    public static final int NO_CELL = -1;
+
+    public static final byte SHIFT = ActionType.SHIFT.code;
+    public static final byte REDUCE = ActionType.REDUCE.code;
+    public static final byte ACCEPT = ActionType.ACCEPT.code;
+    public static final byte GOTO = ActionType.GOTO.code;
+
+    final String[] symbols;
+    final int[] ruleLeft;
+    final int[] ruleLength;
+
+    final int[] base;
+    final int[] check;
+    final int[] slotCell;
+
+    final int[] rowCellStart;
+    final int[] cellSymbol;
+    final int[] cellActionStart;
+    final byte[] actionKind;
+    final int[] actionValue;
+
+    private final HashMap<String, Integer> symbolIds;
+    private final boolean[] nonterminals;
+    private final int endOfTokenListId;
+
+    public GlrTable(
+            String[] symbols, int[] ruleLeft, int[] ruleLength,
+            int[] base, int[] check, int[] slotCell,
+            int[] rowCellStart, int[] cellSymbol, int[] cellActionStart, byte[] actionKind, int[] actionValue) {
+        this.symbols = symbols;
+        this.ruleLeft = ruleLeft;
+        this.ruleLength = ruleLength;
+        this.base = base;
+        this.check = check;
+        this.slotCell = slotCell;
+        this.rowCellStart = rowCellStart;
+        this.cellSymbol = cellSymbol;
+        this.cellActionStart = cellActionStart;
+        this.actionKind = actionKind;
+        this.actionValue = actionValue;
+
+        this.symbolIds = new HashMap<>(symbols.length * 2);
+        for (int i = 0; i < symbols.length; i++) {
+            symbolIds.put(symbols[i], i);
+        }
+        this.nonterminals = new boolean[symbols.length];
+        for (int left : ruleLeft) {
+            nonterminals[left] = true;
+        }
+        this.endOfTokenListId = symbolId(GlrConsts.END_OF_TOKEN_LIST);
+    }
+
+    public static GlrTable compile(GlrGrammar grammar, List<LinkedHashMap<String, List<GlrLr.Action>>> actionGotoTable) {
+        String[] symbols = new String[grammar.symbolCount()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = grammar.symbolName(i);
+        }
+        int[] ruleLeft = new int[grammar.rules.size()];
+        int[] ruleLength = new int[grammar.rules.size()];
+        for (int i = 0; i < ruleLeft.length; i++) {
+            ruleLeft[i] = grammar.ruleLeftId(i);
+            ruleLength[i] = grammar.ruleRightIds(i).length;
+        }
+
+        int cellCount = 0;
+        int actionCount = 0;
+        for (LinkedHashMap<String, List<GlrLr.Action>> row : actionGotoTable) {
+            cellCount += row.size();
+            for (List<GlrLr.Action> actions : row.values()) {
+                actionCount += actions.size();
+            }
+        }
+
+        int[] rowCellStart = new int[actionGotoTable.size() + 1];
+        int[] cellSymbol = new int[cellCount];
+        int[] cellActionStart = new int[cellCount + 1];
+        byte[] actionKind = new byte[actionCount];
+        int[] actionValue = new int[actionCount];
+
+        int cell = 0;
+        int action = 0;
+        for (int state = 0; state < actionGotoTable.size(); state++) {
+            rowCellStart[state] = cell;
+            for (Map.Entry<String, List<GlrLr.Action>> entry : actionGotoTable.get(state).entrySet()) {
+                int symbol = grammar.symbolId(entry.getKey());
+                if (symbol==-1) {
+                    throw new IllegalStateException("(symbol==-1), symbol: " + entry.getKey());
+                }
+                cellSymbol[cell] = symbol;
+                cellActionStart[cell] = action;
+                for (GlrLr.Action a : entry.getValue()) {
+                    ActionType type = ActionType.fromType(a.type());
+                    actionKind[action] = type.code;
+                    actionValue[action] = switch (type) {
+                        case SHIFT, GOTO -> Objects.requireNonNull(a.state());
+                        case REDUCE -> Objects.requireNonNull(a.ruleIndex());
+                        case ACCEPT -> -1;
+                    };
+                    action++;
+                }
+                cell++;
+            }
+        }
+        rowCellStart[actionGotoTable.size()] = cell;
+        cellActionStart[cellCount] = action;
+
+        Comb comb = packRows(rowCellStart, cellSymbol);
+        return new GlrTable(symbols, ruleLeft, ruleLength, comb.base, comb.check, comb.slotCell,
+                rowCellStart, cellSymbol, cellActionStart, actionKind, actionValue);
+    }
+
+    record Comb(int[] base, int[] check, int[] slotCell) {}
+
+    /**
+     * first-fit row displacement, the widest rows are placed first
+     */
+    static Comb packRows(int[] rowCellStart, int[] cellSymbol) {
+        int stateCount = rowCellStart.length - 1;
+        Integer[] order = new Integer[stateCount];
+        for (int i = 0; i < stateCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (o1, o2) -> Integer.compare(rowCellStart[o2 + 1] - rowCellStart[o2], rowCellStart[o1 + 1] - rowCellStart[o1]));
+
+        int[] base = new int[stateCount];
+        BitSet used = new BitSet();
+        int firstFree = 0;
+        int size = 0;
+        for (int state : order) {
+            int from = rowCellStart[state];
+            int to = rowCellStart[state + 1];
+            if (from==to) {
+                // empty row, any base is ok because check[] never matches
+                continue;
+            }
+            int minSymbol = Integer.MAX_VALUE;
+            for (int c = from; c < to; c++) {
+                minSymbol = Math.min(minSymbol, cellSymbol[c]);
+            }
+            int b = Math.max(0, firstFree - minSymbol);
+            while (true) {
+                boolean fit = true;
+                for (int c = from; c < to; c++) {
+                    if (used.get(b + cellSymbol[c])) {
+                        fit = false;
+                        break;
+                    }
+                }
+                if (fit) {
+                    break;
+                }
+                b++;
+            }
+            base[state] = b;
+            for (int c = from; c < to; c++) {
+                used.set(b + cellSymbol[c]);
+                size = Math.max(size, b + cellSymbol[c] + 1);
+            }
+            firstFree = used.nextClearBit(firstFree);
+        }
+
+        int[] check = new int[size];
+        int[] slotCell = new int[size];
+        Arrays.fill(check, -1);
+        for (int state = 0; state < stateCount; state++) {
+            for (int c = rowCellStart[state]; c < rowCellStart[state + 1]; c++) {
+                int slot = base[state] + cellSymbol[c];
+                check[slot] = state;
+                slotCell[slot] = c;
+            }
+        }
+        return new Comb(base, check, slotCell);
+    }
+
+    /**
+     * @return id of symbol or -1 if symbol isn't known to this table
+     */
+    public int symbolId(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        return id==null ? -1 : id;
+    }
+
+    public String symbol(int symbolId) {
+        return symbols[symbolId];
+    }
+
+    public int symbolCount() {
+        return symbols.length;
+    }
+
+    public boolean isTerminal(int symbolId) {
+        return symbolId>=0 && !nonterminals[symbolId];
+    }
+
+    public int endOfTokenListId() {
+        return endOfTokenListId;
+    }
+
+    public int stateCount() {
+        return base.length;
+    }
+
+    public int ruleCount() {
+        return ruleLeft.length;
+    }
+
+    public int ruleLeft(int ruleIndex) {
+        return ruleLeft[ruleIndex];
+    }
+
+    public int ruleLength(int ruleIndex) {
+        return ruleLength[ruleIndex];
+    }
+
+    /**
+     * @return index of cell or {@link #NO_CELL} if there isn't any action for this state and symbol
+     */
+    public int cell(int state, int symbol) {
+        if (symbol<0) {
+            return NO_CELL;
+        }
+        int slot = base[state] + symbol;
+        if (slot>=check.length || check[slot]!=state) {
+            return NO_CELL;
+        }
+        return slotCell[slot];
+    }
+
+    public int actionStart(int cell) {
+        return cellActionStart[cell];
+    }
+
+    public int actionEnd(int cell) {
+        return cellActionStart[cell + 1];
+    }
+
+    public byte actionKind(int action) {
+        return actionKind[action];
+    }
+
+    /**
+     * @return target state for SHIFT and GOTO, rule index for REDUCE, -1 for ACCEPT
+     */
+    public int actionValue(int action) {
+        return actionValue[action];
+    }
+
+    public List<LinkedHashMap<String, List<GlrLr.Action>>> toActionGotoTable() {
+        List<LinkedHashMap<String, List<GlrLr.Action>>> result = new ArrayList<>(stateCount());
+        for (int state = 0; state < stateCount(); state++) {
+            LinkedHashMap<String, List<GlrLr.Action>> row = new LinkedHashMap<>();
+            for (int c = rowCellStart[state]; c < rowCellStart[state + 1]; c++) {
+                List<GlrLr.Action> actions = new ArrayList<>();
+                for (int a = actionStart(c); a < actionEnd(c); a++) {
+                    ActionType type = ActionType.fromCode(actionKind[a]);
+                    actions.add(switch (type) {
+                        case SHIFT, GOTO -> new GlrLr.Action(type.type, actionValue[a], null);
+                        case REDUCE -> new GlrLr.Action(type.type, null, actionValue[a]);
+                        case ACCEPT -> new GlrLr.Action(type.type, null, null);
+                    });
+                }
+                row.put(symbols[cellSymbol[c]], actions);
+            }
+            result.add(row);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.GlrEnums.Labels;
+
+/**
+ * Unary labels (gram, regex, class) depend only on one token. When such labels are on terminal of rule and all symbols
+ * before it are terminals too, label is checked on the token of this terminal, so terminal is replaced with refined terminal,
+ * i.e. word&lt;regex=^\d{4}$&gt;. Token is shifted as its symbol and as each refined terminal of its symbol whose labels
+ * are satisfied by token, so stacks which would be rejected by validator aren't created at all.
+ *
+ * Labels are kept in rules, validator checks them again. Rules of {@link #grammar} have the same indexes as rules of source grammar
+ */
+public class GlrTerminalClasses {
+
+    public static final Set<String> UNARY_LABELS = Set.of(Labels.gram.label, Labels.regex.label, Labels.clazz.label);
+
+    /**
+     * Refined terminal, labels are compiled once, see {@link GlrLabels#compileUnary(String, String)}
+     */
+    public static final class TerminalClass {
+        // name of refined terminal
+        private final String symbol;
+        // symbol of tokens which can be shifted as this terminal
+        private final String base;
+        // unary labels which token must satisfy, by name of label
+        private final Map<String, List<String>> labels;
+        private final GlrLabels.UnaryCheck[] checks;
+
+        public TerminalClass(String symbol, String base, Map<String, List<String>> labels) {
+            this.symbol = symbol;
+            this.base = base;
+            this.labels = labels;
+            List<GlrLabels.UnaryCheck> list = new ArrayList<>();
+            labels.forEach((label, values)->values.forEach(value->list.add(GlrLabels.compileUnary(label, value))));
+            this.checks = list.toArray(new GlrLabels.UnaryCheck[0]);
+        }
+
+        public String symbol() {
+            return symbol;
+        }
+
+        public String base() {
+            return base;
+        }
+
+        public Map<String, List<String>> labels() {
+            return labels;
+        }
+
+        public boolean test(GlrToken token) {
+            for (GlrLabels.UnaryCheck check : checks) {
+                if (!check.test(token)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return symbol;
+        }
+    }
+
+    // grammar with refined terminals
+    public final GlrGrammar grammar;
+    // refined terminals by base symbol
+    public final Map<String, List<TerminalClass>> classes;
+
+    private GlrTerminalClasses(GlrGrammar grammar, Map<String, List<TerminalClass>> classes) {
+        this.grammar = grammar;
+        this.classes = classes;
+    }
+
+    public static GlrTerminalClasses compile(GlrGrammar source) {
+        LinkedHashMap<String, TerminalClass> bySymbol = new LinkedHashMap<>();
+        List<GlrGrammar.Rule> rules = new ArrayList<>();
+        boolean refined = false;
+        for (GlrGrammar.Rule rule : source.rules) {
+            List<String> rightSymbols = new ArrayList<>(rule.rightSymbols());
+            for (int i = 0; i < rightSymbols.size() && source.terminals.contains(rightSymbols.get(i)); i++) {
+                if (rule.params()==null || rule.params().size()<=i || rule.params().get(i)==null) {
+                    continue;
+                }
+                Map<String, List<String>> labels = unaryLabels(rule.params().get(i));
+                if (labels.isEmpty()) {
+                    continue;
+                }
+                String base = rightSymbols.get(i);
+                String suffix = refinedSymbol("", labels);
+                if (base.length()>suffix.length() && base.endsWith(suffix)) {
+                    // terminal is already refined
+                    bySymbol.putIfAbsent(base, new TerminalClass(base, base.substring(0, base.length() - suffix.length()), labels));
+                    refined = true;
+                    continue;
+                }
+                String symbol = base + suffix;
+                if (source.symbolId(symbol)!=-1) {
+                    continue;
+                }
+                bySymbol.putIfAbsent(symbol, new TerminalClass(symbol, base, labels));
+                rightSymbols.set(i, symbol);
+                refined = true;
+            }
+            rules.add(new GlrGrammar.Rule(rule.index(), rule.leftSymbol(), rightSymbols, rule.commit(), rule.params(), rule.weight()));
+        }
+        if (!refined) {
+            return new GlrTerminalClasses(source, Map.of());
+        }
+        LinkedHashMap<String, List<TerminalClass>> classes = new LinkedHashMap<>();
+        for (TerminalClass terminalClass : bySymbol.values()) {
+            classes.computeIfAbsent(terminalClass.base, o->new ArrayList<>()).add(terminalClass);
+        }
+        return new GlrTerminalClasses(new GlrGrammar(rules), classes);
+    }
+
+    /**
+     * source grammar of grammar with refined terminals, i.e. of grammar which was loaded with tables
+     */
+    public static GlrGrammar source(GlrGrammar grammar) {
+        GlrTerminalClasses terminalClasses = compile(grammar);
+        if (terminalClasses.classes.isEmpty()) {
+            return grammar;
+        }
+        Map<String, String> bases = new HashMap<>();
+        terminalClasses.classes.values().forEach(list->list.forEach(o->bases.put(o.symbol, o.base)));
+        List<GlrGrammar.Rule> rules = new ArrayList<>();
+        for (GlrGrammar.Rule rule : grammar.rules) {
+            List<String> rightSymbols = rule.rightSymbols().stream().map(o->bases.getOrDefault(o, o)).toList();
+            rules.add(rightSymbols.equals(rule.rightSymbols())
+                    ? rule
+                    : new GlrGrammar.Rule(rule.index(), rule.leftSymbol(), rightSymbols, rule.commit(), rule.params(), rule.weight()));
+        }
+        return new GlrGrammar(rules);
+    }
+
+    /**
+     * unary labels with values, in order of names of labels. Labels without values aren't checked by validator and are skipped
+     */
+    private static Map<String, List<String>> unaryLabels(Map<String, List<Object>> params) {
+        TreeMap<String, List<String>> labels = new TreeMap<>();
+        for (Map.Entry<String, List<Object>> entry : params.entrySet()) {
+            if (!UNARY_LABELS.contains(entry.getKey()) || entry.getValue().isEmpty()) {
+                continue;
+            }
+            List<String> values = new ArrayList<>();
+            for (Object value : entry.getValue()) {
+                if (!(value instanceof String s)) {
+                    return Map.of();
+                }
+                values.add(s);
+            }
+            labels.put(entry.getKey(), values);
+        }
+        return labels;
+    }
+
+    public static String refinedSymbol(String base, Map<String, List<String>> labels) {
+        StringJoiner joiner = new StringJoiner(", ", base + "<", ">");
+        for (Map.Entry<String, List<String>> entry : labels.entrySet()) {
+            for (String value : entry.getValue()) {
+                joiner.add(entry.getKey() + "=" + value);
+            }
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Text trace of parse, the same output which was printed by parser with logLevel 1
+ */
+public class GlrTraceListener implements GlrParseListener {
+
+    private final PrintStream out;
+
+    public GlrTraceListener() {
+        this(System.out);
+    }
+
+    public GlrTraceListener(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void onTokenStart(GlrStack.Level level, GlrToken token) {
+        if (!level.isEmpty()) {
+            out.println("\n- STACK:");
+            for (GlrStack.Node node : level.nodes()) {
+                out.println("    " + GlrUtils.formatStackNode(node));
+            }
+        }
+        out.println("\nTOKEN: " + token);
+    }
+
+    @Override
+    public void onReduce(GlrStack.Node node, GlrGrammar.Rule rule) {
+        out.printf("- REDUCE: (%s) by (%s)%n", node, GlrUtils.formatRule(rule));
+    }
+
+    @Override
+    public void onShift(GlrStack.Node from, GlrStack.Node to) {
+        out.printf("- SHIFT: (%s) to (%s)%n", from, to);
+    }
+
+    @Override
+    public void onMerge(GlrStack.Node node, GlrStack.Edge edge) {
+        out.printf("- MERGE: (%s) with %s > %s%n", node, edge.forest(), edge.target());
+    }
+
+    @Override
+    public void onAccept(GlrStack.Node node) {
+        out.printf("- ACCEPT: (%s)%n", node);
+    }
+
+    @Override
+    public void onDrop(GlrStack.Node node) {
+        out.printf("- DROP: (%s), score: %s%n", node, node.score());
+    }
+
+    @Override
+    public void onTrees(List<GlrStack.SyntaxTree> trees) {
+        out.println("\n--------------------\nACCEPTED:");
+        for (GlrStack.SyntaxTree syntaxTree : trees) {
+            out.println(GlrUtils.formatSyntaxTree(syntaxTree));
+        }
+    }
+}
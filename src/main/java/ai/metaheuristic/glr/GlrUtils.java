@@ -75,59 +75,14 @@ public class GlrUtils {
         return String.format("%s<%s>", symbol, String.join(", ", temp));
     }
 
-    public static String formatStackItem(GlrStack.StackItem stackItem, String secondLinePrefix) {
-        if (!stackItem.prev.isEmpty()) {
-            List<String> pathes = new ArrayList<>();
-            for (List<GlrStack.StackItem> path : getPathes(stackItem)) {
-                pathes.add(path.stream().map(Object::toString).collect(Collectors.joining(" > ")));
-            }
-            int length = pathes.stream().mapToInt(String::length).max().orElse(0);
-            List<String> results = new ArrayList<>();
-            for (int i = 0; i < pathes.size(); i++) {
-                String path = pathes.get(i);
-                String result = (i == 0 ? "" : secondLinePrefix);
-                result += StringUtils.rightPad(path, length);
-                if (pathes.size()>1) {
-                    if (i == 0) {
-                        result += " ╮";
-                    }
-                    else if (i != pathes.size() - 1) {
-                        result += " │";
-                    }
-                    else {
-                        result += " ╯";
-                    }
-                }
-                results.add(result);
-            }
-            final String join = String.join("\n", results);
-            return join;
-        }
-        else {
-            return "0";
+    /**
+     * node of graph-structured stack with its edges, i.e. 5@3 > [S[0,3) > 1@0, E[2,3) > 7@2]
+     */
+    public static String formatStackNode(GlrStack.Node node) {
+        if (node.edges.isEmpty()) {
+            return node.toString();
         }
-    }
-    public static String formatStackItem(GlrStack.StackItem stackItem) {
-        return formatStackItem(stackItem, "");
-    }
-
-
-    public static List<List<GlrStack.StackItem>> getPathes(GlrStack.StackItem stackItem) {
-        List<List<GlrStack.StackItem>> result = new ArrayList<>();
-        if (!stackItem.prev.isEmpty()) {
-            for (GlrStack.StackItem prev : stackItem.prev) {
-                for (List<GlrStack.StackItem> p : getPathes(prev)) {
-                    List<GlrStack.StackItem> pp = new ArrayList<>(p);
-                    pp.add(stackItem);
-                    result.add(pp);
-                }
-            }
-        }
-        else {
-            result.add(new ArrayList<>(List.of(stackItem)));
-        }
-
-        return result;
+        return node + " > " + node.edges.stream().map(o->o.forest() + " > " + o.target()).collect(Collectors.joining(", ", "[", "]"));
     }
 
     public static String formatSyntaxTree(GlrStack.SyntaxTree syntaxTree) {
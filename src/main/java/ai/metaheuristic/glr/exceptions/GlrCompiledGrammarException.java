@@ -0,0 +1,14 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr.exceptions;
+
+public class GlrCompiledGrammarException extends RuntimeException {
+    public GlrCompiledGrammarException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr.exceptions;
+
+import ai.metaheuristic.glr.GlrEnums;
+
+public class GlrParseBudgetException extends RuntimeException {
+
+    public final GlrEnums.ParseLimit limit;
+
+    public GlrParseBudgetException(GlrEnums.ParseLimit limit, String message) {
+        super(message);
+        this.limit = limit;
+    }
+}
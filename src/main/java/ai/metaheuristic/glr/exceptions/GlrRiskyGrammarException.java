@@ -0,0 +1,20 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr.exceptions;
+
+import ai.metaheuristic.glr.GlrConflictReport;
+
+public class GlrRiskyGrammarException extends RuntimeException {
+
+    public final GlrConflictReport report;
+
+    public GlrRiskyGrammarException(GlrConflictReport report, int maxHeads) {
+        super("grammar can fan out to many stacks, max allowed heads: " + maxHeads + ", " + report);
+        this.report = report;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrAutomationCacheTest {
+
+    private static final String GRAMMAR = """
+        S = adj noun
+        S = noun
+        """;
+
+    @Test
+    public void test_01() {
+        GlrAutomationCache cache = new GlrAutomationCache(2);
+        GlrAutomation automation = cache.get(GRAMMAR, "S");
+        assertSame(automation, cache.get(GRAMMAR, "S"));
+        assertSame(automation, cache.get(new String(GRAMMAR.toCharArray()), "S"));
+        assertNotSame(automation, cache.get(GRAMMAR, "S", 0, GlrEnums.LrMode.LALR));
+        assertEquals(new GlrAutomationCache.Stats(2, 2, 0, 2), cache.stats());
+    }
+
+    @Test
+    public void test_02() {
+        GlrAutomationCache cache = new GlrAutomationCache(2);
+        GlrAutomation a1 = cache.get(GRAMMAR, "S");
+        GlrAutomation a2 = cache.get(GRAMMAR + "S = verb\n", "S");
+        // a1 becomes the most recently used
+        assertSame(a1, cache.get(GRAMMAR, "S"));
+        cache.get(GRAMMAR + "S = adj\n", "S");
+
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(2, cache.stats().size());
+        assertSame(a1, cache.get(GRAMMAR, "S"));
+        assertNotSame(a2, cache.get(GRAMMAR + "S = verb\n", "S"));
+        assertEquals(new GlrAutomationCache.Stats(2, 4, 2, 2), cache.stats());
+    }
+
+    @Test
+    public void test_03() throws Exception {
+        GlrAutomationCache cache = new GlrAutomationCache(4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<GlrAutomation>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(()->{
+                    start.await();
+                    return cache.get(GRAMMAR, "S");
+                }));
+            }
+            start.countDown();
+            Set<GlrAutomation> automations = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<GlrAutomation> future : futures) {
+                automations.add(future.get());
+            }
+            assertEquals(1, automations.size());
+            assertEquals(new GlrAutomationCache.Stats(31, 1, 0, 1), cache.stats());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_04() {
+        // failed build isn't cached
+        GlrAutomationCache cache = new GlrAutomationCache(4);
+        assertThrows(RuntimeException.class, ()->cache.get("S = = noun", "S"));
+        assertThrows(RuntimeException.class, ()->cache.get("S = = noun", "S"));
+        assertEquals(new GlrAutomationCache.Stats(0, 2, 0, 0), cache.stats());
+    }
+
+    @Test
+    public void test_05() {
+        assertSame(GlrAutomation.cached(GRAMMAR, "S"), GlrAutomation.cached(GRAMMAR, "S"));
+    }
+
+    @Test
+    public void test_06() {
+        // tables are built in pool of options, pool isn't a part of key of cache
+        GlrAutomationCache cache = new GlrAutomationCache(4);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            GlrBuildOptions options = GlrBuildOptions.DEFAULT.withLrMode(GlrEnums.LrMode.LALR).withPool(pool);
+            GlrAutomation automation = cache.get(GRAMMAR, "S", options);
+            assertSame(automation, cache.get(GRAMMAR, "S", 0, GlrEnums.LrMode.LALR));
+            assertEquals(
+                    UtilsForTesing.actionTableAsString(new GlrAutomation(GRAMMAR, "S", 0, GlrEnums.LrMode.LALR).parser.actionGotoTable),
+                    UtilsForTesing.actionTableAsString(new GlrAutomation(GRAMMAR, "S", options).parser.actionGotoTable));
+            assertEquals(
+                    UtilsForTesing.actionTableAsString(new GlrAutomation(GRAMMAR, "S", 0, GlrEnums.LrMode.LALR).parser.actionGotoTable),
+                    UtilsForTesing.actionTableAsString(automation.parser.actionGotoTable));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+}
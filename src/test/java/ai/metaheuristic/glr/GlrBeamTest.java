@@ -0,0 +1,115 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.exceptions.GlrGrammarException;
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static ai.metaheuristic.glr.UtilsForTesing.tokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrBeamTest {
+
+    private static final String WEIGHTED_GRAMMAR = """
+        S = P c
+        S = Q c
+        P = a (0.1)
+        Q = a (0.9)
+        """;
+
+    private static List<String> parse(GlrParser parser, String str, GlrParseOptions options) {
+        return parser.parse(tokens(str), true, null, options).stream().map(GlrUtils::formatSyntaxTree).toList();
+    }
+
+    @Test
+    public void test_01() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(WEIGHTED_GRAMMAR, "S"));
+        assertEquals(2, parse(parser, "a c", GlrParseOptions.DEFAULT).size());
+
+        List<String> best = parse(parser, "a c", GlrParseOptions.DEFAULT.withBeam(1, Double.POSITIVE_INFINITY));
+        assertEquals(1, best.size());
+        assertTrue(best.get(0).contains("Q"), best.get(0));
+    }
+
+    @Test
+    public void test_02() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(WEIGHTED_GRAMMAR, "S"));
+        // ln(0.9) - ln(0.1) = 2.197
+        assertEquals(1, parse(parser, "a c", GlrParseOptions.DEFAULT.withBeam(0, 2.0)).size());
+        assertEquals(2, parse(parser, "a c", GlrParseOptions.DEFAULT.withBeam(0, 2.5)).size());
+        assertThrows(IllegalStateException.class, ()->GlrParseOptions.DEFAULT.withBeam(-1, 1));
+        assertFalse(GlrParseOptions.DEFAULT.isBeam());
+    }
+
+    @Test
+    public void test_03() {
+        // each 'a c' splits stack into 3 heads, beam keeps only the best of them
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse("""
+            S = L
+            L = L X
+            L = X
+            X = P c
+            X = Q c
+            X = R c
+            P = a (0.9)
+            Q = a (0.5)
+            R = a (0.1)
+            """, "S"));
+        List<GlrToken> tokens = tokens(String.join(" ", Collections.nCopies(6, "a c")));
+        for (int width : new int[]{0, 1, 2}) {
+            List<GlrStack.ForestNode> roots = new ArrayList<>();
+            GlrParseSession session = new GlrParseSession(parser, true, GlrParseOptions.DEFAULT.withBeam(width, Double.POSITIVE_INFINITY), roots::add);
+            int maxHeads = 0;
+            for (GlrToken token : tokens) {
+                session.push(token);
+                maxHeads = Math.max(maxHeads, session.liveHeads());
+            }
+            session.finish();
+            assertEquals(width==0 ? 3 : width, maxHeads);
+            assertEquals(BigInteger.valueOf(width==0 ? 3 : width).pow(6), new GlrForest(roots, null).treeCount());
+            if (width==1) {
+                String tree = GlrUtils.formatSyntaxTree(new GlrForest(roots, null).iterator().next());
+                assertTrue(tree.contains("P") && !tree.contains("Q") && !tree.contains("R"), tree);
+            }
+        }
+    }
+
+    @Test
+    public void test_04() {
+        // substring mode, heads of paths from different starts are pruned separately
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse("""
+            S = X c
+            S = c
+            X = a b (0.5)
+            """, "S"));
+        List<String> all = parser.parse(tokens("a b c"), false, null).stream().map(o->o.start() + "-" + o.end()).toList();
+        assertEquals(List.of("2-3", "0-3"), all);
+        List<String> beam = parser.parse(tokens("a b c"), false, null, GlrParseOptions.DEFAULT.withBeam(1, Double.POSITIVE_INFINITY))
+                .stream().map(o->o.start() + "-" + o.end()).toList();
+        assertEquals(all, beam);
+    }
+
+    @Test
+    public void test_05() {
+        // score of rule is logarithm of weight, so weight must be positive and finite
+        GlrGrammarException e = assertThrows(GlrGrammarException.class, () -> GlrGrammarParser.parse("""
+            S = a (0)
+            S = b
+            """, "S"));
+        assertTrue(e.getMessage().contains("weight: 0.0"), e.getMessage());
+
+        for (double weight : new double[]{-0.5, Double.NaN, Double.POSITIVE_INFINITY}) {
+            assertThrows(GlrGrammarException.class, () -> new GlrGrammar(new GlrGrammar.Rule(0, "S", List.of("a"), false, null, weight)));
+        }
+        assertEquals(0.5, new GlrGrammar(new GlrGrammar.Rule(0, "S", List.of("a"), false, null, 0.5)).rules.get(0).weight());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.UtilsForTesing.tokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrBestParseTest {
+
+    private static final String PP_GRAMMAR = """
+        S = NP VP
+        NP = NP PP (0.3)
+        VP = VP PP (0.7)
+        VP = verb NP
+        NP = noun
+        PP = prep NP
+        """;
+
+    private static int ruleCount(GlrStack.SyntaxTree tree, int ruleIndex) {
+        int count = Objects.equals(tree.ruleIndex(), ruleIndex) ? 1 : 0;
+        for (GlrStack.SyntaxTree child : tree.children()) {
+            count += ruleCount(child, ruleIndex);
+        }
+        return count;
+    }
+
+    @Test
+    public void test_01() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(PP_GRAMMAR, "S"));
+        List<GlrToken> tokens = tokens("noun verb noun prep noun");
+        assertEquals(2, parser.parse(tokens, true).size());
+
+        List<GlrStack.SyntaxTree> best = parser.parseBest(tokens, true, null);
+        assertEquals(1, best.size());
+        // PP is attached to VP, rule #3 'VP = VP PP'
+        assertEquals(1, ruleCount(best.get(0), 3));
+        assertEquals(0, ruleCount(best.get(0), 2));
+
+        // the best tree isn't valid, the next one is returned
+        List<GlrStack.SyntaxTree> valid = parser.parseBest(tokens, true, tree->!Objects.equals(tree.ruleIndex(), 3));
+        assertEquals(1, valid.size());
+        assertEquals(1, ruleCount(valid.get(0), 2));
+    }
+
+    @Test
+    public void test_02() {
+        // Catalan(39) trees, only one is built
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse("""
+            S = E
+            E = E plus E
+            E = num
+            """, "S"));
+        List<GlrStack.SyntaxTree> best = parser.parseBest(tokens(String.join(" plus ", Collections.nCopies(40, "num"))), true, null);
+        assertEquals(1, best.size());
+        // with equal weights the first found tree is the best
+        List<GlrToken> tokens = tokens("num plus num plus num");
+        assertEquals(parser.parse(tokens, true).get(0), parser.parseBest(tokens, true, null).get(0));
+    }
+
+    @Test
+    public void test_03() {
+        // substring mode, one tree for each accepted span
+        GlrAutomation automation = new GlrAutomation(PP_GRAMMAR, "S");
+        List<GlrToken> tokens = tokens("noun verb noun prep noun prep noun verb noun");
+        List<GlrStack.SyntaxTree> all = automation.parse(tokens);
+        List<GlrStack.SyntaxTree> best = automation.parseBest(tokens);
+        GlrForest forest = automation.parseForest(tokens);
+        assertEquals(forest.roots.size(), best.size());
+        assertTrue(all.size() > best.size());
+        for (GlrStack.SyntaxTree tree : best) {
+            assertTrue(all.contains(tree));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static ai.metaheuristic.glr.GlrEnums.ReduceMode;
+import static ai.metaheuristic.glr.UtilsForTesing.tokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrBinarisedReduceTest {
+
+    // the long rule over ambiguous symbol, number of paths of its reduction grows fast with length of input
+    private static final String LONG_RULE_GRAMMAR = """
+        S = X X X X X X X X X X
+        X = X X
+        X = a
+        """;
+
+    private static List<GlrToken> repeat(String s, int count) {
+        return tokens(String.join(" ", Collections.nCopies(count, s)));
+    }
+
+    private static List<String> trees(GlrParser parser, List<GlrToken> tokens, boolean fullMath, ReduceMode mode) {
+        return parser.parse(tokens, fullMath, null, mode).stream().map(GlrUtils::formatSyntaxTree).sorted().toList();
+    }
+
+    @Test
+    public void test_01() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse("""
+            S = E
+            E = E plus E
+            E = E mul E
+            E = num
+            """, "S"));
+        List<GlrToken> tokens = tokens("num plus num mul num plus num mul num");
+        List<String> paths = trees(parser, tokens, true, ReduceMode.PATHS);
+        List<String> binarised = trees(parser, tokens, true, ReduceMode.BINARISED);
+        assertEquals(14, paths.size());
+        assertEquals(paths, binarised);
+        assertEquals(trees(parser, tokens, false, ReduceMode.PATHS), trees(parser, tokens, false, ReduceMode.BINARISED));
+    }
+
+    @Test
+    public void test_02() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(LONG_RULE_GRAMMAR, "S"));
+        for (int count = 10; count <= 12; count++) {
+            List<GlrToken> tokens = repeat("a", count);
+            List<String> paths = trees(parser, tokens, true, ReduceMode.PATHS);
+            assertFalse(paths.isEmpty());
+            assertEquals(paths, trees(parser, tokens, true, ReduceMode.BINARISED));
+            assertEquals(BigInteger.valueOf(paths.size()), parser.parseForest(tokens, true, null, ReduceMode.BINARISED).treeCount());
+        }
+    }
+
+    @Test
+    public void test_03() {
+        // address-like rule with 8 symbols in substring mode, with validator
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse("""
+            S = ADDRESS
+            ADDRESS = STREET num comma CITY comma zip comma country
+            STREET = word
+            STREET = word STREET
+            CITY = word
+            CITY = CITY word
+            """, "S"));
+        List<GlrToken> tokens = tokens("word word word num comma word word comma zip comma country word");
+        List<String> paths = trees(parser, tokens, false, ReduceMode.PATHS);
+        assertEquals(3, paths.size());
+        assertEquals(paths, trees(parser, tokens, false, ReduceMode.BINARISED));
+
+        List<String> valid = parser.parse(tokens, false, tree->!"STREET".equals(tree.symbol()) || tree.children().size()==1, ReduceMode.BINARISED)
+                .stream().map(GlrUtils::formatSyntaxTree).sorted().toList();
+        assertEquals(1, valid.size());
+    }
+
+    @Test
+    public void test_04() {
+        // number of trees is huge, forest of binarised reductions stays small
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(LONG_RULE_GRAMMAR, "S"));
+        GlrForest forest = parser.parseForest(repeat("a", 50), true, null, ReduceMode.BINARISED);
+        assertTrue(forest.treeCount().compareTo(BigInteger.valueOf(Long.MAX_VALUE)) > 0);
+        assertTrue(forest.nodeCount() < 50 * 50 * 10, ""+forest.nodeCount());
+        GlrStack.SyntaxTree first = forest.iterator().next();
+        assertEquals(10, first.children().size());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static ai.metaheuristic.glr.UtilsForTesing.tokens;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class GlrCodeGeneratorTest {
+
+    @Test
+    public void test_01() {
+        int[] ints = new int[50_000];
+        Random r = new Random(42);
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = r.nextInt() % 100_000;
+        }
+        List<String> chunks = GlrCodeGenerator.encodeInts(ints);
+        assertTrue(chunks.size() > 1);
+        assertArrayEquals(ints, GlrCodeGenerator.decodeInts(chunks.toArray(new String[0])));
+        assertArrayEquals(new int[0], GlrCodeGenerator.decodeInts(""));
+        assertArrayEquals(new int[]{-1, 0, 7}, GlrCodeGenerator.decodeInts("-1,0", "7"));
+        assertArrayEquals(new String[]{"a:b", "", "$"}, GlrCodeGenerator.decodeStrings("3:a:b0:", "1:$"));
+        assertEquals("\"a\\\"\\\\\\n\\u0436\"", GlrCodeGenerator.quote("a\"\\\nж"));
+    }
+
+    @Test
+    public void test_02() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler!=null, "java compiler isn't available");
+        Path temp = Files.createTempDirectory("glr-gen-");
+        try {
+            generateAndCompare(compiler, temp);
+        }
+        finally {
+            try (Stream<Path> paths = Files.walk(temp)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void generateAndCompare(JavaCompiler compiler, Path temp) throws Exception {
+        GlrGrammar grammar = GlrGrammarParser.parse("""
+            S = adj<agr-gnc=1> NP
+            S = NP verb<regex=^го.*>
+            NP = adj NP
+            NP = noun
+            """, "S");
+        Path src = GlrCodeGenerator.generate(grammar, GlrEnums.LrMode.LALR, "test.gen.NpGrammar", temp.resolve("src"));
+        Path classes = temp.resolve("classes");
+        String classpath = new File(GlrTable.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        assertEquals(0, compiler.run(null, null, null, "-encoding", "UTF-8", "-cp", classpath, "-d", classes.toString(), src.toString()));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, GlrCodeGeneratorTest.class.getClassLoader())) {
+            Class<?> clazz = loader.loadClass("test.gen.NpGrammar");
+            GlrTable table = (GlrTable) clazz.getField("TABLE").get(null);
+            GlrGrammar generatedGrammar = (GlrGrammar) clazz.getField("GRAMMAR").get(null);
+            GlrParser parser = (GlrParser) clazz.getMethod("parser", int.class).invoke(null, 0);
+
+            GlrParser expected = new GlrParser(grammar, 0, GlrEnums.LrMode.LALR);
+            assertEquals(GlrEnums.LrMode.LALR, parser.lrMode);
+            assertEquals(grammar.rules, generatedGrammar.rules);
+            assertArrayEquals(expected.table.symbols, table.symbols);
+            assertArrayEquals(expected.table.base, table.base);
+            assertArrayEquals(expected.table.check, table.check);
+            assertArrayEquals(expected.table.actionKind, table.actionKind);
+            assertArrayEquals(expected.table.actionValue, table.actionValue);
+            assertEquals(UtilsForTesing.actionTableAsString(expected.actionGotoTable), UtilsForTesing.actionTableAsString(parser.actionGotoTable));
+
+            List<GlrToken> tokens = tokens("adj adj noun");
+            assertEquals(
+                    expected.parse(tokens, true).stream().map(GlrUtils::formatSyntaxTree).toList(),
+                    parser.parse(tokens, true).stream().map(GlrUtils::formatSyntaxTree).toList());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.exceptions.GlrRiskyGrammarException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrConflictReportTest {
+
+    @Test
+    public void test_01() {
+        // not SLR(1) grammar from dragon book
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse("""
+            S = A a
+            S = b A c
+            S = d c
+            S = b d a
+            A = d
+            """, "S"));
+        GlrConflictReport report = parser.conflictReport;
+        System.out.println(report);
+
+        assertEquals(new GlrLr.Conflicts(2, 0), report.totals());
+        assertEquals(report.totals(), parser.conflicts());
+        assertEquals(2, report.conflicts.size());
+        for (GlrConflictReport.CellConflict conflict : report.conflicts) {
+            assertEquals(1, conflict.shiftReduce());
+            assertEquals(0, conflict.reduceReduce());
+            assertEquals(2, report.fanOut[conflict.state()]);
+            assertTrue(Set.of("a", "c").contains(conflict.symbol()));
+        }
+        assertEquals(2, report.maxFanOut);
+        assertEquals(report.conflicts.get(0).state(), (int) report.worstStates(1).get(0));
+        assertFalse(report.isRisky());
+    }
+
+    @Test
+    public void test_02() {
+        // reduce/reduce, 'c' is reduced to A and B in the same state
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse("""
+            S = a A d
+            S = a B d
+            A = c
+            B = c
+            """, "S"));
+        GlrConflictReport report = parser.conflictReport;
+        assertEquals(new GlrLr.Conflicts(0, 1), report.totals());
+        GlrConflictReport.CellConflict conflict = report.conflicts.get(0);
+        assertEquals("d", conflict.symbol());
+        assertEquals(0, conflict.shifts());
+        assertEquals(2, conflict.reduces());
+        assertEquals(1, conflict.reduceReduce());
+    }
+
+    // 'x' can be shifted after each of 150 different prefixes
+    private static String riskyGrammar() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 150; i++) {
+            sb.append("S = A").append(i).append('\n');
+            sb.append("A").append(i).append(" = p").append(i).append(" x\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void test_03() {
+        // without maxHeads risky grammar is found by report only, parser doesn't print a warning
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        GlrConflictReport report;
+        try {
+            System.setOut(new PrintStream(printed));
+            report = new GlrParser(GlrGrammarParser.parse(riskyGrammar(), "S")).conflictReport;
+        }
+        finally {
+            System.setOut(out);
+        }
+        assertEquals(0, printed.size());
+        assertEquals(150, report.maxHeads);
+        assertEquals("x", report.maxHeadsSymbol);
+        assertTrue(report.isRisky());
+        assertFalse(report.isRisky(150));
+    }
+
+    @Test
+    public void test_04() {
+        // risky grammar is passed to listener, nothing is printed
+        List<GlrConflictReport> reports = new ArrayList<>();
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        GlrParser parser;
+        try {
+            System.setOut(new PrintStream(printed));
+            parser = new GlrParser(GlrGrammarParser.parse(riskyGrammar(), "S"), GlrBuildOptions.DEFAULT.withRiskCheck(100, reports::add));
+        }
+        finally {
+            System.setOut(out);
+        }
+        assertEquals(0, printed.size());
+        assertEquals(1, reports.size());
+        assertSame(parser.conflictReport, reports.get(0));
+
+        // under threshold listener isn't called
+        new GlrParser(GlrGrammarParser.parse(riskyGrammar(), "S"), GlrBuildOptions.DEFAULT.withRiskCheck(150, reports::add));
+        assertEquals(1, reports.size());
+    }
+
+    @Test
+    public void test_05() {
+        // without listener risky grammar is rejected
+        GlrRiskyGrammarException e = assertThrows(GlrRiskyGrammarException.class,
+                () -> new GlrAutomation(riskyGrammar(), "S", GlrBuildOptions.DEFAULT.withRiskCheck(100, null)));
+        assertEquals(150, e.report.maxHeads);
+        assertEquals("x", e.report.maxHeadsSymbol);
+
+        GlrAutomation automation = new GlrAutomation(riskyGrammar(), "S", GlrBuildOptions.DEFAULT.withRiskCheck(150, null));
+        assertEquals(150, automation.parser.conflictReport.maxHeads);
+    }
+
+    @Test
+    public void test_06() throws IOException {
+        // grammar is checked when table is loaded too
+        Path path = Files.createTempFile("glr-risky-", ".bin");
+        try {
+            new GlrAutomation(riskyGrammar(), "S").save(path);
+            List<GlrConflictReport> reports = new ArrayList<>();
+            GlrAutomation.load(path, GlrBuildOptions.DEFAULT.withRiskCheck(100, reports::add));
+            assertEquals(1, reports.size());
+            assertEquals(150, reports.get(0).maxHeads);
+
+            assertThrows(GlrRiskyGrammarException.class, () -> GlrAutomation.load(path, GlrBuildOptions.DEFAULT.withRiskCheck(100, null)));
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.UtilsForTesing.tokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrFirstFollowTest {
+
+    private static List<String> names(GlrGrammar grammar, BitSet set) {
+        return set.stream().mapToObj(grammar::symbolName).toList();
+    }
+
+    @Test
+    public void test_01() {
+        GlrGrammar grammar = GlrGrammarParser.GLR_BASE_GRAMMAR;
+        GlrFirstFollow firstFollow = new GlrFirstFollow(grammar);
+
+        assertEquals(List.of("word"), new ArrayList<>(firstFollow.starters().get("S")));
+        assertEquals(List.of("word", "raw"), new ArrayList<>(firstFollow.starters().get("Symbols")));
+        assertEquals(List.of("weight", "word", "alt", "raw"), new ArrayList<>(firstFollow.followers().get("Symbols")));
+        assertEquals(List.of("word"), new ArrayList<>(firstFollow.followers().get("Rule")));
+        assertEquals(Set.of("word", "$"), new HashSet<>(names(grammar, firstFollow.follow(grammar.symbolId("Rule")))));
+        assertEquals(List.of("word"), names(grammar, firstFollow.first(grammar.symbolId("@"))));
+    }
+
+    @Test
+    public void test_02() {
+        // mutual recursion NP -> pp -> NP, GenerateFollowers was failing with StackOverflowError
+        GlrGrammar grammar = GlrGrammarParser.parse("""
+            S = NP
+            NP = adj NP
+            NP = NP pp
+            NP = noun
+            pp = prep NP
+            """, "S");
+        GlrFirstFollow firstFollow = new GlrFirstFollow(grammar);
+
+        assertEquals(List.of("adj", "noun"), new ArrayList<>(firstFollow.starters().get("NP")));
+        assertEquals(List.of("prep"), new ArrayList<>(firstFollow.followers().get("NP")));
+        assertEquals(List.of("prep"), new ArrayList<>(firstFollow.followers().get("pp")));
+        assertEquals(Set.of("prep", "$"), new HashSet<>(names(grammar, firstFollow.follow(grammar.symbolId("pp")))));
+
+        GlrParser parser = new GlrParser(grammar);
+        List<GlrToken> tokens = tokens("adj noun prep noun");
+        // adj (noun pp) and (adj noun) pp
+        assertEquals(2, parser.parse(tokens, true).size());
+    }
+
+    @Test
+    public void test_03() {
+        // second occurrence of X in rule
+        GlrGrammar grammar = GlrGrammarParser.parse("""
+            S = X a X b
+            X = x
+            """, "S");
+        GlrFirstFollow firstFollow = new GlrFirstFollow(grammar);
+
+        assertEquals(List.of("a", "b"), new ArrayList<>(firstFollow.followers().get("X")));
+    }
+
+    @Test
+    public void test_04() {
+        // nullable symbols, grammar is created directly because grammar parser doesn't allow empty rules
+        GlrGrammar grammar = new GlrGrammar(
+                new GlrGrammar.Rule(0, "@", List.of("S"), false, null, 1.0),
+                new GlrGrammar.Rule(1, "S", List.of("A", "B", "c"), false, null, 1.0),
+                new GlrGrammar.Rule(2, "A", List.of(), false, null, 1.0),
+                new GlrGrammar.Rule(3, "A", List.of("a"), false, null, 1.0),
+                new GlrGrammar.Rule(4, "B", List.of(), false, null, 1.0),
+                new GlrGrammar.Rule(5, "B", List.of("b"), false, null, 1.0)
+        );
+        GlrFirstFollow firstFollow = new GlrFirstFollow(grammar);
+
+        assertTrue(firstFollow.nullable(grammar.symbolId("A")));
+        assertTrue(firstFollow.nullable(grammar.symbolId("B")));
+        assertFalse(firstFollow.nullable(grammar.symbolId("S")));
+        assertEquals(Set.of("a", "b", "c"), new HashSet<>(names(grammar, firstFollow.first(grammar.symbolId("S")))));
+        assertEquals(Set.of("b", "c"), new HashSet<>(names(grammar, firstFollow.follow(grammar.symbolId("A")))));
+        assertEquals(Set.of("c"), new HashSet<>(names(grammar, firstFollow.follow(grammar.symbolId("B")))));
+    }
+
+    @Test
+    public void test_05() throws InterruptedException {
+        // chains of rules are deeper than stack of thread, starters and followers are traversed without recursion
+        int depth = 5000;
+        List<GlrGrammar.Rule> rules = new ArrayList<>();
+        rules.add(new GlrGrammar.Rule(rules.size(), "@", List.of("S"), false, null, 1.0));
+        for (int i = 0; i < depth; i++) {
+            rules.add(new GlrGrammar.Rule(rules.size(), "A" + i, List.of("A" + (i + 1), "a"), false, null, 1.0));
+        }
+        rules.add(new GlrGrammar.Rule(rules.size(), "A" + depth, List.of("a"), false, null, 1.0));
+        // B(depth-1) gets the smallest id, so followers of B(depth-1) go through the whole chain to B0
+        for (int i = depth - 1; i >= 0; i--) {
+            rules.add(new GlrGrammar.Rule(rules.size(), "B" + i, List.of("b", "B" + (i + 1)), false, null, 1.0));
+        }
+        rules.add(new GlrGrammar.Rule(rules.size(), "B" + depth, List.of("c"), false, null, 1.0));
+        rules.add(new GlrGrammar.Rule(rules.size(), "S", List.of("A0", "B0", "d"), false, null, 1.0));
+        GlrGrammar grammar = new GlrGrammar(rules);
+
+        List<GlrFirstFollow> result = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                result.add(new GlrFirstFollow(grammar));
+            }
+            catch (Throwable th) {
+                errors.add(th);
+            }
+        }, "small-stack", 256 * 1024);
+        thread.start();
+        thread.join();
+        assertEquals(List.of(), errors);
+
+        GlrFirstFollow firstFollow = result.get(0);
+        assertEquals(List.of("a"), new ArrayList<>(firstFollow.starters().get("A0")));
+        assertEquals(List.of("b"), new ArrayList<>(firstFollow.followers().get("A0")));
+        assertEquals(List.of("d"), new ArrayList<>(firstFollow.followers().get("B" + depth)));
+        assertEquals(List.of("d"), new ArrayList<>(firstFollow.followers().get("B0")));
+    }
+}
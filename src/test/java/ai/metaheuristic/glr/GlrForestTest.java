@@ -0,0 +1,124 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static ai.metaheuristic.glr.UtilsForTesing.SUM_GRAMMAR;
+import static ai.metaheuristic.glr.UtilsForTesing.sum;
+import static ai.metaheuristic.glr.UtilsForTesing.tokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrForestTest {
+
+    private static BigInteger catalan(int n) {
+        BigInteger c = BigInteger.ONE;
+        for (int i = 0; i < n; i++) {
+            c = c.multiply(BigInteger.valueOf(2L * (2 * i + 1))).divide(BigInteger.valueOf(i + 2));
+        }
+        return c;
+    }
+
+    @Test
+    public void test_01() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        GlrForest forest = parser.parseForest(sum(6), true, null);
+        List<String> lazy = forest.stream().map(GlrUtils::formatSyntaxTree).toList();
+        List<String> list = forest.toList().stream().map(GlrUtils::formatSyntaxTree).toList();
+
+        assertEquals(42, lazy.size());
+        assertEquals(list, lazy);
+        assertEquals(parser.parse(sum(6), true).stream().map(GlrUtils::formatSyntaxTree).toList(), lazy);
+        assertEquals(BigInteger.valueOf(42), forest.treeCount());
+    }
+
+    @Test
+    public void test_02() {
+        // Catalan(29) trees, forest has polynomial number of nodes and the first tree is built without the others
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        GlrForest forest = parser.parseForest(sum(30), true, null);
+        assertEquals(catalan(29), forest.treeCount());
+        assertTrue(forest.nodeCount() < 30 * 30 * 2, ""+forest.nodeCount());
+
+        Iterator<GlrStack.SyntaxTree> iterator = forest.iterator();
+        GlrStack.SyntaxTree first = iterator.next();
+        GlrStack.SyntaxTree second = iterator.next();
+        assertEquals("S", first.symbol());
+        assertNotEquals(GlrUtils.formatSyntaxTree(first), GlrUtils.formatSyntaxTree(second));
+    }
+
+    @Test
+    public void test_03() {
+        GlrAutomation automation = new GlrAutomation("""
+            S = NP verb
+            NP = adj NP
+            NP = NP pp
+            NP = noun
+            """, "S");
+        List<GlrToken> tokens = tokens("verb adj noun pp verb noun verb");
+        GlrForest forest = automation.parseForest(tokens);
+        assertFalse(forest.isEmpty());
+        List<String> lazy = new ArrayList<>();
+        for (GlrStack.SyntaxTree syntaxTree : forest) {
+            lazy.add(GlrUtils.formatSyntaxTree(syntaxTree));
+        }
+        assertEquals(automation.parse(tokens).stream().map(GlrUtils::formatSyntaxTree).toList(), lazy);
+        // 'noun pp verb', 'noun verb' and two attachments of pp in 'adj noun pp verb'
+        assertEquals(4, lazy.size());
+    }
+
+    @Test
+    public void test_04() {
+        // trees which aren't valid are skipped while enumerating
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        GlrForest forest = parser.parseForest(sum(5), true,
+                tree->!"E".equals(tree.symbol()) || tree.children().size()==1 || tree.children().get(0).children().get(0).isLeaf());
+        assertEquals(BigInteger.valueOf(14), forest.treeCount());
+        assertEquals(1, forest.stream().count());
+        assertEquals(1, forest.toList().size());
+        assertFalse(parser.parseForest(tokens("num plus"), true, null).iterator().hasNext());
+    }
+
+    @Test
+    public void test_05() {
+        // trees which are built by factory share equal subtrees, validator is applied once to each distinct subtree
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        int[] validated = new int[1];
+        GlrForest forest = parser.parseForest(sum(7), true, tree->++validated[0] > 0);
+
+        List<GlrStack.SyntaxTree> plain = new ArrayList<>();
+        forest.iterator().forEachRemaining(plain::add);
+        int plainValidated = validated[0];
+
+        validated[0] = 0;
+        GlrStack.SyntaxTreeFactory factory = new GlrStack.SyntaxTreeFactory();
+        List<GlrStack.SyntaxTree> shared = new ArrayList<>();
+        forest.iterator(factory).forEachRemaining(shared::add);
+
+        assertEquals(132, shared.size());
+        assertEquals(plain, shared);
+        assertTrue(validated[0] < plainValidated, validated[0] + " vs " + plainValidated);
+        assertEquals(132, new HashSet<>(shared).size());
+
+        Set<GlrStack.SyntaxTree> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<GlrStack.SyntaxTree> queue = new ArrayDeque<>(shared);
+        while (!queue.isEmpty()) {
+            GlrStack.SyntaxTree tree = queue.poll();
+            if (nodes.add(tree)) {
+                queue.addAll(tree.children());
+            }
+        }
+        // each structurally distinct subtree exists once
+        assertEquals(factory.size(), nodes.size());
+        assertEquals(nodes.size(), new HashSet<>(nodes).size());
+    }
+}
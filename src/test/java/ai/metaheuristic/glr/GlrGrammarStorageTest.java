@@ -0,0 +1,228 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.exceptions.GlrCompiledGrammarException;
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrGrammarStorageTest {
+
+    private static final String GRAMMAR = """
+        S = word<regex=^\\d{1,2}$> MONTH
+        S = 'в' word<regex=^\\d{4}$> (0.5)
+        S = S conj S
+        """;
+
+    private static List<GlrToken> tokens(String ... symbolAndValues) {
+        return Arrays.stream(symbolAndValues).map(o->{
+            String[] s = o.split(":");
+            return new GlrToken(s[0], s[1], null, s[1], null);
+        }).toList();
+    }
+
+    @Test
+    public void test_01() throws Exception {
+        GlrAutomation automation = new GlrAutomation(GRAMMAR, "S");
+        Path path = Files.createTempFile("glr-", ".bin");
+        try {
+            automation.save(path);
+            GlrAutomation loaded = GlrAutomation.load(path);
+
+            assertEquals(automation.parser.grammar.rules, loaded.parser.grammar.rules);
+            assertEquals(UtilsForTesing.actionTableAsString(automation.parser.actionGotoTable), UtilsForTesing.actionTableAsString(loaded.parser.actionGotoTable));
+
+            List<GlrToken> tokens = tokens("word:17", "MONTH:сентябрь", "conj:и", "в:в", "word:2022");
+            List<String> expected = automation.parse(tokens).stream().map(GlrUtils::formatSyntaxTree).toList();
+            List<String> actual = loaded.parse(tokens).stream().map(GlrUtils::formatSyntaxTree).toList();
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, actual);
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void test_02() throws Exception {
+        GlrAutomation automation = new GlrAutomation(GRAMMAR, "S");
+        Path path = Files.createTempFile("glr-", ".bin");
+        try {
+            automation.save(path);
+            byte[] bytes = Files.readAllBytes(path);
+
+            byte[] wrongVersion = bytes.clone();
+            wrongVersion[7] = 99;
+            Files.write(path, wrongVersion);
+            assertThrows(GlrCompiledGrammarException.class, ()->GlrAutomation.load(path));
+
+            // version 1 stored source terminals, its table doesn't match terminal classes
+            assertEquals(3, bytes[7]);
+            wrongVersion[7] = 1;
+            Files.write(path, wrongVersion);
+            GlrCompiledGrammarException e = assertThrows(GlrCompiledGrammarException.class, ()->GlrAutomation.load(path));
+            assertTrue(e.getMessage().contains("version 1"), e.getMessage());
+
+            // version 2 didn't store LR mode
+            wrongVersion[7] = 2;
+            Files.write(path, wrongVersion);
+            e = assertThrows(GlrCompiledGrammarException.class, ()->GlrAutomation.load(path));
+            assertTrue(e.getMessage().contains("version 2"), e.getMessage());
+
+            Files.write(path, Arrays.copyOf(bytes, bytes.length - 10));
+            assertThrows(GlrCompiledGrammarException.class, ()->GlrAutomation.load(path));
+
+            Files.write(path, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+            assertThrows(GlrCompiledGrammarException.class, ()->GlrAutomation.load(path));
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void test_03() throws Exception {
+        // length of array which doesn't fit into file is rejected before array is allocated
+        GlrAutomation automation = new GlrAutomation(GRAMMAR, "S");
+        Path path = Files.createTempFile("glr-", ".bin");
+        try {
+            automation.save(path);
+            byte[] bytes = Files.readAllBytes(path);
+            // the last array is actionValue
+            int actionValueLength = bytes.length - Integer.BYTES * (1 + automation.parser.table.actionValue.length);
+            for (int length : new int[]{Integer.MAX_VALUE, 0x40000000, automation.parser.table.actionValue.length + 1, -1}) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.clone());
+                buffer.putInt(actionValueLength, length);
+                assertThrows(GlrCompiledGrammarException.class, ()->GlrGrammarStorage.read(buffer), ""+length);
+            }
+            // count of symbols, after magic, version and name of LR mode
+            int symbolCountOffset = 3 * Integer.BYTES + GlrEnums.LrMode.SLR.name().length();
+            for (int length : new int[]{Integer.MAX_VALUE, -2}) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.clone());
+                buffer.putInt(symbolCountOffset, length);
+                assertThrows(GlrCompiledGrammarException.class, ()->GlrGrammarStorage.read(buffer), ""+length);
+            }
+            assertEquals(automation.parser.grammar.rules, GlrGrammarStorage.read(ByteBuffer.wrap(bytes)).grammar().rules);
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static GlrTable copy(GlrTable t) {
+        return new GlrTable(t.symbols, t.ruleLeft.clone(), t.ruleLength.clone(), t.base.clone(), t.check.clone(), t.slotCell.clone(),
+                t.rowCellStart.clone(), t.cellSymbol.clone(), t.cellActionStart.clone(), t.actionKind.clone(), t.actionValue.clone());
+    }
+
+    private static int firstAction(GlrTable table, byte kind) {
+        for (int a = 0; a < table.actionKind.length; a++) {
+            if (table.actionKind[a]==kind) {
+                return a;
+            }
+        }
+        throw new IllegalStateException("(no action), kind: " + kind);
+    }
+
+    private static void assertCorrupted(GlrAutomation automation, GlrTable table, String message) throws IOException {
+        Path path = Files.createTempFile("glr-", ".bin");
+        try {
+            GlrGrammarStorage.save(path, automation.parser.grammar, table, automation.parser.lrMode);
+            GlrCompiledGrammarException e = assertThrows(GlrCompiledGrammarException.class, ()->GlrAutomation.load(path));
+            assertTrue(e.getMessage().contains(message), e.getMessage());
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void test_04() throws Exception {
+        // arrays of table which don't match each other or rules are rejected before parser is created
+        GlrAutomation automation = new GlrAutomation(GRAMMAR, "S");
+        GlrTable t = automation.parser.table;
+
+        assertCorrupted(automation, new GlrTable(t.symbols, t.ruleLeft, t.ruleLength, t.base, t.check, Arrays.copyOf(t.slotCell, t.slotCell.length - 1),
+                t.rowCellStart, t.cellSymbol, t.cellActionStart, t.actionKind, t.actionValue), "check and slotCell");
+        assertCorrupted(automation, new GlrTable(t.symbols, t.ruleLeft, t.ruleLength, Arrays.copyOf(t.base, t.base.length + 1), t.check, t.slotCell,
+                t.rowCellStart, t.cellSymbol, t.cellActionStart, t.actionKind, t.actionValue), "Length of rowCellStart");
+        assertCorrupted(automation, new GlrTable(t.symbols, t.ruleLeft, t.ruleLength, t.base, t.check, t.slotCell,
+                t.rowCellStart, t.cellSymbol, Arrays.copyOf(t.cellActionStart, t.cellActionStart.length - 1), t.actionKind, t.actionValue), "Length of cellActionStart");
+
+        GlrTable table = copy(t);
+        table.cellActionStart[table.cellActionStart.length - 1]++;
+        assertCorrupted(automation, table, "cellActionStart must start with 0 and end with " + t.actionKind.length);
+
+        table = copy(t);
+        table.cellActionStart[1] = table.cellActionStart[2] + 1;
+        assertCorrupted(automation, table, "cellActionStart isn't monotonic at #1");
+
+        table = copy(t);
+        table.base[0]++;
+        assertCorrupted(automation, table, "base, check and slotCell don't match");
+
+        table = copy(t);
+        table.actionKind[0] = 42;
+        assertCorrupted(automation, table, "Unknown action kind of action #0: 42");
+
+        table = copy(t);
+        table.actionValue[firstAction(table, GlrTable.SHIFT)] = t.stateCount();
+        assertCorrupted(automation, table, "Target state of action");
+
+        table = copy(t);
+        table.actionValue[firstAction(table, GlrTable.REDUCE)] = t.ruleCount();
+        assertCorrupted(automation, table, "Rule of reduce action");
+
+        table = copy(t);
+        table.ruleLeft[1] = t.ruleLeft[0];
+        assertCorrupted(automation, table, "ruleLeft doesn't match rule #1");
+
+        table = copy(t);
+        table.ruleLength[1]++;
+        assertCorrupted(automation, table, "ruleLength doesn't match rule #1");
+    }
+
+    @Test
+    public void test_05() throws Exception {
+        // symbol ids of rules are checked with the number of symbols
+        GlrAutomation automation = new GlrAutomation(GRAMMAR, "S");
+        Path path = Files.createTempFile("glr-", ".bin");
+        try {
+            automation.save(path);
+            byte[] bytes = Files.readAllBytes(path);
+            // magic, version, name of LR mode, symbols and count of rules
+            int offset = 3 * Integer.BYTES + automation.parser.lrMode.name().length() + Integer.BYTES;
+            for (String symbol : automation.parser.table.symbols) {
+                offset += Integer.BYTES + symbol.getBytes(StandardCharsets.UTF_8).length;
+            }
+            offset += Integer.BYTES;
+            // left symbol and the first right symbol of rule #0
+            for (int position : new int[]{offset, offset + 2 * Integer.BYTES}) {
+                for (int id : new int[]{automation.parser.table.symbols.length, -1}) {
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes.clone());
+                    buffer.putInt(position, id);
+                    GlrCompiledGrammarException e = assertThrows(GlrCompiledGrammarException.class, ()->GlrGrammarStorage.read(buffer));
+                    assertTrue(e.getMessage().contains("Symbol id of rule #0 is out of range: " + id), e.getMessage());
+                }
+            }
+            assertEquals(automation.parser.grammar.rules, GlrGrammarStorage.read(ByteBuffer.wrap(bytes)).grammar().rules);
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
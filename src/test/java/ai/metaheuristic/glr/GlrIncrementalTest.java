@@ -0,0 +1,161 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static ai.metaheuristic.glr.GlrEnums.LrMode;
+import static ai.metaheuristic.glr.UtilsForTesing.tokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrIncrementalTest {
+
+    private static final String NP_GRAMMAR = """
+        S = NP VP
+        NP = NP pp
+        NP = adj NP
+        NP = noun
+        VP = verb NP
+        VP = VP pp
+        """;
+
+    private static GlrGrammar.Rule rule(String left, String ... rights) {
+        return new GlrGrammar.Rule(-1, left, List.of(rights), false, null, 1.0);
+    }
+
+    private static List<String> parse(GlrParser parser, String str) {
+        return parser.parse(tokens(str), true).stream().map(GlrUtils::formatSyntaxTree).sorted().toList();
+    }
+
+    private static int sharedRows(GlrParser prev, GlrParser parser) {
+        int count = 0;
+        for (int i = 0; i < parser.actionGotoTable.size() && i < prev.actionGotoTable.size(); i++) {
+            if (parser.actionGotoTable.get(i)==prev.actionGotoTable.get(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void assertSameAsFull(GlrParser parser, LrMode mode) {
+        GlrParser full = new GlrParser(parser.grammar, 0, mode);
+        assertEquals(UtilsForTesing.actionTableAsString(full.actionGotoTable), UtilsForTesing.actionTableAsString(parser.actionGotoTable), mode.toString());
+    }
+
+    @Test
+    public void test_01() {
+        for (LrMode mode : LrMode.values()) {
+            GlrParser parser = new GlrParser(GlrGrammarParser.parse(NP_GRAMMAR, "S"), 0, mode);
+            String before = UtilsForTesing.actionTableAsString(parser.actionGotoTable);
+
+            GlrParser added = parser.addRule(rule("VP", "verb"));
+            assertEquals(parser.grammar.rules.size() + 1, added.grammar.rules.size());
+            assertEquals(parser.grammar.rules.size(), added.grammar.rules.get(parser.grammar.rules.size()).index());
+            assertSameAsFull(added, mode);
+            // source parser isn't changed
+            assertEquals(before, UtilsForTesing.actionTableAsString(parser.actionGotoTable));
+            if (mode!=LrMode.LR1) {
+                assertTrue(sharedRows(parser, added) > 0, mode.toString());
+            }
+
+            assertEquals(List.of(), parse(parser, "noun verb"));
+            assertEquals(1, parse(added, "noun verb").size());
+        }
+    }
+
+    @Test
+    public void test_02() {
+        for (LrMode mode : LrMode.values()) {
+            GlrParser parser = new GlrParser(GlrGrammarParser.parse(NP_GRAMMAR, "S"), 0, mode);
+            // NP = adj NP
+            GlrParser removed = parser.removeRule(3);
+            assertEquals(parser.grammar.rules.size() - 1, removed.grammar.rules.size());
+            for (int i = 0; i < removed.grammar.rules.size(); i++) {
+                assertEquals(i, removed.grammar.rules.get(i).index());
+            }
+            assertSameAsFull(removed, mode);
+
+            assertEquals(1, parse(parser, "adj noun verb noun").size());
+            assertEquals(List.of(), parse(removed, "adj noun verb noun"));
+            assertEquals(parse(parser, "noun verb noun pp"), parse(removed, "noun verb noun pp"));
+        }
+    }
+
+    @Test
+    public void test_03() {
+        // terminal 'pp' becomes nonterminal and back
+        for (LrMode mode : LrMode.values()) {
+            GlrParser parser = new GlrParser(GlrGrammarParser.parse(NP_GRAMMAR, "S"), 0, mode);
+            GlrParser added = parser.addRules(List.of(rule("pp", "prep", "NP"), rule("pp", "prep", "adj")));
+            assertSameAsFull(added, mode);
+            assertFalse(parse(added, "noun verb noun prep noun").isEmpty());
+
+            GlrParser removed = added.removeRule(added.grammar.rules.size() - 1).removeRule(added.grammar.rules.size() - 2);
+            assertEquals(UtilsForTesing.actionTableAsString(parser.actionGotoTable), UtilsForTesing.actionTableAsString(removed.actionGotoTable));
+        }
+    }
+
+    @Test
+    public void test_04() {
+        // state graph of big grammar, only part of states depends on the new rule
+        GlrGrammar grammar = GlrGrammarParser.parse(NP_GRAMMAR + """
+            S = A0
+            A0 = t0 A1 t1
+            A1 = t1 A2
+            A2 = t2 A0
+            A2 = t2
+            B = b A0
+            """, "S");
+        GlrLrBuilder.Automaton prev = new GlrLrBuilder(grammar).generate(LrMode.LALR);
+
+        List<GlrGrammar.Rule> rules = new ArrayList<>(grammar.rules);
+        rules.add(new GlrGrammar.Rule(rules.size(), "A1", List.of("t1", "B"), false, null, 1.0));
+        GlrGrammar newGrammar = new GlrGrammar(rules);
+        int[] ruleMapping = new int[grammar.rules.size()];
+        for (int i = 0; i < ruleMapping.length; i++) {
+            ruleMapping[i] = i;
+        }
+        GlrLrBuilder.Automaton expected = new GlrLrBuilder(newGrammar).generate(LrMode.LALR);
+        GlrLrBuilder.Automaton actual = new GlrLrBuilder(newGrammar).generate(prev, ruleMapping, Set.of("A1"));
+        assertEquals(expected.states(), actual.states());
+        assertEquals(expected.reduceLookaheads(), actual.reduceLookaheads());
+    }
+
+    @Test
+    public void test_05() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.GLR_BASE_GRAMMAR, 0, LrMode.SLR);
+        assertThrows(IllegalStateException.class, ()->parser.removeRule(0));
+        assertThrows(IllegalStateException.class, ()->parser.removeRule(parser.grammar.rules.size()));
+    }
+
+    @Test
+    public void test_06() throws Exception {
+        // LR mode is stored with table, loaded parser is rebuilt in the mode which table was built in
+        for (LrMode mode : LrMode.values()) {
+            GlrAutomation automation = new GlrAutomation(NP_GRAMMAR, "S", 0, mode);
+            Path path = Files.createTempFile("glr-", ".bin");
+            try {
+                automation.save(path);
+                GlrAutomation loaded = GlrAutomation.load(path, GlrBuildOptions.DEFAULT.withLrMode(LrMode.SLR));
+                assertEquals(mode, loaded.parser.lrMode);
+
+                GlrParser added = loaded.parser.addRule(rule("VP", "verb"));
+                assertEquals(mode, added.lrMode);
+                assertSameAsFull(added, mode);
+                assertSameAsFull(added.removeRule(added.grammar.rules.size() - 1), mode);
+            }
+            finally {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
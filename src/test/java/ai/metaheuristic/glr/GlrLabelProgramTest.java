@@ -0,0 +1,156 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.exceptions.GlrLabelRegexException;
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.UtilsForTesing.token;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrLabelProgramTest {
+
+    private static List<GlrToken> tokens(GlrToken ... tokens) {
+        List<GlrToken> list = new ArrayList<>(List.of(tokens));
+        list.add(new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+        return list;
+    }
+
+    private static GlrStack.SyntaxTree tree(List<GlrToken> input, int start, int end) {
+        List<GlrStack.SyntaxTree> children = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            children.add(new GlrStack.SyntaxTree(input.get(i).symbol, input.get(i), null, List.of(), i, i + 1));
+        }
+        return new GlrStack.SyntaxTree("S", null, 1, children, start, end);
+    }
+
+    @Test
+    public void test_01() {
+        GlrGrammar grammar = GlrGrammarParser.parse("""
+            S = word<regex=^\\d+$> 'x' word<class=Integer>
+            S = A
+            A = word
+            """, "S");
+        GlrLabelProgram program = GlrLabelProgram.compile(grammar);
+
+        GlrLabelProgram.Check[] checks = program.checks(1);
+        // marker of raw symbol isn't a label
+        assertEquals(List.of("0:regex=^\\d+$", "2:class=Integer"),
+                Arrays.stream(checks).map(o->o.position() + ":" + o.label() + "=" + o.value()).sorted().toList());
+        assertEquals(0, program.checks(0).length);
+        assertEquals(0, program.checks(2).length);
+        assertEquals(0, program.checks(3).length);
+
+        List<GlrToken> tokens = List.of(token("word", "12"), token("x", "x"), token("word", 12));
+        assertTrue(GlrLabelProgram.test(checks, tree(tokens, 0, 3), tokens));
+        assertFalse(GlrLabelProgram.test(checks, tree(tokens, 0, 3), List.of(token("word", "12"), token("x", "x"), token("word", "12"))));
+        assertFalse(GlrLabelProgram.test(checks, tree(tokens, 0, 3), List.of(token("word", "a12"), token("x", "x"), token("word", 12))));
+        // tokens are addressed by span of tree in input
+        List<GlrToken> input = List.of(token("word", "a"), token("word", "12"), token("x", "x"), token("word", 12));
+        assertTrue(GlrLabelProgram.test(checks, tree(input, 1, 4), input));
+        assertTrue(GlrLabelProgram.test(checks, tree(input, 1, 4), tree(input, 1, 4).inputView()));
+        // position which is out of tokens isn't checked, nonterminal fails label
+        assertTrue(GlrLabelProgram.test(checks, tree(tokens, 0, 1), tokens));
+        GlrStack.SyntaxTree a = new GlrStack.SyntaxTree("A", null, 3, List.of(tree(tokens, 0, 1).children().get(0)), 0, 1);
+        assertFalse(GlrLabelProgram.test(checks, new GlrStack.SyntaxTree("S", null, 1, List.of(a, tree(tokens, 1, 2).children().get(0)), 0, 2), tokens));
+    }
+
+    @Test
+    public void test_02() {
+        // compiled checks give the same results as functions of labels
+        List<GlrToken> tokens = List.of(token("word", "2022"), token("word", 17), token("word", "abc"), token("word", 3.5));
+        List<String[]> labels = List.of(
+                new String[]{"regex", "^\\d+$"}, new String[]{"regex", "b"}, new String[]{"class", "Integer"},
+                new String[]{"class", "String"}, new String[]{"gram", "NOUN"}, new String[]{"agr-gnc", "1"}, new String[]{"agr-gnc", "-1"});
+        for (String[] label : labels) {
+            GlrLabels.TokenCheck check = GlrLabels.compile(label[0], label[1]);
+            for (int i = 0; i < tokens.size(); i++) {
+                if (label[0].equals("agr-gnc") && (i + Integer.parseInt(label[1]) < 0 || i + Integer.parseInt(label[1]) >= tokens.size())) {
+                    continue;
+                }
+                boolean expected = GlrLabels.LABELS_CHECK.get(label[0]).apply(new GlrLabels.LabelCheck(label[1], tokens, i));
+                assertEquals(expected, check.test(tokens, i), label[0] + "=" + label[1] + " #" + i);
+            }
+        }
+        // value which isn't a number fails as before, at check
+        GlrLabels.TokenCheck wrongOffset = GlrLabels.compile("agr-gnc", "a");
+        assertThrows(NumberFormatException.class, ()->wrongOffset.test(tokens, 0));
+        assertFalse(GlrLabels.compile("unknown-label", "1").test(tokens, 0));
+    }
+
+    @Test
+    public void test_03() {
+        GlrAutomation automation = new GlrAutomation("""
+            S = A word<regex=^\\d+$>
+            A = word
+            A = word word
+            """, "S");
+        List<GlrToken> tokens = tokens(token("word", "a"), token("word", "b"), token("word", "12"));
+        List<GlrStack.SyntaxTree> trees = automation.parse(tokens);
+        assertEquals(List.of("b 12"), trees.stream().map(UtilsForTesing::asResultString).toList());
+        // span of result
+        assertEquals(1, trees.get(0).start());
+        assertEquals(3, trees.get(0).end());
+        assertEquals(tokens.subList(1, 3), trees.get(0).tokens(tokens));
+        assertSame(tokens.get(2), trees.get(0).tokenAt(2));
+
+        List<GlrStack.SyntaxTree> streamed = new ArrayList<>();
+        GlrParseSession session = automation.open(streamed::add);
+        tokens.forEach(session::push);
+        session.finish();
+        assertEquals(trees, streamed);
+    }
+
+    @Test
+    public void test_04() {
+        // rule with raw symbol and labels, raw symbol failed validator before labels were compiled
+        GlrAutomation automation = new GlrAutomation("""
+            S = NUM 'x' NUM<class=Integer>
+            """, "S");
+        assertEquals(1, automation.parse(tokens(token("NUM", 1), token("x", "x"), token("NUM", 2))).size());
+        assertEquals(0, automation.parse(tokens(token("NUM", 1), token("x", "x"), token("NUM", "2"))).size());
+    }
+
+    @Test
+    public void test_05() {
+        // regex which matches empty string fails parsing, not compiling
+        GlrAutomation automation = new GlrAutomation("""
+            S = A word<regex=^\\d*$>
+            A = word
+            """, "S");
+        assertThrows(GlrLabelRegexException.class, ()->automation.parse(tokens(token("word", "a"), token("word", "a"))));
+
+        GlrGrammar grammar = new GlrGrammar(new GlrGrammar.Rule(0, "S", List.of("word"), false, List.of(Map.of("class", List.of(1))), 1.0));
+        assertThrows(IllegalStateException.class, ()->GlrLabelProgram.compile(grammar));
+    }
+
+    @Test
+    public void test_06() {
+        // agr-gnc addresses token out of span of tree, label fails in parse() and in session, the same as out of input
+        GlrAutomation automation = new GlrAutomation("""
+            S = X
+            X = adj<agr-gnc=1>
+            """, "S");
+        List<GlrToken> tokens = tokens(token("adj", "a"), token("noun", "b"));
+        assertEquals(List.of(), automation.parse(tokens));
+
+        List<GlrStack.SyntaxTree> streamed = new ArrayList<>();
+        GlrParseSession session = automation.open(streamed::add);
+        tokens.forEach(session::push);
+        session.finish();
+        assertEquals(List.of(), streamed);
+
+        GlrLabels.TokenCheck check = GlrLabels.compile("agr-gnc", "1");
+        assertFalse(check.test(List.of(token("adj", "a")), 0, 0, 1));
+        assertFalse(check.test(tokens, 0, 0, 1));
+        assertFalse(GlrLabels.compile("agr-gnc", "-1").test(tokens, 1, 1, 2));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrLrBuilderTest {
+
+    private record StackRec(@Nullable Integer index, @Nullable String lookahead, List<GlrLr.Item> itemset) {}
+
+    // straightforward implementation which was used before GlrLrBuilder, it's used as reference
+    private static List<GlrLr.State> referenceStateGraph(GlrGrammar grammar) {
+        List<GlrLr.State> states = new ArrayList<>();
+        LinkedHashMap<List<GlrLr.Item>, GlrLr.State> stateByItemset = new LinkedHashMap<>();
+        List<GlrLr.Item> firstItemset = GlrLr.closure(List.of(GlrLr.EMPTY_ITEM), grammar);
+        firstItemset = firstItemset.stream().sorted(Comparator.comparingInt(GlrLr.Item::ruleIndex)).collect(Collectors.toList());
+        LinkedList<StackRec> stack = new LinkedList<>();
+        stack.add(new StackRec(null, null, firstItemset));
+
+        while (!stack.isEmpty()) {
+            StackRec stackRec = stack.removeFirst();
+            GlrLr.State state = stateByItemset.get(stackRec.itemset);
+            if (state!=null) {
+                states.get(Objects.requireNonNull(stackRec.index)).followDict().computeIfAbsent(stackRec.lookahead, (o)->new HashSet<>()).add(state.index());
+                continue;
+            }
+            state = new GlrLr.State(states.size(), stackRec.itemset, new LinkedHashMap<>(), stackRec.index, stackRec.lookahead);
+            states.add(state);
+            stateByItemset.put(state.itemset(), state);
+            if (stackRec.index!=null) {
+                states.get(stackRec.index).followDict().computeIfAbsent(stackRec.lookahead, (o)->new HashSet<>()).add(state.index());
+            }
+            for (GlrLr.Follows follows : GlrLr.follow(state.itemset(), grammar)) {
+                stack.add(new StackRec(state.index(), follows.lookahead(), GlrLr.uniqueAndSorted(follows.item())));
+            }
+        }
+        return states;
+    }
+
+    private static void assertSameGraph(GlrGrammar grammar) {
+        List<GlrLr.State> expected = referenceStateGraph(grammar);
+        List<GlrLr.State> actual = new GlrLrBuilder(grammar).generateStateGraph();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).itemset(), actual.get(i).itemset(), "state #" + i);
+            assertEquals(expected.get(i).parentStateIndex(), actual.get(i).parentStateIndex(), "state #" + i);
+            assertEquals(expected.get(i).parentLookahead(), actual.get(i).parentLookahead(), "state #" + i);
+            assertEquals(new ArrayList<>(expected.get(i).followDict().entrySet()), new ArrayList<>(actual.get(i).followDict().entrySet()), "state #" + i);
+        }
+    }
+
+    @Test
+    public void test_01() {
+        assertSameGraph(GlrGrammarParser.GLR_BASE_GRAMMAR);
+    }
+
+    @Test
+    public void test_02() {
+        assertSameGraph(GlrGrammarParser.parse("""
+            S = NUMBER adj CLOTHES
+            S = NUMBER CLOTHES adj
+            S = S conj S
+            S = NP VP
+            NP = NP pp
+            NP = adj NP
+            NP = noun
+            VP = verb NP
+            VP = VP pp
+            """, "S"));
+    }
+
+    @Test
+    public void test_03() {
+        // synthetic grammar with chains of nonterminals and shared prefixes
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            sb.append("S = A").append(i).append('\n');
+            sb.append("A").append(i).append(" = t").append(i % 7).append(" A").append((i + 1) % 40).append(" t").append(i % 5).append('\n');
+            sb.append("A").append(i).append(" = t").append(i % 7).append(" B").append(i % 3).append('\n');
+        }
+        sb.append("B0 = x\nB1 = x y\nB2 = B0 B1\n");
+        assertSameGraph(GlrGrammarParser.parse(sb.toString(), "S"));
+    }
+
+    @Test
+    public void test_04() {
+        GlrGrammar grammar = GlrGrammarParser.GLR_BASE_GRAMMAR;
+        GlrLrBuilder builder = new GlrLrBuilder(grammar);
+        int[] closure = builder.closure(builder.itemId(0, 0));
+        assertArrayEquals(new int[]{builder.itemId(0, 0), builder.itemId(1, 0), builder.itemId(2, 0), builder.itemId(3, 0)}, closure);
+        assertSame(closure, builder.closure(builder.itemId(0, 0)));
+    }
+
+    // gazetteer-like grammar, entries of several templates share prefixes of words
+    private static GlrGrammar generatedGrammar(int entries) {
+        List<GlrGrammar.Rule> rules = new ArrayList<>();
+        rules.add(new GlrGrammar.Rule(0, "@", List.of("S"), false, null, 1.0));
+        for (int i = 0; i < entries; i++) {
+            String entry = "E" + i;
+            rules.add(new GlrGrammar.Rule(rules.size(), "S", List.of(entry), false, null, 1.0));
+            rules.add(new GlrGrammar.Rule(rules.size(), entry, List.of("w" + (i % 31), "w" + (i % 17), "T" + (i % 5)), false, null, 1.0));
+            rules.add(new GlrGrammar.Rule(rules.size(), entry, List.of("T" + (i % 5), "w" + (i % 13)), false, null, 1.0));
+        }
+        for (int i = 0; i < 5; i++) {
+            rules.add(new GlrGrammar.Rule(rules.size(), "T" + i, List.of("adj", "T" + ((i + 1) % 5)), false, null, 1.0));
+            rules.add(new GlrGrammar.Rule(rules.size(), "T" + i, List.of("noun" + i), false, null, 1.0));
+        }
+        return new GlrGrammar(rules);
+    }
+
+    private static void assertSameStates(List<GlrLr.State> expected, List<GlrLr.State> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), "state #" + i);
+        }
+    }
+
+    @Test
+    public void test_05() {
+        GlrGrammar grammar = generatedGrammar(3000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<GlrLr.State> expected = new GlrLrBuilder(grammar).generateStateGraph();
+            List<GlrLr.State> actual = new GlrLrBuilder(grammar, pool).generateStateGraph();
+            assertSameStates(expected, actual);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void test_06() {
+        GlrGrammar grammar = generatedGrammar(300);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (GlrEnums.LrMode mode : GlrEnums.LrMode.values()) {
+                assertEquals(
+                        UtilsForTesing.actionTableAsString(GlrLr.generateActionGotoTable(grammar, mode)),
+                        UtilsForTesing.actionTableAsString(GlrLr.generateActionGotoTable(grammar, mode, pool)), mode.toString());
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.GlrEnums.LrMode;
+import static ai.metaheuristic.glr.UtilsForTesing.tokensWithoutEnd;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrLrModeTest {
+
+    // grammars from dragon book, the first isn't SLR(1) but is LALR(1), the second isn't LALR(1) but is LR(1)
+    private static final String LALR_GRAMMAR = """
+        S = A a
+        S = b A c
+        S = d c
+        S = b d a
+        A = d
+        """;
+
+    private static final String LR1_GRAMMAR = """
+        S = a A d
+        S = b B d
+        S = a B e
+        S = b A e
+        A = c
+        B = c
+        """;
+
+    private static final String NP_GRAMMAR = """
+        S = NP VP
+        NP = NP pp NP
+        NP = adj NP
+        NP = noun
+        VP = verb NP
+        VP = VP pp NP
+        """;
+
+    private static List<String> parse(GlrParser parser, String str, boolean fullMath) {
+        List<GlrToken> tokens = tokensWithoutEnd(str);
+        if (fullMath) {
+            tokens.add(new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+        }
+        return parser.parse(tokens, fullMath, null).stream().map(GlrUtils::formatSyntaxTree).sorted().toList();
+    }
+
+    private static int reduceCount(GlrParser parser) {
+        int count = 0;
+        for (LinkedHashMap<String, List<GlrLr.Action>> row : parser.actionGotoTable) {
+            for (Map.Entry<String, List<GlrLr.Action>> entry : row.entrySet()) {
+                count += (int) entry.getValue().stream().filter(o->"R".equals(o.type())).count();
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void test_01() {
+        GlrGrammar grammar = GlrGrammarParser.parse(LALR_GRAMMAR, "S");
+        GlrParser slr = new GlrParser(grammar, 0, LrMode.SLR);
+        GlrParser lalr = new GlrParser(grammar, 0, LrMode.LALR);
+        GlrParser lr1 = new GlrParser(grammar, 0, LrMode.LR1);
+
+        System.out.println("SLR: " + slr.conflicts() + ", LALR: " + lalr.conflicts() + ", LR1: " + lr1.conflicts());
+        assertEquals(2, slr.conflicts().shiftReduce());
+        assertEquals(new GlrLr.Conflicts(0, 0), lalr.conflicts());
+        assertEquals(new GlrLr.Conflicts(0, 0), lr1.conflicts());
+
+        assertEquals(slr.actionGotoTable.size(), lalr.actionGotoTable.size());
+        assertTrue(lr1.actionGotoTable.size() >= lalr.actionGotoTable.size());
+
+        for (String s : List.of("d a", "b d c", "d c", "b d a")) {
+            List<String> expected = parse(slr, s, true);
+            assertEquals(1, expected.size(), s);
+            assertEquals(expected, parse(lalr, s, true), s);
+            assertEquals(expected, parse(lr1, s, true), s);
+        }
+    }
+
+    @Test
+    public void test_05() {
+        GlrGrammar grammar = GlrGrammarParser.parse(LR1_GRAMMAR, "S");
+        GlrParser slr = new GlrParser(grammar, 0, LrMode.SLR);
+        GlrParser lalr = new GlrParser(grammar, 0, LrMode.LALR);
+        GlrParser lr1 = new GlrParser(grammar, 0, LrMode.LR1);
+
+        System.out.println("SLR: " + slr.conflicts() + ", LALR: " + lalr.conflicts() + ", LR1: " + lr1.conflicts());
+        assertEquals(2, slr.conflicts().reduceReduce());
+        assertEquals(2, lalr.conflicts().reduceReduce());
+        assertEquals(new GlrLr.Conflicts(0, 0), lr1.conflicts());
+        // state after 'c' is split by lookaheads
+        assertEquals(slr.actionGotoTable.size() + 1, lr1.actionGotoTable.size());
+
+        for (String s : List.of("a c d", "b c d", "a c e", "b c e")) {
+            List<String> expected = parse(slr, s, true);
+            assertEquals(1, expected.size(), s);
+            assertEquals(expected, parse(lalr, s, true), s);
+            assertEquals(expected, parse(lr1, s, true), s);
+        }
+    }
+
+    @Test
+    public void test_02() {
+        GlrGrammar grammar = GlrGrammarParser.parse(NP_GRAMMAR, "S");
+        GlrParser slr = new GlrParser(grammar, 0, LrMode.SLR);
+        GlrParser lalr = new GlrParser(grammar, 0, LrMode.LALR);
+        GlrParser lr1 = new GlrParser(grammar, 0, LrMode.LR1);
+
+        System.out.println("SLR: " + slr.conflicts() + ", LALR: " + lalr.conflicts() + ", LR1: " + lr1.conflicts());
+        assertTrue(reduceCount(lalr) <= reduceCount(slr));
+        assertTrue(lalr.conflicts().shiftReduce() <= slr.conflicts().shiftReduce());
+
+        String str = "adj noun verb noun pp noun pp adj noun";
+        List<String> expected = parse(slr, str, true);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, parse(lalr, str, true));
+        assertEquals(expected, parse(lr1, str, true));
+
+        String text = "verb adj noun verb noun pp noun conj";
+        expected = parse(slr, text, false);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, parse(lalr, text, false));
+        assertEquals(expected, parse(lr1, text, false));
+    }
+
+    @Test
+    public void test_03() {
+        for (LrMode mode : LrMode.values()) {
+            GlrParser parser = new GlrParser(GlrGrammarParser.GLR_BASE_GRAMMAR, 0, mode);
+            if (mode==LrMode.LR1) {
+                assertTrue(parser.actionGotoTable.size() >= 17);
+            }
+            else {
+                assertEquals(17, parser.actionGotoTable.size());
+            }
+        }
+    }
+
+    @Test
+    public void test_04() {
+        // DeRemer-Pennello digraph, nodes 1 and 2 are in one strongly connected component
+        BitSet[] initial = new BitSet[4];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = new BitSet();
+            initial[i].set(i);
+        }
+        BitSet[] result = GlrLrBuilder.digraph(initial, new int[][]{{1}, {2}, {1, 3}, {}});
+        assertEquals(BitSet.valueOf(new long[]{0b1111}), result[0]);
+        assertEquals(BitSet.valueOf(new long[]{0b1110}), result[1]);
+        assertEquals(BitSet.valueOf(new long[]{0b1110}), result[2]);
+        assertEquals(BitSet.valueOf(new long[]{0b1000}), result[3]);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.GlrEnums.MatchPolicy;
+import static ai.metaheuristic.glr.UtilsForTesing.token;
+import static ai.metaheuristic.glr.UtilsForTesing.tokensWithoutEnd;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrMatchPolicyTest {
+
+    private static final String NP_GRAMMAR = """
+        S = NP verb
+        S = NP
+        NP = adj NP
+        NP = NP pp
+        NP = noun
+        """;
+
+    private static final GlrParseOptions LEFTMOST_LONGEST = GlrParseOptions.DEFAULT.withMatchPolicy(MatchPolicy.LEFTMOST_LONGEST);
+
+    private static List<String> spans(GlrParser parser, List<GlrToken> tokens, GlrParseOptions options, int[] dominated) {
+        List<String> spans = new ArrayList<>();
+        GlrParseSession session = new GlrParseSession(parser, false, options, root->spans.add(root.start + "-" + root.end));
+        for (GlrToken token : tokens) {
+            session.push(token);
+        }
+        session.finish();
+        dominated[0] += session.dominatedEdges;
+        return spans;
+    }
+
+    // spans which don't overlap, the leftmost and the longest first
+    private static List<String> leftmostLongest(List<String> all) {
+        List<int[]> spans = new ArrayList<>();
+        for (String span : all) {
+            String[] parts = span.split("-");
+            spans.add(new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])});
+        }
+        spans.sort(Comparator.<int[]>comparingInt(o->o[0]).thenComparing(o->-o[1]));
+        List<String> result = new ArrayList<>();
+        int end = 0;
+        for (int[] span : spans) {
+            if (span[0] >= end) {
+                result.add(span[0] + "-" + span[1]);
+                end = span[1];
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void test_01() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(NP_GRAMMAR, "S"));
+        List<GlrToken> tokens = tokensWithoutEnd("verb adj adj noun pp verb noun noun pp");
+        List<String> all = spans(parser, tokens, GlrParseOptions.DEFAULT, new int[1]);
+        int[] dominated = new int[1];
+        List<String> selected = spans(parser, tokens, LEFTMOST_LONGEST, dominated);
+        assertEquals(List.of("1-6", "6-7", "7-9"), selected);
+        assertTrue(dominated[0] > 0);
+        assertEquals(leftmostLongest(all), selected);
+        assertTrue(all.size() > selected.size());
+    }
+
+    @Test
+    public void test_02() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(NP_GRAMMAR, "S"));
+        String[] vocabulary = {"adj", "noun", "pp", "verb", "x"};
+        Random r = new Random(7);
+        int[] dominated = new int[1];
+        for (int i = 0; i < 300; i++) {
+            List<String> symbols = new ArrayList<>();
+            for (int j = 0, size = 1 + r.nextInt(15); j < size; j++) {
+                symbols.add(vocabulary[r.nextInt(vocabulary.length)]);
+            }
+            List<GlrToken> tokens = tokensWithoutEnd(String.join(" ", symbols));
+            int[] none = new int[1];
+            List<String> all = spans(parser, tokens, GlrParseOptions.DEFAULT, none);
+            assertEquals(0, none[0]);
+            assertEquals(leftmostLongest(all), spans(parser, tokens, LEFTMOST_LONGEST, dominated), symbols.toString());
+        }
+        // paths which start inside of chosen spans are dropped
+        assertTrue(dominated[0] > 0);
+    }
+
+    @Test
+    public void test_03() {
+        // policy works with parse() and is ignored in full match mode
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(NP_GRAMMAR, "S"));
+        List<GlrToken> tokens = tokensWithoutEnd("adj noun verb noun");
+        tokens.add(new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+        assertEquals(2, parser.parse(tokens, false, null, LEFTMOST_LONGEST).size());
+        assertEquals(parser.parse(tokens, true).size(), parser.parse(tokens, true, null, LEFTMOST_LONGEST).size());
+    }
+
+    @Test
+    public void test_04() {
+        // span without valid tree isn't chosen, shorter spans with valid trees are passed instead of it
+        GlrAutomation automation = new GlrAutomation("""
+            S = X word<regex=^b$>
+            S = X
+            X = word
+            """, "S");
+        List<GlrToken> tokens = List.of(token("word", "a"), token("word", "c"), new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+        List<String> all = automation.parse(tokens).stream().map(o->o.start() + "-" + o.end()).toList();
+        assertEquals(List.of("0-1", "1-2"), all);
+        assertEquals(all, automation.parse(tokens, LEFTMOST_LONGEST).stream().map(o->o.start() + "-" + o.end()).toList());
+
+        // the longest span is chosen when its tree is valid
+        List<GlrToken> valid = List.of(token("word", "a"), token("word", "b"), new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+        assertEquals(List.of("0-2"), automation.parse(valid, LEFTMOST_LONGEST).stream().map(o->o.start() + "-" + o.end()).toList());
+
+        // span which is accepted after candidate while longer span from the start of candidate is still possible
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse("""
+            S = X word d
+            S = X
+            X = word
+            """, "S"));
+        int[] dominated = new int[1];
+        assertEquals(List.of("0-1", "1-2"), spans(parser, tokensWithoutEnd("word word"), GlrParseOptions.DEFAULT, dominated));
+        assertEquals(List.of("0-1", "1-2"), spans(parser, tokensWithoutEnd("word word"), LEFTMOST_LONGEST, dominated));
+    }
+}
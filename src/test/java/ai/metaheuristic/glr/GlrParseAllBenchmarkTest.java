@@ -0,0 +1,57 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static ai.metaheuristic.glr.GlrParseAllTest.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * scaling of {@link GlrAutomation#parseAll} by number of threads, isn't run with unit tests: mvn test -P benchmark
+ */
+@Tag("benchmark")
+public class GlrParseAllBenchmarkTest {
+
+    private static final int RUNS = 5;
+
+    @Test
+    public void test_01() {
+        GlrAutomation automation = new GlrAutomation(GRAMMAR, "S");
+        List<List<GlrToken>> texts = texts(20000, 7);
+        List<List<String>> expected = sequential(automation, texts);
+        long single = 0;
+        System.out.println("texts: " + texts.size() + ", processors: " + Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                assertEquals(expected, format(automation.parseAll(texts, executor)));
+                // the best of runs, the first run above is a warm-up
+                long best = Long.MAX_VALUE;
+                for (int i = 0; i < RUNS; i++) {
+                    long startedOn = System.nanoTime();
+                    automation.parseAll(texts, executor);
+                    best = Math.min(best, System.nanoTime() - startedOn);
+                }
+                if (threads==1) {
+                    single = best;
+                }
+                System.out.printf("threads: %d, time: %.1fms, speedup: %.2f%n", threads, best / 1e6, (double) single / best);
+            }
+            finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
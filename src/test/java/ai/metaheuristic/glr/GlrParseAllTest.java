@@ -0,0 +1,143 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.exceptions.GlrLabelRegexException;
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static ai.metaheuristic.glr.UtilsForTesing.token;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrParseAllTest {
+
+    static final String GRAMMAR = """
+        S = E
+        S = word<regex=^\\d{4}$> MONTH
+        S = MONTH word<class=Integer>
+        E = E plus E
+        E = num
+        """;
+
+    // short texts of sums and dates, some of them don't have trees
+    static List<List<GlrToken>> texts(int count, long seed) {
+        Random r = new Random(seed);
+        List<List<GlrToken>> texts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<GlrToken> tokens = new ArrayList<>();
+            int length = 1 + r.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                switch (r.nextInt(6)) {
+                    case 0 -> tokens.add(token("plus", "+"));
+                    case 1 -> tokens.add(token("MONTH", "мая"));
+                    case 2 -> tokens.add(token("word", r.nextBoolean() ? "" + (1900 + r.nextInt(200)) : "abc"));
+                    case 3 -> tokens.add(token("word", 1900 + r.nextInt(200)));
+                    default -> tokens.add(token("num", "" + j));
+                }
+            }
+            tokens.add(new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+            texts.add(tokens);
+        }
+        return texts;
+    }
+
+    static List<List<String>> format(List<List<GlrStack.SyntaxTree>> trees) {
+        return trees.stream().map(o->o.stream().map(GlrUtils::formatSyntaxTree).toList()).toList();
+    }
+
+    static List<List<String>> sequential(GlrAutomation automation, List<List<GlrToken>> texts) {
+        return format(texts.stream().map(automation::parse).toList());
+    }
+
+    @Test
+    public void test_01() {
+        GlrAutomation automation = new GlrAutomation(GRAMMAR, "S");
+        List<List<GlrToken>> texts = texts(2000, 1);
+        List<List<String>> expected = sequential(automation, texts);
+        assertTrue(expected.stream().filter(o->!o.isEmpty()).count() > 500);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals(expected, format(automation.parseAll(texts, executor)));
+            assertEquals(List.of(), automation.parseAll(List.of(), executor));
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(expected, format(automation.parallelParse(texts)));
+    }
+
+    @Test
+    public void test_02() throws Exception {
+        // the same automation is used by threads which are started at once, each thread parses its own texts
+        // with all kinds of parsing. Results are the same as sequential ones
+        GlrAutomation automation = new GlrAutomation(GRAMMAR, "S");
+        int threads = 8;
+        List<List<List<GlrToken>>> texts = new ArrayList<>();
+        List<List<List<String>>> expected = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            texts.add(texts(300, 100 + t));
+            expected.add(sequential(automation, texts.get(t)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<List<String>>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(()->{
+                    start.await();
+                    List<List<String>> result = new ArrayList<>();
+                    for (List<GlrToken> tokens : texts.get(thread)) {
+                        List<String> trees = automation.parse(tokens).stream().map(GlrUtils::formatSyntaxTree).toList();
+                        assertEquals(trees, automation.parseForest(tokens).stream().map(GlrUtils::formatSyntaxTree).toList());
+
+                        List<String> streamed = new ArrayList<>();
+                        GlrParseSession session = automation.open(o->streamed.add(GlrUtils.formatSyntaxTree(o)));
+                        tokens.forEach(session::push);
+                        session.finish();
+                        assertEquals(trees, streamed);
+                        result.add(trees);
+                    }
+                    return result;
+                }));
+            }
+            start.countDown();
+            for (int t = 0; t < threads; t++) {
+                assertEquals(expected.get(t), futures.get(t).get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_03() {
+        // grammar is immutable, exception of parsing is thrown by parseAll as is
+        GlrAutomation automation = new GlrAutomation("""
+            S = A word<regex=^\\d*$>
+            A = word
+            """, "S");
+        assertThrows(UnsupportedOperationException.class, ()->automation.parser.grammar.rules.add(automation.parser.grammar.rules.get(0)));
+        assertThrows(UnsupportedOperationException.class, ()->automation.parser.actionGotoTable.remove(0));
+
+        List<GlrToken> tokens = List.of(token("word", "a"), token("word", "1"), new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertThrows(GlrLabelRegexException.class, ()->automation.parseAll(List.of(tokens, tokens), executor));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.exceptions.GlrParseBudgetException;
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.GlrEnums.*;
+import static ai.metaheuristic.glr.UtilsForTesing.SUM_GRAMMAR;
+import static ai.metaheuristic.glr.UtilsForTesing.sum;
+import static ai.metaheuristic.glr.UtilsForTesing.tokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrParseBudgetTest {
+
+    private static GlrParseOptions budget(int maxLiveHeads, long maxStackNodes, long maxTrees, long timeoutNanos, boolean interruptible, BudgetPolicy policy) {
+        return GlrParseOptions.DEFAULT.withBudget(new GlrParseOptions.Budget(maxLiveHeads, maxStackNodes, maxTrees, timeoutNanos, interruptible, policy));
+    }
+
+    @Test
+    public void test_01() {
+        // Catalan(11) = 58786 trees, only 10 are built
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        GlrParseBudgetException e = assertThrows(GlrParseBudgetException.class,
+                ()->parser.parse(sum(12), true, null, budget(0, 0, 10, 0, false, BudgetPolicy.FAIL)));
+        assertEquals(ParseLimit.TREES, e.limit);
+
+        GlrParseMetrics metrics = new GlrParseMetrics();
+        List<GlrStack.SyntaxTree> trees = parser.parse(sum(12), true, null, budget(0, 0, 10, 0, false, BudgetPolicy.PARTIAL).withMetrics(metrics));
+        assertEquals(10, trees.size());
+        assertEquals(1, metrics.get(ParseMetric.BUDGET_EXCEEDED));
+
+        List<GlrStack.SyntaxTree> all = parser.parse(sum(4), true, null, budget(0, 0, 10, 0, false, BudgetPolicy.FAIL));
+        assertEquals(5, all.size());
+    }
+
+    @Test
+    public void test_02() {
+        // after 'verb' there are two heads: the end of 'NP verb' and the start of 'verb NP'
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse("""
+            S = NP verb
+            S = verb NP
+            NP = adj NP
+            NP = noun
+            """, "S"));
+        List<GlrToken> tokens = tokens("adj noun verb adj noun verb noun");
+        GlrParseMetrics metrics = new GlrParseMetrics();
+        int count = parser.parse(tokens, false, null, GlrParseOptions.DEFAULT.withMetrics(metrics)).size();
+        int peak = (int) metrics.get(ParseMetric.PEAK_LIVE_HEADS);
+        assertTrue(peak > 1, metrics.toString());
+        assertEquals(count, parser.parse(tokens, false, null, budget(peak, 0, 0, 0, false, BudgetPolicy.FAIL)).size());
+
+        GlrParseBudgetException e = assertThrows(GlrParseBudgetException.class,
+                ()->parser.parse(tokens, false, null, budget(peak - 1, 0, 0, 0, false, BudgetPolicy.FAIL)));
+        assertEquals(ParseLimit.LIVE_HEADS, e.limit);
+
+        // with any limit of stack nodes, spans which were accepted before limit was reached are returned
+        List<String> all = parser.parseForest(tokens, false, null, GlrParseOptions.DEFAULT).roots.stream().map(o->o.start + "-" + o.end).toList();
+        boolean partial = false;
+        for (int maxStackNodes = 1; ; maxStackNodes++) {
+            GlrForest forest = parser.parseForest(tokens, false, null, budget(0, maxStackNodes, 0, 0, false, BudgetPolicy.PARTIAL));
+            List<String> spans = forest.roots.stream().map(o->o.start + "-" + o.end).toList();
+            if (forest.exceeded==null) {
+                assertEquals(all, spans);
+                break;
+            }
+            assertEquals(ParseLimit.STACK_NODES, forest.exceeded);
+            assertEquals(all.subList(0, spans.size()), spans);
+            partial |= !spans.isEmpty() && spans.size() < all.size();
+        }
+        assertTrue(partial);
+        assertNull(parser.parseForest(tokens, false, null, GlrParseOptions.DEFAULT).exceeded);
+    }
+
+    @Test
+    public void test_03() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        GlrParseBudgetException e = assertThrows(GlrParseBudgetException.class,
+                ()->parser.parse(sum(40), true, null, budget(0, 0, 0, 1, false, BudgetPolicy.FAIL)));
+        assertEquals(ParseLimit.DEADLINE, e.limit);
+
+        GlrForest forest = parser.parseForest(sum(40), true, null, budget(0, 0, 0, 1, false, BudgetPolicy.PARTIAL));
+        assertEquals(ParseLimit.DEADLINE, forest.exceeded);
+        assertTrue(forest.isEmpty());
+        assertThrows(IllegalStateException.class, ()->new GlrParseOptions.Budget(-1, 0, 0, 0, false, BudgetPolicy.FAIL));
+    }
+
+    @Test
+    public void test_04() {
+        GlrAutomation automation = new GlrAutomation(SUM_GRAMMAR, "S");
+        Thread.currentThread().interrupt();
+        try {
+            GlrParseBudgetException e = assertThrows(GlrParseBudgetException.class,
+                    ()->automation.parse(sum(3), budget(0, 0, 0, 0, true, BudgetPolicy.FAIL)));
+            assertEquals(ParseLimit.INTERRUPTED, e.limit);
+            assertTrue(Thread.currentThread().isInterrupted());
+            assertTrue(automation.parse(sum(3), budget(0, 0, 0, 0, true, BudgetPolicy.PARTIAL)).isEmpty());
+            // interrupt isn't checked without interruptible
+            assertEquals(automation.parse(sum(3)).size(), automation.parse(sum(3), GlrParseOptions.DEFAULT).size());
+        }
+        finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static ai.metaheuristic.glr.UtilsForTesing.SUM_GRAMMAR;
+import static ai.metaheuristic.glr.UtilsForTesing.tokens;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrParseListenerTest {
+
+    private static class CountingListener implements GlrParseListener {
+        final List<String> events = new ArrayList<>();
+        int tokens, reduces, shifts, merges, accepts;
+
+        @Override
+        public void onTokenStart(GlrStack.Level level, GlrToken token) {
+            tokens++;
+            events.add("token " + token.symbol);
+        }
+
+        @Override
+        public void onReduce(GlrStack.Node node, GlrGrammar.Rule rule) {
+            reduces++;
+            events.add("reduce #" + rule.index());
+        }
+
+        @Override
+        public void onShift(GlrStack.Node from, GlrStack.Node to) {
+            shifts++;
+            assertEquals(from.position + 1, to.position);
+            events.add("shift");
+        }
+
+        @Override
+        public void onMerge(GlrStack.Node node, GlrStack.Edge edge) {
+            merges++;
+            assertTrue(node.edges.size() > 1);
+        }
+
+        @Override
+        public void onAccept(GlrStack.Node node) {
+            accepts++;
+            events.add("accept");
+        }
+
+        @Override
+        public void onTrees(List<GlrStack.SyntaxTree> trees) {
+            events.add("trees " + trees.size());
+        }
+    }
+
+    @Test
+    public void test_01() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        CountingListener listener = new CountingListener();
+        List<GlrStack.SyntaxTree> trees = parser.parse(tokens("num plus num"), true, null, GlrParseOptions.DEFAULT.withListener(listener));
+        assertEquals(1, trees.size());
+        assertEquals(List.of(
+                "token num", "shift",
+                "token plus", "reduce #3", "shift",
+                "token num", "shift",
+                "token $", "reduce #3", "reduce #2", "reduce #1", "accept", "trees 1"), listener.events);
+        assertEquals(0, listener.merges);
+    }
+
+    @Test
+    public void test_02() {
+        // two trees of 'num plus num plus num' are merged into one stack node
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        CountingListener listener = new CountingListener();
+        List<GlrStack.SyntaxTree> trees = parser.parse(tokens("num plus num plus num"), true, null, GlrParseOptions.DEFAULT.withListener(listener));
+        assertEquals(2, trees.size());
+        assertEquals(6, listener.tokens);
+        assertEquals(1, listener.accepts);
+        assertTrue(listener.merges > 0);
+        assertTrue(listener.reduces > 0);
+    }
+
+    @Test
+    public void test_03() {
+        // trace is printed only by listener, parse without listener doesn't produce any output
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<GlrStack.SyntaxTree> trees = parser.parse(tokens("num plus num"), true, null,
+                GlrParseOptions.DEFAULT.withListener(new GlrTraceListener(new PrintStream(out, true, StandardCharsets.UTF_8))));
+        assertEquals(1, trees.size());
+        String trace = out.toString(StandardCharsets.UTF_8);
+        assertTrue(trace.contains("TOKEN: "), trace);
+        assertTrue(trace.contains("- REDUCE: "), trace);
+        assertTrue(trace.contains("- SHIFT: "), trace);
+        assertTrue(trace.contains("- ACCEPT: "), trace);
+        assertTrue(trace.contains("- STACK:"), trace);
+        assertTrue(trace.endsWith("ACCEPTED:" + System.lineSeparator() + GlrUtils.formatSyntaxTree(trees.get(0)) + System.lineSeparator()), trace);
+        assertEquals(GlrParseListener.NO_OP, parser.listener);
+    }
+}
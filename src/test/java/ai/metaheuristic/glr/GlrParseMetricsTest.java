@@ -0,0 +1,95 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.GlrEnums.ParseMetric;
+import static ai.metaheuristic.glr.UtilsForTesing.SUM_GRAMMAR;
+import static ai.metaheuristic.glr.UtilsForTesing.sum;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrParseMetricsTest {
+
+    @Test
+    public void test_01() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        GlrParseMetrics metrics = new GlrParseMetrics();
+        List<GlrStack.SyntaxTree> trees = parser.parse(sum(4), true, null, GlrParseOptions.DEFAULT.withMetrics(metrics));
+        assertEquals(5, trees.size());
+        assertEquals(8, metrics.get(ParseMetric.TOKENS));
+        assertEquals(5, metrics.get(ParseMetric.ACCEPTED_TREES));
+        assertEquals(0, metrics.get(ParseMetric.REJECTED_REDUCTIONS));
+        assertTrue(metrics.get(ParseMetric.SHIFTS) >= 7, metrics.toString());
+        assertTrue(metrics.get(ParseMetric.REDUCTIONS) > 0, metrics.toString());
+        assertTrue(metrics.get(ParseMetric.MERGES) > 0, metrics.toString());
+        // all heads after token are in the same state and are merged into one node
+        assertEquals(1, metrics.get(ParseMetric.PEAK_LIVE_HEADS));
+        assertTrue(metrics.get(ParseMetric.PARSE_NANOS) > 0, metrics.toString());
+
+        // the second parse is added up, peak is max
+        long reductions = metrics.get(ParseMetric.REDUCTIONS);
+        long peak = metrics.get(ParseMetric.PEAK_LIVE_HEADS);
+        parser.parse(sum(1), true, null, GlrParseOptions.DEFAULT.withMetrics(metrics));
+        assertEquals(10, metrics.get(ParseMetric.TOKENS));
+        assertEquals(6, metrics.get(ParseMetric.ACCEPTED_TREES));
+        assertTrue(metrics.get(ParseMetric.REDUCTIONS) > reductions, metrics.toString());
+        assertEquals(peak, metrics.get(ParseMetric.PEAK_LIVE_HEADS));
+    }
+
+    @Test
+    public void test_02() {
+        // only right-associative trees are valid, rejected nodes of trees are counted
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        GlrParseMetrics metrics = new GlrParseMetrics();
+        List<GlrStack.SyntaxTree> trees = parser.parse(sum(5), true,
+                tree->!"E".equals(tree.symbol()) || tree.children().size()==1 || tree.children().get(0).children().get(0).isLeaf(),
+                GlrParseOptions.DEFAULT.withMetrics(metrics));
+        assertEquals(1, trees.size());
+        assertEquals(1, metrics.get(ParseMetric.ACCEPTED_TREES));
+        assertTrue(metrics.get(ParseMetric.REJECTED_REDUCTIONS) > 0, metrics.toString());
+
+        GlrAutomation automation = new GlrAutomation(SUM_GRAMMAR, "S");
+        GlrParseMetrics automationMetrics = new GlrParseMetrics();
+        assertEquals(automation.parse(sum(3)).size(), automation.parse(sum(3), automationMetrics).size());
+        assertEquals(6, automationMetrics.get(ParseMetric.TOKENS));
+    }
+
+    @Test
+    public void test_03() {
+        assertEquals(0, GlrParseMetricsAggregator.bucket(0));
+        assertEquals(1, GlrParseMetricsAggregator.bucket(1));
+        assertEquals(2, GlrParseMetricsAggregator.bucket(2));
+        assertEquals(2, GlrParseMetricsAggregator.bucket(3));
+        assertEquals(11, GlrParseMetricsAggregator.bucket(1024));
+        assertEquals(63, GlrParseMetricsAggregator.bucket(Long.MAX_VALUE));
+
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        GlrParseMetricsAggregator aggregator = new GlrParseMetricsAggregator();
+        for (int nums = 1; nums <= 8; nums++) {
+            GlrParseMetrics metrics = new GlrParseMetrics();
+            parser.parse(sum(nums), true, null, GlrParseOptions.DEFAULT.withMetrics(metrics));
+            aggregator.add(metrics);
+        }
+        assertEquals(8, aggregator.parses());
+        GlrParseMetricsAggregator.Histogram trees = aggregator.histogram(ParseMetric.ACCEPTED_TREES);
+        // Catalan numbers 1, 1, 2, 5, 14, 42, 132, 429
+        assertEquals(8, trees.count());
+        assertEquals(626, trees.sum());
+        assertEquals(429, trees.max());
+        assertEquals(2, trees.buckets()[1]);
+        assertEquals(1, trees.buckets()[9]);
+        assertEquals(1, trees.percentile(0.25));
+        assertEquals(429, trees.percentile(1.0));
+        assertEquals(63, trees.percentile(0.75));
+        assertEquals(626 / 8.0, trees.mean());
+        assertThrows(IllegalStateException.class, ()->trees.percentile(2));
+    }
+}
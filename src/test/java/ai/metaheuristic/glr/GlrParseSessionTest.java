@@ -0,0 +1,149 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static ai.metaheuristic.glr.UtilsForTesing.SUM_GRAMMAR;
+import static ai.metaheuristic.glr.UtilsForTesing.token;
+import static ai.metaheuristic.glr.UtilsForTesing.tokens;
+import static ai.metaheuristic.glr.UtilsForTesing.tokensWithoutEnd;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrParseSessionTest {
+
+    private static final String NP_GRAMMAR = """
+        S = NP verb
+        NP = adj NP
+        NP = NP pp
+        NP = noun
+        """;
+
+    @Test
+    public void test_01() {
+        GlrAutomation automation = new GlrAutomation(NP_GRAMMAR, "S");
+        List<GlrToken> tokens = tokensWithoutEnd("verb adj noun pp verb noun verb adj adj noun verb");
+        List<GlrToken> withEnd = new ArrayList<>(tokens);
+        withEnd.add(new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+
+        List<GlrStack.SyntaxTree> trees = new ArrayList<>();
+        GlrParseSession session = automation.open(trees::add);
+        for (GlrToken token : tokens) {
+            session.push(token);
+        }
+        session.finish();
+        assertEquals(11 + 1, session.position());
+        assertEquals(
+                automation.parse(withEnd).stream().map(GlrUtils::formatSyntaxTree).toList(),
+                trees.stream().map(GlrUtils::formatSyntaxTree).toList());
+        assertEquals(7, trees.size());
+    }
+
+    @Test
+    public void test_02() {
+        // trees of span are passed to listener when the next token is pushed
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(NP_GRAMMAR, "S"));
+        List<GlrStack.SyntaxTree> trees = new ArrayList<>();
+        GlrParseSession session = parser.open(trees::add);
+        List<Integer> counts = new ArrayList<>();
+        for (GlrToken token : tokensWithoutEnd("noun verb adj noun verb pp")) {
+            session.push(token);
+            counts.add(trees.size());
+        }
+        assertEquals(List.of(0, 0, 1, 1, 1, 3), counts);
+        session.finish();
+        assertEquals(3, trees.size());
+        assertThrows(IllegalStateException.class, ()->session.push(token("noun", "noun")));
+    }
+
+    @Test
+    public void test_03() {
+        // full match, END_OF_TOKEN_LIST is pushed by finish()
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(NP_GRAMMAR, "S"));
+        List<GlrStack.SyntaxTree> trees = new ArrayList<>();
+        GlrParseSession session = parser.open(trees::add, true, null, GlrEnums.ReduceMode.PATHS);
+        for (GlrToken token : tokensWithoutEnd("adj noun pp verb")) {
+            session.push(token);
+        }
+        assertTrue(trees.isEmpty());
+        session.finish();
+        assertEquals(2, trees.size());
+    }
+
+    @Test
+    public void test_04() {
+        // nodes of old spans aren't kept by session, stack heads and reachable stack nodes are bounded on long input
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(NP_GRAMMAR, "S"));
+        int[] count = new int[1];
+        GlrParseSession session = new GlrParseSession(parser, false, GlrParseOptions.DEFAULT, root->count[0]++);
+        List<GlrToken> tokens = tokensWithoutEnd("adj noun pp verb noun verb");
+        int maxHeads = 0;
+        int maxNodes = 0;
+        for (int i = 0; i < 20_000; i++) {
+            session.push(tokens.get(i % tokens.size()));
+            maxHeads = Math.max(maxHeads, session.liveHeads());
+            maxNodes = Math.max(maxNodes, session.stackNodes());
+        }
+        session.finish();
+        assertTrue(maxHeads < 10, ""+maxHeads);
+        assertTrue(maxNodes < 30, ""+maxNodes);
+        assertEquals(20_000 / tokens.size() * 3, count[0]);
+        assertEquals(0, session.stackNodes());
+    }
+
+    @Test
+    public void test_05() {
+        // derivation of tokens is rejected while stack is reduced, derivation with nonterminal child is checked after level is reduced
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        GlrParseMetrics metrics = new GlrParseMetrics();
+        GlrForest forest = parser.parseForest(tokens("num plus num"), true, tree->!(tree.start()==2 && tree.children().size()==1),
+                GlrParseOptions.DEFAULT.withMetrics(metrics));
+        assertTrue(forest.isEmpty());
+        assertEquals(1, metrics.get(GlrEnums.ParseMetric.REJECTED_REDUCTIONS));
+
+        forest = parser.parseForest(tokens("num plus num"), true, tree->tree.children().size()!=3);
+        assertEquals(1, forest.roots.size());
+        assertEquals(List.of(), forest.toList());
+    }
+
+    private static boolean allAccepted(GlrStack.SyntaxTree tree, Function<GlrStack.SyntaxTree, Boolean> validator) {
+        return tree.isLeaf() || (validator.apply(tree) && tree.children().stream().allMatch(o->allAccepted(o, validator)));
+    }
+
+    @Test
+    public void test_06() {
+        // 'adj NP' has nonterminal child, it's rejected after level is reduced, so its stacks aren't shifted
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(NP_GRAMMAR, "S"));
+        Function<GlrStack.SyntaxTree, Boolean> validator = tree->!(tree.children().size()==2 && "adj".equals(tree.children().get(0).symbol()));
+        List<GlrToken> tokens = tokens("adj adj noun pp verb adj noun verb");
+
+        int[] nodes = new int[2];
+        for (int i = 0; i < 2; i++) {
+            GlrParseSession session = new GlrParseSession(parser, false, GlrParseOptions.DEFAULT, i==0 ? null : validator, root->{});
+            for (GlrToken token : tokens) {
+                session.push(token);
+                nodes[i] += session.stackNodes();
+            }
+            session.finish();
+        }
+        assertTrue(nodes[1] < nodes[0], Arrays.toString(nodes));
+
+        GlrParseMetrics metrics = new GlrParseMetrics();
+        List<String> trees = parser.parse(tokens, false, validator, GlrParseOptions.DEFAULT.withMetrics(metrics))
+                .stream().map(GlrUtils::formatSyntaxTree).toList();
+        assertTrue(metrics.get(GlrEnums.ParseMetric.INVALID_EDGES) > 0, metrics.toString());
+        // the same trees as trees without validator which are accepted in each node
+        List<String> expected = parser.parse(tokens, false).stream().filter(o->allAccepted(o, validator)).map(GlrUtils::formatSyntaxTree).toList();
+        assertFalse(trees.isEmpty());
+        assertEquals(new HashSet<>(expected), new HashSet<>(trees));
+    }
+}
@@ -55,6 +55,7 @@ public class GlrParserDoubleSyntaxTreeTest {
         for (GlrStack.SyntaxTree syntaxTree : parsed) {
             System.out.println(GlrUtils.formatSyntaxTree(syntaxTree));
         }
-        assertEquals(2, parsed.size());
+        // stacks with the same state are merged in graph-structured stack, the same tree isn't produced twice
+        assertEquals(1, parsed.size());
     }
 }
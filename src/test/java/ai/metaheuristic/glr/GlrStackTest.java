@@ -0,0 +1,99 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.UtilsForTesing.SUM_GRAMMAR;
+import static ai.metaheuristic.glr.UtilsForTesing.sum;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrStackTest {
+
+    @Test
+    public void test_01() {
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        // number of binary trees is Catalan number
+        int[] catalan = {1, 1, 2, 5, 14, 42, 132, 429};
+        for (int nums = 1; nums < catalan.length + 1; nums++) {
+            List<String> trees = parser.parse(sum(nums), true).stream().map(GlrUtils::formatSyntaxTree).toList();
+            assertEquals(catalan[nums - 1], trees.size());
+            assertEquals(trees.size(), new HashSet<>(trees).size());
+        }
+    }
+
+    @Test
+    public void test_02() {
+        // only right-associative trees are valid. Forest of 200 operands has O(n^3) alternatives,
+        // stack of trees without merging would have Catalan number of heads
+        GlrParser parser = new GlrParser(GlrGrammarParser.parse(SUM_GRAMMAR, "S"));
+        List<GlrStack.SyntaxTree> trees = parser.parse(sum(200), true,
+                tree->!"E".equals(tree.symbol()) || tree.children().size()==1 || tree.children().get(0).children().get(0).isLeaf());
+        assertEquals(1, trees.size());
+
+        int depth = 0;
+        GlrStack.SyntaxTree tree = trees.get(0).children().get(0);
+        while (tree.children().size()==3) {
+            tree = tree.children().get(2);
+            depth++;
+        }
+        assertEquals(199, depth);
+    }
+
+    @Test
+    public void test_03() {
+        GlrStack.ForestNode num = new GlrStack.ForestNode("num", 0, 1, new GlrToken("num", "1", null, "1", null));
+        GlrStack.ForestNode e = new GlrStack.ForestNode("E", 0, 1, null);
+        GlrStack.ForestNode a = new GlrStack.ForestNode("A", 0, 1, null);
+        e.alternatives.add(new GlrStack.Alternative(2, List.of(num)));
+        // cycle E = A, A = E doesn't produce trees
+        e.alternatives.add(new GlrStack.Alternative(3, List.of(a)));
+        a.alternatives.add(new GlrStack.Alternative(4, List.of(e)));
+        // the same alternative is kept once
+        assertFalse(e.alternatives.add(new GlrStack.Alternative(2, List.of(num))));
+
+        IdentityHashMap<GlrStack.ForestNode, List<GlrStack.SyntaxTree>> memo = new IdentityHashMap<>();
+        List<GlrStack.SyntaxTree> trees = GlrStack.syntaxTrees(e, null, memo);
+        assertEquals(1, trees.size());
+        assertEquals(2, (int) trees.get(0).ruleIndex());
+        assertSame(trees, GlrStack.syntaxTrees(e, null, memo));
+
+        GlrStack.Level level = new GlrStack.Level(1);
+        assertTrue(level.isEmpty());
+        GlrStack.Node node = level.addNode(5);
+        assertSame(node, level.node(5));
+        assertSame(level.forestNode(1, "E", 0), level.forestNode(1, "E", 0));
+        assertNotSame(level.forestNode(1, "E", 0), level.forestNode(2, "A", 0));
+        assertEquals("E[0,1)", level.forestNode(1, "E", 0).toString());
+    }
+
+    @Test
+    public void test_04() {
+        GlrToken token = new GlrToken("num", "1", null, "1", null);
+        GlrStack.SyntaxTreeFactory factory = new GlrStack.SyntaxTreeFactory();
+        GlrStack.SyntaxTree leaf = factory.leaf(token, 0, 1);
+        assertSame(leaf, factory.leaf(token, 0, 1));
+        assertNotSame(leaf, factory.leaf(token, 1, 2));
+
+        GlrStack.SyntaxTree e = factory.node("E", 2, List.of(leaf), 0, 1);
+        assertSame(e, factory.node("E", 2, new ArrayList<>(List.of(factory.leaf(token, 0, 1))), 0, 1));
+        assertNotSame(e, factory.node("E", 3, List.of(leaf), 0, 1));
+        assertEquals(4, factory.size());
+
+        // tree which wasn't interned is equal by structure
+        GlrStack.SyntaxTree copy = new GlrStack.SyntaxTree("E", null, 2, List.of(new GlrStack.SyntaxTree("num", token, null, List.of(), 0, 1)), 0, 1);
+        assertEquals(e, copy);
+        assertEquals(e.hashCode(), copy.hashCode());
+        assertSame(e, factory.intern(copy));
+        assertSame(e, factory.get(copy));
+        assertNull(factory.get(new GlrStack.SyntaxTree("E", null, 2, List.of(), 0, 1)));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrTableTest {
+
+    private static final String GRAMMAR = """
+        S = NUMBER adj CLOTHES
+        S = NUMBER CLOTHES adj
+        S = S conj S
+        """;
+
+    @Test
+    public void test_55() {
+        List<LinkedHashMap<String, List<GlrLr.Action>>> actionTable = GlrLr.generateActionGotoTable(GlrGrammarParser.GLR_BASE_GRAMMAR);
+        GlrTable table = GlrTable.compile(GlrGrammarParser.GLR_BASE_GRAMMAR, actionTable);
+
+        assertEquals(17, table.stateCount());
+        assertEquals(UtilsForTesing.actionTableAsString(actionTable), UtilsForTesing.actionTableAsString(table.toActionGotoTable()));
+    }
+
+    @Test
+    public void test_56() {
+        GlrGrammar grammar = GlrGrammarParser.parse(GRAMMAR, "S");
+        List<LinkedHashMap<String, List<GlrLr.Action>>> actionTable = GlrLr.generateActionGotoTable(grammar);
+        GlrTable table = GlrTable.compile(grammar, actionTable);
+
+        for (int state = 0; state < actionTable.size(); state++) {
+            LinkedHashMap<String, List<GlrLr.Action>> row = actionTable.get(state);
+            for (int symbol = 0; symbol < table.symbolCount(); symbol++) {
+                List<GlrLr.Action> actions = row.get(table.symbol(symbol));
+                int cell = table.cell(state, symbol);
+                if (actions==null) {
+                    assertEquals(GlrTable.NO_CELL, cell);
+                    continue;
+                }
+                assertNotEquals(GlrTable.NO_CELL, cell);
+                assertEquals(actions.size(), table.actionEnd(cell) - table.actionStart(cell));
+                for (int i = 0; i < actions.size(); i++) {
+                    GlrLr.Action action = actions.get(i);
+                    int a = table.actionStart(cell) + i;
+                    assertEquals(action.type(), GlrEnums.ActionType.fromCode(table.actionKind(a)).type);
+                    if (action.state()!=null) {
+                        assertEquals((int) action.state(), table.actionValue(a));
+                    }
+                    if (action.ruleIndex()!=null) {
+                        assertEquals((int) action.ruleIndex(), table.actionValue(a));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_57() {
+        GlrGrammar grammar = GlrGrammarParser.parse(GRAMMAR, "S");
+        GlrTable table = GlrTable.compile(grammar, GlrLr.generateActionGotoTable(grammar));
+
+        assertEquals(-1, table.symbolId("unknown"));
+        assertEquals(GlrTable.NO_CELL, table.cell(0, -1));
+        assertTrue(table.isTerminal(table.symbolId("adj")));
+        assertTrue(table.isTerminal(table.endOfTokenListId()));
+        assertFalse(table.isTerminal(table.symbolId("S")));
+        assertFalse(table.isTerminal(-1));
+
+        for (GlrGrammar.Rule rule : grammar.rules) {
+            assertEquals(rule.leftSymbol(), table.symbol(table.ruleLeft(rule.index())));
+            assertEquals(rule.rightSymbols().size(), table.ruleLength(rule.index()));
+        }
+        assertTrue(table.symbolId("NUMBER")>=0);
+        assertTrue(table.symbolId("conj")>=0);
+    }
+}
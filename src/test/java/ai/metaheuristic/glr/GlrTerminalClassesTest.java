@@ -0,0 +1,101 @@
+/*
+ * License: Apache 2.0
+ * Metaheuristic project - https://github.com/sergmain?tab=projects&type=classic
+ * Copyright (c) 2022. Sergio Lissner
+ *
+ */
+
+package ai.metaheuristic.glr;
+
+import ai.metaheuristic.glr.token.GlrToken;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static ai.metaheuristic.glr.GlrEnums.ParseMetric;
+import static ai.metaheuristic.glr.UtilsForTesing.token;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GlrTerminalClassesTest {
+
+    private static final String DATE_GRAMMAR = """
+        S = word<regex=^\\d{1,2}$> MONTH word<regex=^\\d{4}$>
+        S = MONTH word<regex=^\\d{4}$>
+        S = YEAR word<regex=^\\d{4}$>
+        YEAR = word<class=Integer>
+        """;
+
+    private static List<GlrToken> tokens(String str) {
+        List<GlrToken> tokens = new ArrayList<>();
+        for (String s : str.split(" ")) {
+            String[] parts = s.split(":");
+            tokens.add(token(parts[0], parts[1]));
+        }
+        tokens.add(new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+        return tokens;
+    }
+
+    @Test
+    public void test_01() {
+        GlrGrammar grammar = GlrGrammarParser.parse(DATE_GRAMMAR, "S");
+        GlrTerminalClasses terminalClasses = GlrTerminalClasses.compile(grammar);
+
+        assertEquals(List.of("word<regex=^\\d{1,2}$>", "MONTH", "word<regex=^\\d{4}$>"), terminalClasses.grammar.rules.get(1).rightSymbols());
+        assertEquals(List.of("MONTH", "word<regex=^\\d{4}$>"), terminalClasses.grammar.rules.get(2).rightSymbols());
+        // token of the last terminal isn't known, label is checked on the token with the same index in validator
+        assertEquals(List.of("YEAR", "word"), terminalClasses.grammar.rules.get(3).rightSymbols());
+        assertEquals(List.of("word<class=Integer>"), terminalClasses.grammar.rules.get(4).rightSymbols());
+        assertEquals(Set.of("word"), terminalClasses.classes.keySet());
+        assertEquals(3, terminalClasses.classes.get("word").size());
+
+        // compiling is idempotent and source grammar can be restored
+        assertEquals(terminalClasses.grammar.rules, GlrTerminalClasses.compile(terminalClasses.grammar).grammar.rules);
+        assertEquals(grammar.rules, GlrTerminalClasses.source(terminalClasses.grammar).rules);
+        assertEquals(grammar.rules, GlrTerminalClasses.source(grammar).rules);
+
+        GlrTerminalClasses.TerminalClass year = terminalClasses.classes.get("word").stream().filter(o->o.symbol().equals("word<regex=^\\d{4}$>")).findFirst().orElseThrow();
+        assertTrue(year.test(token("word", "2022")));
+        assertFalse(year.test(token("word", "17")));
+        GlrTerminalClasses.TerminalClass integer = terminalClasses.classes.get("word").stream().filter(o->o.symbol().equals("word<class=Integer>")).findFirst().orElseThrow();
+        assertTrue(integer.test(token("word", 2022)));
+        assertFalse(integer.test(token("word", "2022")));
+        // labels of refined terminal are compiled once, only unary labels can be compiled to check of one token
+        assertEquals(Map.of("class", List.of("Integer")), integer.labels());
+        assertThrows(IllegalStateException.class, ()->GlrLabels.compileUnary("agr-gnc", "1"));
+    }
+
+    @Test
+    public void test_02() {
+        GlrAutomation automation = new GlrAutomation(DATE_GRAMMAR, "S");
+        List<GlrToken> tokens = new ArrayList<>(tokens("word:17 MONTH:сентября word:2022 word:abc MONTH:мая word:95"));
+        tokens.addAll(tokens.size() - 1, List.of(token("word", 1990), token("word", "abc"), token("word", 1990), token("word", "2023")));
+        List<String> trees = automation.parse(tokens).stream().map(UtilsForTesing::asResultString).sorted().toList();
+        assertEquals(List.of("17 сентября 2022", "1990 2023", "сентября 2022"), trees);
+
+        // labels of refined terminals are checked by parser without validator too,
+        // label of 'YEAR word<regex=^\\d{4}$>' is checked only by validator
+        List<String> withoutValidator = automation.parser.parse(tokens, false, null).stream().map(UtilsForTesing::asResultString).sorted().toList();
+        assertEquals(List.of("17 сентября 2022", "1990 2023", "1990 abc", "сентября 2022"), withoutValidator);
+    }
+
+    @Test
+    public void test_03() {
+        // tokens which fail label aren't shifted as refined terminal, the same grammar without labels creates stacks on all of them
+        GlrParser labeled = new GlrParser(GlrGrammarParser.parse("S = word<regex=^\\d{4}$> word<regex=^\\d{4}$>\n", "S"));
+        GlrParser plain = new GlrParser(GlrGrammarParser.parse("S = word word\n", "S"));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append(i % 20==0 ? "word:" + (2000 + i) : "word:w" + i).append(' ');
+        }
+        sb.append("word:2200 word:1999");
+        List<GlrToken> tokens = tokens(sb.toString());
+
+        GlrParseMetrics labeledMetrics = new GlrParseMetrics();
+        GlrParseMetrics plainMetrics = new GlrParseMetrics();
+        List<GlrStack.SyntaxTree> trees = labeled.parse(tokens, false, null, GlrParseOptions.DEFAULT.withMetrics(labeledMetrics));
+        plain.parse(tokens, false, null, GlrParseOptions.DEFAULT.withMetrics(plainMetrics));
+        assertEquals(1, trees.size());
+        assertEquals("2200 1999", UtilsForTesing.asResultString(trees.get(0)));
+        assertTrue(labeledMetrics.get(ParseMetric.SHIFTS) * 10 < plainMetrics.get(ParseMetric.SHIFTS), labeledMetrics + " " + plainMetrics);
+    }
+}
@@ -11,6 +11,7 @@ import ai.metaheuristic.glr.token.GlrToken;
 import ai.metaheuristic.glr.token.GlrWordToken;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +23,14 @@ import java.util.stream.Collectors;
  * Time: 3:24 PM
  */
 public class UtilsForTesing {
+
+    // number of trees of sum of n operands is Catalan number of n - 1
+    static final String SUM_GRAMMAR = """
+        S = E
+        E = E plus E
+        E = num
+        """;
+
     public record StringHolder(String s) implements GlrWordToken {
         @Override
         public String getWord() {
@@ -48,6 +57,37 @@ public class UtilsForTesing {
         return actual;
     }
 
+    static GlrToken token(String symbol, Object value) {
+        return new GlrToken(symbol, value, null, value.toString(), null);
+    }
+
+    /**
+     * tokens which are separated by space, symbol of token is its value, without END_OF_TOKEN_LIST
+     */
+    static List<GlrToken> tokensWithoutEnd(String str) {
+        List<GlrToken> tokens = new ArrayList<>();
+        for (String s : str.split(" ")) {
+            tokens.add(token(s, s));
+        }
+        return tokens;
+    }
+
+    /**
+     * the same as {@link #tokensWithoutEnd(String)} with END_OF_TOKEN_LIST
+     */
+    static List<GlrToken> tokens(String str) {
+        List<GlrToken> tokens = tokensWithoutEnd(str);
+        tokens.add(new GlrToken(GlrConsts.END_OF_TOKEN_LIST));
+        return tokens;
+    }
+
+    /**
+     * tokens of {@link #SUM_GRAMMAR}, num plus num ...
+     */
+    static List<GlrToken> sum(int nums) {
+        return tokens(String.join(" plus ", Collections.nCopies(nums, "num")));
+    }
+
     static String asResultString(GlrStack.SyntaxTree syntaxTree) {
         List<GlrToken> list = new ArrayList<>();
         GlrUtils.collectChildren(list, syntaxTree);